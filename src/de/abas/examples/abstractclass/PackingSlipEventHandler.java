@@ -1,5 +1,8 @@
 package de.abas.examples.abstractclass;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.abas.erp.common.type.enums.EnumEditorAction;
 import de.abas.erp.db.schema.sales.PackingSlipEditor;
 import de.abas.erp.db.schema.sales.PackingSlipEditor.Row;
@@ -18,6 +21,9 @@ import de.abas.erp.axi2.event.ScreenEvent;
 @RunFopWith(EventHandlerRunner.class)
 public class PackingSlipEventHandler {
 
+	// kept for the whole editing session, so the cached cost objects are reused by every validation
+	private final SalesHelperClass salesHelperClass = new SalesHelperClass();
+
 	@ScreenEventHandler(type = ScreenEventType.VALIDATION)
 	public void screenValidation(ScreenEvent event, ScreenControl screenControl, DbContext ctx, PackingSlipEditor head) throws EventException {
 		// gets all editable rows
@@ -27,10 +33,15 @@ public class PackingSlipEventHandler {
 			return;
 		}
 		
-		int index = 1;
-		SalesHelperClass salesHelperClass = new SalesHelperClass();
+		// collects the rows first, so the products of all rows are loaded together
+		List<SelectableRow> rows = new ArrayList<SelectableRow>();
 		for (Row row : editableRows) {
-			salesHelperClass.handleRow(ctx, (SelectableRow)row, index++);
+			rows.add((SelectableRow)row);
+		}
+		salesHelperClass.prefetchProducts(ctx, rows);
+		int index = 1;
+		for (SelectableRow row : rows) {
+			salesHelperClass.handleRow(ctx, row, index++);
 		}
 	}
 
@@ -0,0 +1,205 @@
+package de.abas.examples.abstractclass;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import de.abas.erp.axi.event.EventException;
+import de.abas.erp.db.SelectableRow;
+import de.abas.erp.db.schema.account.CostObject;
+import de.abas.erp.db.schema.account.SelectableAccount;
+import de.abas.erp.db.schema.part.SelectablePart;
+import de.abas.erp.db.schema.sales.InvoiceEditor;
+import de.abas.erp.db.schema.sales.PackingSlipEditor;
+import de.abas.erp.db.schema.sales.QuotationEditor;
+import de.abas.erp.db.schema.sales.SalesOrderEditor;
+
+/**
+ * Accesses the fields product and costCenter of the table rows handled by {@link SalesHelperClass}.
+ *
+ * The accessor of a row class is resolved once and cached, so a row is not type-tested again for
+ * every field access. Fields SalesHelperClass does not handle for a row type throw the same
+ * EventException as before.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+final class RowAccessor {
+
+	private static final String NOT_ACCEPTED = "Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.";
+
+	private static final ClassValue<RowAccessor> ACCESSORS = new ClassValue<RowAccessor>() {
+		@Override
+		protected RowAccessor computeValue(Class<?> type) {
+			return resolve(type);
+		}
+	};
+
+	private static final MethodType PRODUCT_GETTER = MethodType.methodType(SelectablePart.class, SelectableRow.class);
+	private static final MethodType COST_CENTER_GETTER = MethodType.methodType(SelectableAccount.class, SelectableRow.class);
+	private static final MethodType COST_CENTER_SETTER = MethodType.methodType(void.class, SelectableRow.class, CostObject.class);
+
+	private final Class<?> rowType;
+	private final MethodHandle productGetter;
+	private final MethodHandle costCenterGetter;
+	private final MethodHandle costCenterSetter;
+
+	private RowAccessor(Class<?> rowType, MethodHandle productGetter, MethodHandle costCenterGetter, MethodHandle costCenterSetter) {
+		this.rowType = rowType;
+		this.productGetter = productGetter;
+		this.costCenterGetter = costCenterGetter;
+		this.costCenterSetter = costCenterSetter;
+	}
+
+	/**
+	 * Gets the accessor of a table row.
+	 *
+	 * @param row The table row.
+	 * @return The accessor of the row's class.
+	 */
+	static RowAccessor of(SelectableRow row) {
+		return ACCESSORS.get(row.getClass());
+	}
+
+	boolean isQuotationOrSalesOrder() {
+		return rowType == QuotationEditor.Row.class || rowType == SalesOrderEditor.Row.class;
+	}
+
+	boolean isPackingSlipOrInvoice() {
+		return rowType == PackingSlipEditor.Row.class || rowType == InvoiceEditor.Row.class;
+	}
+
+	/**
+	 * Checks whether reading the product is logged as editing the row.
+	 *
+	 * @return True for quotation and invoice rows.
+	 */
+	boolean isEditingLogged() {
+		return rowType == QuotationEditor.Row.class || rowType == InvoiceEditor.Row.class;
+	}
+
+	/**
+	 * Gets the value of the field product.
+	 *
+	 * @param row The table row.
+	 * @return The value of the field product as instance of SelectablePart.
+	 * @throws EventException Thrown if row is not instance of QuotationEditor.Row,
+	 * PackingSlipEditor.Row or InvoiceEditor.Row.
+	 */
+	SelectablePart getProduct(SelectableRow row) throws EventException {
+		if (productGetter == null) {
+			throw new EventException(NOT_ACCEPTED);
+		}
+		try {
+			return (SelectablePart) productGetter.invokeExact(row);
+		}
+		catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Gets the value of the field costCenter.
+	 *
+	 * @param row The table row.
+	 * @return The value of the field costCenter.
+	 * @throws EventException Thrown if row is not instance of PackingSlipEditor.Row or
+	 * InvoiceEditor.Row.
+	 */
+	SelectableAccount getCostCenter(SelectableRow row) throws EventException {
+		if (costCenterGetter == null) {
+			throw new EventException(NOT_ACCEPTED);
+		}
+		try {
+			return (SelectableAccount) costCenterGetter.invokeExact(row);
+		}
+		catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Sets the field costCenter.
+	 *
+	 * @param row The table row.
+	 * @param costObject The CostObject instance to set the field costCenter.
+	 * @throws EventException Thrown if row is not instance of PackingSlipEditor.Row or
+	 * InvoiceEditor.Row.
+	 */
+	void setCostCenter(SelectableRow row, CostObject costObject) throws EventException {
+		if (costCenterSetter == null) {
+			throw new EventException(NOT_ACCEPTED);
+		}
+		try {
+			costCenterSetter.invokeExact(row, costObject);
+		}
+		catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Resolves the accessor of a row class. The product is read from quotation, packing slip and
+	 * invoice rows, the cost center only from packing slip and invoice rows.
+	 *
+	 * @param type The row class.
+	 * @return The accessor.
+	 */
+	private static RowAccessor resolve(Class<?> type) {
+		if (QuotationEditor.Row.class.isAssignableFrom(type)) {
+			return new RowAccessor(QuotationEditor.Row.class, getter(QuotationEditor.Row.class, "getProduct", PRODUCT_GETTER), null, null);
+		}
+		if (SalesOrderEditor.Row.class.isAssignableFrom(type)) {
+			return new RowAccessor(SalesOrderEditor.Row.class, null, null, null);
+		}
+		if (PackingSlipEditor.Row.class.isAssignableFrom(type)) {
+			return withCostCenter(PackingSlipEditor.Row.class);
+		}
+		if (InvoiceEditor.Row.class.isAssignableFrom(type)) {
+			return withCostCenter(InvoiceEditor.Row.class);
+		}
+		return new RowAccessor(null, null, null, null);
+	}
+
+	private static RowAccessor withCostCenter(Class<?> rowType) {
+		return new RowAccessor(rowType, getter(rowType, "getProduct", PRODUCT_GETTER), getter(rowType, "getCostCenter", COST_CENTER_GETTER),
+				costCenterSetter(rowType));
+	}
+
+	private static MethodHandle getter(Class<?> rowType, String name, MethodType type) {
+		try {
+			return MethodHandles.publicLookup().unreflect(rowType.getMethod(name)).asType(type);
+		}
+		catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new RuntimeException("Cannot access " + rowType.getName() + "." + name + "()", e);
+		}
+	}
+
+	private static MethodHandle costCenterSetter(Class<?> rowType) {
+		for (final Method method : rowType.getMethods()) {
+			if (method.getName().equals("setCostCenter") && method.getParameterTypes().length == 1
+					&& method.getParameterTypes()[0].isAssignableFrom(CostObject.class)) {
+				try {
+					return MethodHandles.publicLookup().unreflect(method).asType(COST_CENTER_SETTER);
+				}
+				catch (final IllegalAccessException e) {
+					throw new RuntimeException("Cannot access " + rowType.getName() + ".setCostCenter()", e);
+				}
+			}
+		}
+		throw new RuntimeException("No setCostCenter() accepting a CostObject in " + rowType.getName());
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new RuntimeException(e);
+	}
+
+}
@@ -1,5 +1,7 @@
 package de.abas.examples.abstractclass;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import de.abas.erp.axi.event.EventException;
@@ -20,6 +22,8 @@ import de.abas.erp.db.schema.sales.SalesOrderEditor;
 import de.abas.erp.db.selection.Conditions;
 import de.abas.erp.db.selection.SelectionBuilder;
 import de.abas.erp.db.util.QueryUtil;
+import de.abas.examples.common.LookupCache;
+import de.abas.examples.common.ProductPrefetcher;
 
 /**
  * This class is a helper class to randomly assign cost objects to table rows of packing slips and
@@ -31,6 +35,15 @@ import de.abas.erp.db.util.QueryUtil;
  */
 public class SalesHelperClass {
 
+	// cost objects created or deleted in other sessions are noticed after this time, AJO does not tell about their commits
+	private static final long COST_OBJECT_TTL_MILLIS = 60000;
+
+	// cost objects by idno, including the ones which do not exist, for the database context below
+	private final LookupCache<String, CostObject> costObjects = new LookupCache<String, CostObject>(COST_OBJECT_TTL_MILLIS);
+	private DbContext costObjectContext;
+	// products of the rows passed to prefetchProducts(), null if no rows were prefetched
+	private ProductPrefetcher productPrefetcher;
+
 	/**
 	 * This method is used in the static block to checks whether the field costCenter is available.
 	 * In order to be able to use this method in the static block this method has to be static, too.
@@ -74,6 +87,27 @@ public class SalesHelperClass {
 		defineCostObjectForPackingSlipOrInvoice(ctx, row, index);
 	}
 
+	/**
+	 * Loads the procure mode of all products referenced by the packing slip or invoice rows in as
+	 * few selections as possible. Call this before {@link #handleRow(DbContext, SelectableRow, int)}
+	 * so that the rows do not load their products one by one.
+	 * 
+	 * @param ctx The database context.
+	 * @param rows All table rows which are handled afterwards.
+	 * @throws EventException Thrown if the product of a row cannot be read.
+	 */
+	public void prefetchProducts(DbContext ctx, List<SelectableRow> rows) throws EventException {
+		final List<SelectablePart> parts = new ArrayList<SelectablePart>(rows.size());
+		for (final SelectableRow row : rows) {
+			final RowAccessor rowAccessor = RowAccessor.of(row);
+			if (rowAccessor.isPackingSlipOrInvoice()) {
+				parts.add(rowAccessor.getProduct(row));
+			}
+		}
+		productPrefetcher = new ProductPrefetcher(ctx, "procureMode");
+		productPrefetcher.prefetch(parts);
+	}
+
 	/**
 	 * Creates a new cost object 100003 if it does not already exist.
 	 * 
@@ -113,6 +147,8 @@ public class SalesHelperClass {
 		costObjectEditor.setDescrOperLang(descrOperLang);
 		costObjectEditor.commit();
 		final CostObject newCostObject = costObjectEditor.objectId();
+		// replaces the cached result which says that the cost object does not exist
+		costObjects.put(idno, newCostObject);
 
 		return newCostObject;
 	}
@@ -128,7 +164,7 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private void defineCostObjectForPackingSlipOrInvoice(DbContext ctx, SelectableRow row, int index) throws EventException {
-		if ((row instanceof PackingSlipEditor.Row) || (row instanceof InvoiceEditor.Row)) {
+		if (RowAccessor.of(row).isPackingSlipOrInvoice()) {
 			final SelectablePart selectablePart = getPart(ctx, row);
 			defineCostObjectForProduct(ctx, selectablePart, row);
 			outputCostObjectForSupplementaryItem(ctx, selectablePart, row);
@@ -151,7 +187,7 @@ public class SalesHelperClass {
 	 */
 	private void defineCostObjectForProduct(DbContext ctx, SelectablePart selectablePart, SelectableRow row) throws EventException {
 		if (selectablePart instanceof Product) {
-			final Product product = (Product) selectablePart;
+			final Product product = getPrefetchedProduct((Product) selectablePart);
 			final SelectableAccount costCenter = getCostCenter(row);
 			if (costCenter == null) {
 				// gets procure mode
@@ -180,17 +216,7 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private SelectableAccount getCostCenter(SelectableRow row) throws EventException {
-		SelectableAccount costCenter = null;
-		if (row instanceof PackingSlipEditor.Row) {
-			costCenter = ((PackingSlipEditor.Row) row).getCostCenter();
-		}
-		else if (row instanceof InvoiceEditor.Row) {
-			costCenter = ((InvoiceEditor.Row) row).getCostCenter();
-		}
-		else {
-			throw new EventException("Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.");
-		}
-		return costCenter;
+		return RowAccessor.of(row).getCostCenter(row);
 	}
 
 	/**
@@ -204,7 +230,7 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private SelectablePart getPart(DbContext ctx, SelectableRow row) throws EventException {
-		if ((row instanceof PackingSlipEditor.Row) || (row instanceof InvoiceEditor.Row)) {
+		if (RowAccessor.of(row).isPackingSlipOrInvoice()) {
 			return getPart(ctx, row, -1);
 		}
 		throw new EventException("Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.");
@@ -222,36 +248,65 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private SelectablePart getPart(DbContext ctx, SelectableRow row, int index) throws EventException {
-		SelectablePart selectablePart;
-		if (row instanceof QuotationEditor.Row) {
-			ctx.out().println("Row" + index + " ->editing quotationRow");
-			selectablePart = ((QuotationEditor.Row) row).getProduct();
-		}
-		else if (row instanceof InvoiceEditor.Row) {
+		final RowAccessor rowAccessor = RowAccessor.of(row);
+		if (rowAccessor.isEditingLogged()) {
 			ctx.out().println("Row" + index + " ->editing quotationRow");
-			selectablePart = ((InvoiceEditor.Row) row).getProduct();
 		}
-		else if (row instanceof PackingSlipEditor.Row) {
-			selectablePart = ((PackingSlipEditor.Row) row).getProduct();
-		}
-		else if (row instanceof InvoiceEditor.Row) {
-			selectablePart = ((InvoiceEditor.Row) row).getProduct();
-		}
-		else {
-			throw new EventException("Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.");
+		return rowAccessor.getProduct(row);
+	}
+
+	/**
+	 * Gets the prefetched instance of a product if there is one.
+	 * 
+	 * @param product The product referenced by the current table row.
+	 * @return The prefetched product or the referenced product if it was not prefetched.
+	 */
+	private Product getPrefetchedProduct(Product product) {
+		if (productPrefetcher != null) {
+			final Product prefetchedProduct = productPrefetcher.get(product);
+			if (prefetchedProduct != null) {
+				return prefetchedProduct;
+			}
 		}
-		return selectablePart;
+		return product;
 	}
 
 	/**
 	 * Gets the cost object with the specified idno.
 	 * 
+	 * The cost object is only selected once per idno and database context, all further rows use the
+	 * cached result for up to a minute. Concurrent requests for the same idno share one selection.
+	 * 
 	 * @param dbContext The database context.
 	 * @param idno The idno of the cost object to select.
 	 * @return The instance of CostObject with the specified idno or null if no such CostObject
 	 * instance exists.
 	 */
-	private CostObject getSelectedCostObject(DbContext dbContext, String idno) {
+	private CostObject getSelectedCostObject(final DbContext dbContext, String idno) {
+		synchronized (costObjects) {
+			if (costObjectContext != dbContext) {
+				// cost objects are bound to the context which selected them
+				costObjects.invalidateAll();
+				costObjectContext = dbContext;
+			}
+		}
+		return costObjects.get(idno, new LookupCache.Loader<String, CostObject>() {
+			@Override
+			public CostObject load(String key) {
+				return selectCostObject(dbContext, key);
+			}
+		});
+	}
+
+	/**
+	 * Selects the cost object with the specified idno.
+	 * 
+	 * @param dbContext The database context.
+	 * @param idno The idno of the cost object to select.
+	 * @return The instance of CostObject with the specified idno or null if no such CostObject
+	 * instance exists.
+	 */
+	private CostObject selectCostObject(DbContext dbContext, String idno) {
 		final SelectionBuilder<CostObject> selectionBuilder = SelectionBuilder.create(CostObject.class);
 		selectionBuilder.add(Conditions.eq(CostObject.META.idno, idno));
 		final CostObject costObject = QueryUtil.getFirst(dbContext, selectionBuilder.build());
@@ -302,7 +357,7 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private void outputInfoMessageForQuotationOrSalesOrder(DbContext ctx, SelectableRow row, int index) throws EventException {
-		if ((row instanceof QuotationEditor.Row) || (row instanceof SalesOrderEditor.Row)) {
+		if (RowAccessor.of(row).isQuotationOrSalesOrder()) {
 			final SelectablePart selectablePart = getPart(ctx, row, index);
 			if (selectablePart instanceof Product) {
 				ctx.out().println("cost center Product");
@@ -354,15 +409,7 @@ public class SalesHelperClass {
 	 * InvoiceEditor.Row.
 	 */
 	private void setCostCenter(SelectableRow row, CostObject costObject) throws EventException {
-		if (row instanceof PackingSlipEditor.Row) {
-			((PackingSlipEditor.Row) row).setCostCenter(costObject);
-		}
-		else if (row instanceof InvoiceEditor.Row) {
-			((InvoiceEditor.Row) row).setCostCenter(costObject);
-		}
-		else {
-			throw new EventException("Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.");
-		}
+		RowAccessor.of(row).setCostCenter(row, costObject);
 	}
 
 	/**
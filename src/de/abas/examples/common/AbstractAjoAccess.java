@@ -50,32 +50,35 @@ public abstract class AbstractAjoAccess implements ContextRunnable {
 
 	// Initialize DbContext
 	private DbContext dbContext = null;
+	private DbContextPool dbContextPool = null;
+	private MessageListener defaultMessageListener = null;
 	private ContextMode mode = ContextMode.UNDEFINED;
 
 	/**
 	 * Adds a default message listener. Gets all text, status and error messages.
 	 */
 	public void addDefaultMessageListener() {
-		getDbContext().addMessageListener(new MessageListener() {
+		defaultMessageListener = new MessageListener() {
 			// Displays all text, status and error messages
 			@Override
 			public void receiveMessage(DbMessage message) {
 				getDbContext().out().println("|" + message + "|");
 			}
 
-		});
+		};
+		getDbContext().addMessageListener(defaultMessageListener);
 	}
 
 	/**
-	 * Gets the database context. Create a client context if dbContext == null
+	 * Gets the database context. Borrows a client context from the shared pool if dbContext ==
+	 * null
 	 *
 	 * @return The database context.
 	 */
 	public DbContext getDbContext() {
 		if (dbContext == null) {
-			dbContext =
-					connectionProvider.createDbContext(this.getClass()
-							.getSimpleName());
+			dbContextPool = DbContextPool.forConnection(connectionProvider, getClass().getSimpleName());
+			dbContext = dbContextPool.borrow();
 			mode = ContextMode.CLIENT_MODE;
 			if (connectionProvider.edpLog) {
 				enableLogging();
@@ -136,14 +139,19 @@ public abstract class AbstractAjoAccess implements ContextRunnable {
 	}
 
 	/**
-	 * Runs program in client mode. Creates client context if dbContext==null
+	 * Runs program in client mode. Borrows client context if dbContext==null and gives it back to
+	 * the pool afterwards.
 	 *
 	 * @param args
 	 */
 	public final void runClientProgram(String[] args) {
-		run(args);
-		disableLogging();
-		getDbContext().close();
+		try {
+			run(args);
+		}
+		finally {
+			disableLogging();
+			releaseDbContext();
+		}
 	}
 
 	// server access: get server context. Initialize mode
@@ -161,6 +169,23 @@ public abstract class AbstractAjoAccess implements ContextRunnable {
 		return run(args);
 	}
 
+	/**
+	 * Gives the client context back to the pool. The default message listener is removed, so the
+	 * next borrower does not get this instance's output.
+	 */
+	private void releaseDbContext() {
+		if (dbContextPool != null && dbContext != null) {
+			if (defaultMessageListener != null) {
+				dbContext.removeMessageListener(defaultMessageListener);
+				defaultMessageListener = null;
+			}
+			dbContextPool.release(dbContext);
+			dbContext = null;
+			dbContextPool = null;
+			mode = ContextMode.UNDEFINED;
+		}
+	}
+
 	/**
 	 * Disables EDP logging
 	 */
@@ -0,0 +1,74 @@
+package de.abas.examples.common;
+
+import de.abas.ceks.jedp.EDPSession;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.util.LegacyUtil;
+
+/**
+ * Creates client contexts using the connection data of a {@link ConnectionProvider}.
+ *
+ * @author abas Software AG
+ *
+ */
+public class ClientContextFactory implements DbContextFactory {
+
+	private final ConnectionProvider connectionProvider;
+	private final String name;
+
+	/**
+	 * Creates a factory for client contexts.
+	 *
+	 * @param connectionProvider The connection data to use.
+	 * @param name The name of the client contexts as shown in the ERP.
+	 */
+	public ClientContextFactory(ConnectionProvider connectionProvider, String name) {
+		this.connectionProvider = connectionProvider;
+		this.name = name;
+	}
+
+	/**
+	 * Creates a factory for client contexts whose connection data is not read from
+	 * ajo-access.properties. Subclasses have to override {@link #create()}.
+	 *
+	 * @param name The name of the client contexts as shown in the ERP.
+	 */
+	protected ClientContextFactory(String name) {
+		this(null, name);
+	}
+
+	/**
+	 * Returns the name of the client contexts as shown in the ERP.
+	 *
+	 * @return The name.
+	 */
+	protected String getName() {
+		return name;
+	}
+
+	@Override
+	public DbContext create() {
+		return connectionProvider.createDbContext(name);
+	}
+
+	@Override
+	public boolean isValid(DbContext dbContext) {
+		try {
+			final EDPSession session = LegacyUtil.getSession(dbContext);
+			return session != null && session.isConnected();
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void destroy(DbContext dbContext) {
+		try {
+			dbContext.close();
+		}
+		catch (RuntimeException e) {
+			// the connection is already gone, nothing left to release
+		}
+	}
+
+}
@@ -0,0 +1,288 @@
+package de.abas.examples.common;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable connection data of one connection profile in ajo-access.properties.
+ *
+ * The file is parsed once per process and only parsed again if its modification time or size
+ * changes. Besides the default entries (hostname, mandant, ...) the file may contain named
+ * profiles overriding single entries, e.g. profile.test.mandant=/path/to/test/client.
+ *
+ * @author abas Software AG
+ *
+ */
+public final class ConnectionConfig {
+
+	/**
+	 * Name of the profile made of the entries without profile prefix.
+	 */
+	public static final String DEFAULT_PROFILE = "default";
+
+	private static final String CONFIG_FILE_NAME = "ajo-access.properties";
+	private static final String PROFILE_PREFIX = "profile.";
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * The parsed content of the configuration file at one point in time.
+	 */
+	private static final class Snapshot {
+		private final long lastModified;
+		private final long length;
+		private final Map<String, String> entries;
+		private final ConcurrentMap<String, ConnectionConfig> configs = new ConcurrentHashMap<String, ConnectionConfig>();
+		private volatile long checkedAt;
+
+		private Snapshot(long lastModified, long length, Map<String, String> entries) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.entries = entries;
+			checkedAt = System.currentTimeMillis();
+		}
+	}
+
+	private static final Object RELOAD_LOCK = new Object();
+	private static volatile Snapshot snapshot = null;
+
+	/**
+	 * Gets the connection data of the default profile.
+	 *
+	 * @return The connection data.
+	 */
+	public static ConnectionConfig getDefault() {
+		return forProfile(DEFAULT_PROFILE);
+	}
+
+	/**
+	 * Gets the connection data of a profile. Entries not defined for the profile are taken from
+	 * the default profile.
+	 *
+	 * @param profile The profile name.
+	 * @return The connection data.
+	 */
+	public static ConnectionConfig forProfile(String profile) {
+		final Snapshot current = currentSnapshot();
+		ConnectionConfig config = current.configs.get(profile);
+		if (config == null) {
+			config = new ConnectionConfig(profile, current.entries);
+			final ConnectionConfig existing = current.configs.putIfAbsent(profile, config);
+			if (existing != null) {
+				config = existing;
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * Gets the names of all profiles defined in the configuration file.
+	 *
+	 * @return The profile names including the default profile.
+	 */
+	public static Set<String> getProfileNames() {
+		final Set<String> profiles = new TreeSet<String>();
+		profiles.add(DEFAULT_PROFILE);
+		for (String key : currentSnapshot().entries.keySet()) {
+			if (key.startsWith(PROFILE_PREFIX)) {
+				final int end = key.indexOf('.', PROFILE_PREFIX.length());
+				if (end > 0) {
+					profiles.add(key.substring(PROFILE_PREFIX.length(), end));
+				}
+			}
+		}
+		return profiles;
+	}
+
+	/**
+	 * Returns the current snapshot, reloading the configuration file if it changed since it was
+	 * last parsed. The file is checked at most once per CHECK_INTERVAL_MILLIS.
+	 *
+	 * @return The current snapshot.
+	 */
+	private static Snapshot currentSnapshot() {
+		Snapshot current = snapshot;
+		final long now = System.currentTimeMillis();
+		if (current != null && now - current.checkedAt < CHECK_INTERVAL_MILLIS) {
+			return current;
+		}
+		final File configFile = new File(CONFIG_FILE_NAME).getAbsoluteFile();
+		synchronized (RELOAD_LOCK) {
+			current = snapshot;
+			final long lastModified = configFile.lastModified();
+			final long length = configFile.length();
+			if (current != null && current.lastModified == lastModified && current.length == length) {
+				current.checkedAt = now;
+				return current;
+			}
+			current = new Snapshot(lastModified, length, readEntries(configFile));
+			snapshot = current;
+			return current;
+		}
+	}
+
+	/**
+	 * Reads all entries of the configuration file.
+	 *
+	 * @param configFile The configuration file.
+	 * @return The entries.
+	 */
+	private static Map<String, String> readEntries(File configFile) {
+		final Properties pr = new Properties();
+		try (Reader reader = new FileReader(configFile)) {
+			pr.load(reader);
+		}
+		catch (FileNotFoundException e) {
+			throw new RuntimeException("Could not find configuration file " + configFile.getAbsolutePath());
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not load configuration file " + configFile.getAbsolutePath());
+		}
+		final Map<String, String> entries = new HashMap<String, String>();
+		for (String key : pr.stringPropertyNames()) {
+			entries.put(key, pr.getProperty(key));
+		}
+		return Collections.unmodifiableMap(entries);
+	}
+
+	private final String profile;
+	private final String hostname;
+	private final String mandant;
+	private final String password;
+	private final int port;
+	private final boolean edpLog;
+	private final int poolMinSize;
+	private final int poolMaxSize;
+	private final long poolMaxIdleMillis;
+	private final long poolMaxLifetimeMillis;
+	private final long poolBorrowTimeoutMillis;
+
+	private ConnectionConfig(String profile, Map<String, String> entries) {
+		if (!DEFAULT_PROFILE.equals(profile) && !isProfileDefined(profile, entries)) {
+			throw new RuntimeException("Connection profile " + profile + " is not defined in configuration file "
+					+ new File(CONFIG_FILE_NAME).getAbsolutePath());
+		}
+		this.profile = profile;
+		hostname = get(entries, "hostname", null);
+		mandant = get(entries, "mandant", null);
+		port = Integer.parseInt(get(entries, "port", "6550"));
+		password = get(entries, "password", null);
+		edpLog = Boolean.parseBoolean(get(entries, "edpLog", "false"));
+		poolMinSize = Integer.parseInt(get(entries, "pool.minSize", "0"));
+		poolMaxSize = Integer.parseInt(get(entries, "pool.maxSize", "4"));
+		poolMaxIdleMillis = Long.parseLong(get(entries, "pool.maxIdleMillis", "300000"));
+		poolMaxLifetimeMillis = Long.parseLong(get(entries, "pool.maxLifetimeMillis", "3600000"));
+		poolBorrowTimeoutMillis = Long.parseLong(get(entries, "pool.borrowTimeoutMillis", "30000"));
+	}
+
+	/**
+	 * Checks whether the entries contain at least one entry for the profile.
+	 *
+	 * @param profile The profile name.
+	 * @param entries The entries of the configuration file.
+	 * @return True if the profile is defined, else false.
+	 */
+	private static boolean isProfileDefined(String profile, Map<String, String> entries) {
+		final String prefix = PROFILE_PREFIX + profile + ".";
+		for (String key : entries.keySet()) {
+			if (key.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets an entry of this profile, falling back to the default profile's entry.
+	 *
+	 * @param entries The entries of the configuration file.
+	 * @param key The key without profile prefix.
+	 * @param defaultValue The value used if neither this nor the default profile defines the key.
+	 * @return The value.
+	 */
+	private String get(Map<String, String> entries, String key, String defaultValue) {
+		String value = entries.get(PROFILE_PREFIX + profile + "." + key);
+		if (value == null) {
+			value = entries.get(key);
+		}
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Returns the key identifying the ERP client. Client contexts are only interchangeable if their
+	 * keys are equal.
+	 *
+	 * @return The key built from host name, port and client.
+	 */
+	public String getConnectionKey() {
+		return hostname + ":" + port + "/" + mandant;
+	}
+
+	/**
+	 * Returns the key identifying the pooled contexts of this profile. Pooled contexts are only
+	 * interchangeable if their keys are equal, i.e. if they belong to the same profile and use the
+	 * same ERP client, login and pool settings. The key contains the login, so it must not be
+	 * shown in messages.
+	 *
+	 * @return The key.
+	 */
+	public String getPoolKey() {
+		return profile + "/" + getConnectionKey() + "/" + password + "/" + poolMinSize + "-"
+				+ poolMaxSize + "/" + poolMaxIdleMillis + "/" + poolMaxLifetimeMillis + "/" + poolBorrowTimeoutMillis;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public String getHostname() {
+		return hostname;
+	}
+
+	public String getMandant() {
+		return mandant;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public boolean isEdpLog() {
+		return edpLog;
+	}
+
+	public int getPoolMinSize() {
+		return poolMinSize;
+	}
+
+	public int getPoolMaxSize() {
+		return poolMaxSize;
+	}
+
+	public long getPoolMaxIdleMillis() {
+		return poolMaxIdleMillis;
+	}
+
+	public long getPoolMaxLifetimeMillis() {
+		return poolMaxLifetimeMillis;
+	}
+
+	public long getPoolBorrowTimeoutMillis() {
+		return poolBorrowTimeoutMillis;
+	}
+
+}
@@ -1,11 +1,5 @@
 package de.abas.examples.common;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.Properties;
-
 import de.abas.erp.db.DbContext;
 import de.abas.erp.db.util.ContextHelper;
 
@@ -16,7 +10,20 @@ public class ConnectionProvider {
 	public int port;
 	public boolean edpLog;
 
+	private final String profile;
+	private ConnectionConfig config;
+
 	public ConnectionProvider() {
+		this(ConnectionConfig.DEFAULT_PROFILE);
+	}
+
+	/**
+	 * Creates a provider for a named connection profile in ajo-access.properties.
+	 *
+	 * @param profile The profile name.
+	 */
+	public ConnectionProvider(String profile) {
+		this.profile = profile;
 	}
 
 	public DbContext createDbContext(String name) {
@@ -25,24 +32,36 @@ public class ConnectionProvider {
 				name);
 	}
 
+	/**
+	 * Returns the key identifying the ERP client this provider connects to. Client contexts are
+	 * only interchangeable if their keys are equal.
+	 *
+	 * @return The key built from host name, port and client.
+	 */
+	public String getConnectionKey() {
+		return getConfig().getConnectionKey();
+	}
+
+	/**
+	 * Returns the current connection data of this provider's profile.
+	 *
+	 * @return The connection data.
+	 */
+	public ConnectionConfig getConfig() {
+		loadProperties();
+		return config;
+	}
+
 	private void loadProperties() {
-		Properties pr = new Properties();
-		File configFile = new File("ajo-access.properties");
-		try {
-			pr.load(new FileReader(configFile));
-			hostname = pr.getProperty("hostname");
-			mandant = pr.getProperty("mandant");
-			port = Integer.parseInt(pr.getProperty("port", "6550"));
-			password = pr.getProperty("password");
-			edpLog = Boolean.parseBoolean(pr.getProperty("edpLog", "false"));
-		}
-		catch (FileNotFoundException e) {
-			throw new RuntimeException("Could not find configuration file "
-					+ configFile.getAbsolutePath());
-		}
-		catch (IOException e) {
-			throw new RuntimeException("Could not load configuration file "
-					+ configFile.getAbsolutePath());
+		// the file is only parsed again if it changed
+		final ConnectionConfig current = ConnectionConfig.forProfile(profile);
+		if (current != config) {
+			config = current;
+			hostname = current.getHostname();
+			mandant = current.getMandant();
+			port = current.getPort();
+			password = current.getPassword();
+			edpLog = current.isEdpLog();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package de.abas.examples.common;
+
+import de.abas.erp.db.DbContext;
+
+/**
+ * Creates, checks and disposes the database contexts managed by a {@link DbContextPool}.
+ *
+ * @author abas Software AG
+ *
+ */
+public interface DbContextFactory {
+
+	/**
+	 * Creates a new database context. Called outside of the pool's lock, so it may take as long as
+	 * the EDP login needs.
+	 *
+	 * @return The new database context.
+	 */
+	public DbContext create();
+
+	/**
+	 * Checks whether a pooled database context can still be used. Called before an idle context is
+	 * handed out again.
+	 *
+	 * @param dbContext The database context to check.
+	 * @return True if the context is usable, else false.
+	 */
+	public boolean isValid(DbContext dbContext);
+
+	/**
+	 * Disposes a database context that is removed from the pool.
+	 *
+	 * @param dbContext The database context to dispose.
+	 */
+	public void destroy(DbContext dbContext);
+
+}
@@ -0,0 +1,547 @@
+package de.abas.examples.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.abas.erp.db.DbContext;
+
+/**
+ * A bounded, thread-safe pool of database contexts.
+ *
+ * Creating a client context means a full EDP login. The pool keeps released contexts open and hands
+ * them out again, so only the first borrower per context pays for the login. Idle contexts are
+ * checked before they are handed out and are closed if they were idle or open for too long.
+ *
+ * @author abas Software AG
+ *
+ */
+public class DbContextPool {
+
+	/**
+	 * Pool settings. The defaults are used for every setting not defined in ajo-access.properties.
+	 *
+	 * @author abas Software AG
+	 *
+	 */
+	public static class Settings {
+		public int minSize = 0;
+		public int maxSize = 4;
+		public long maxIdleMillis = 300000;
+		public long maxLifetimeMillis = 3600000;
+		public long borrowTimeoutMillis = 30000;
+		public long evictionIntervalMillis = 60000;
+	}
+
+	/**
+	 * Snapshot of the pool's counters.
+	 *
+	 * @author abas Software AG
+	 *
+	 */
+	public static class Statistics {
+		public long borrowCount;
+		public long saturatedBorrowCount;
+		public long totalBorrowWaitNanos;
+		public long maxBorrowWaitNanos;
+		public long createdCount;
+		public long destroyedCount;
+		public int idle;
+		public int active;
+
+		/**
+		 * Returns the average time a borrower had to wait for a context.
+		 *
+		 * @return The average borrow wait time in milliseconds.
+		 */
+		public double getAverageBorrowWaitMillis() {
+			return borrowCount == 0 ? 0 : (double) totalBorrowWaitNanos / borrowCount / 1000000;
+		}
+
+		@Override
+		public String toString() {
+			return "borrowed: " + borrowCount + ", saturated: " + saturatedBorrowCount + ", avg wait: "
+					+ String.format("%.2f", getAverageBorrowWaitMillis()) + "ms, max wait: "
+					+ (maxBorrowWaitNanos / 1000000) + "ms, created: " + createdCount + ", destroyed: "
+					+ destroyedCount + ", idle: " + idle + ", active: " + active;
+		}
+	}
+
+	/**
+	 * A database context together with its pool bookkeeping.
+	 */
+	private static class PooledContext {
+		private final DbContext dbContext;
+		private final long createdAt;
+		private long releasedAt;
+
+		private PooledContext(DbContext dbContext, long now) {
+			this.dbContext = dbContext;
+			createdAt = now;
+			releasedAt = now;
+		}
+	}
+
+	private static final ConcurrentMap<String, DbContextPool> POOLS = new ConcurrentHashMap<String, DbContextPool>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("DbContextPool-shutdown") {
+			@Override
+			public void run() {
+				for (DbContextPool pool : POOLS.values()) {
+					pool.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the shared pool of the provider's connection profile with contexts named "AJO-Pool".
+	 *
+	 * @param connectionProvider The connection data.
+	 * @return The shared pool.
+	 * @see #forConnection(ConnectionProvider, String)
+	 */
+	public static DbContextPool forConnection(ConnectionProvider connectionProvider) {
+		return forConnection(connectionProvider, "AJO-Pool");
+	}
+
+	/**
+	 * Returns the shared pool of the provider's connection profile. All callers using the same
+	 * profile, login and context name share one pool, so contexts logged in with another login are
+	 * never handed out.
+	 *
+	 * The pool settings are read from the profile when the pool is created. If the connection data
+	 * of the profile changes in ajo-access.properties, a new pool is created with the new data and
+	 * settings.
+	 *
+	 * @param connectionProvider The connection data.
+	 * @param contextName The name of the contexts, e.g. the name of the calling class.
+	 * @return The shared pool.
+	 */
+	public static DbContextPool forConnection(ConnectionProvider connectionProvider, String contextName) {
+		final ConnectionConfig config = connectionProvider.getConfig();
+		final String key = contextName + "@" + config.getPoolKey();
+		DbContextPool pool = POOLS.get(key);
+		if (pool == null) {
+			final Settings settings = new Settings();
+			settings.minSize = config.getPoolMinSize();
+			settings.maxSize = config.getPoolMaxSize();
+			settings.maxIdleMillis = config.getPoolMaxIdleMillis();
+			settings.maxLifetimeMillis = config.getPoolMaxLifetimeMillis();
+			settings.borrowTimeoutMillis = config.getPoolBorrowTimeoutMillis();
+			final DbContextPool newPool = new DbContextPool(contextName + "@" + config.getProfile(),
+					new ClientContextFactory(connectionProvider, contextName), settings);
+			pool = POOLS.putIfAbsent(key, newPool);
+			if (pool == null) {
+				pool = newPool;
+				pool.startEvictor();
+			}
+		}
+		return pool;
+	}
+
+	private final String name;
+	private final DbContextFactory factory;
+	private final Settings settings;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition released = lock.newCondition();
+	private final ArrayDeque<PooledContext> idle = new ArrayDeque<PooledContext>();
+	private final Map<DbContext, PooledContext> borrowed = new IdentityHashMap<DbContext, PooledContext>();
+
+	// idle + borrowed + currently being created
+	private int size = 0;
+	private boolean closed = false;
+	private ScheduledExecutorService evictor = null;
+
+	private long borrowCount = 0;
+	private long saturatedBorrowCount = 0;
+	private long totalBorrowWaitNanos = 0;
+	private long maxBorrowWaitNanos = 0;
+	private long createdCount = 0;
+	private long destroyedCount = 0;
+
+	/**
+	 * Creates a new pool.
+	 *
+	 * @param name The pool's name, used in messages and thread names.
+	 * @param factory The factory creating and checking the contexts.
+	 * @param settings The pool settings.
+	 */
+	public DbContextPool(String name, DbContextFactory factory, Settings settings) {
+		if (settings.maxSize < 1 || settings.minSize < 0 || settings.minSize > settings.maxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min " + settings.minSize + ", max " + settings.maxSize);
+		}
+		this.name = name;
+		this.factory = factory;
+		this.settings = settings;
+	}
+
+	/**
+	 * Borrows a database context. Waits up to the configured borrow timeout if all contexts are in
+	 * use.
+	 *
+	 * @return The database context. Has to be given back by calling {@link #release(DbContext)}.
+	 */
+	public DbContext borrow() {
+		final long start = System.nanoTime();
+		final long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.borrowTimeoutMillis);
+		boolean saturated = false;
+		while (true) {
+			PooledContext candidate = null;
+			boolean create = false;
+			final List<PooledContext> expired = new ArrayList<PooledContext>();
+			lock.lock();
+			try {
+				checkNotClosed();
+				removeExpired(System.currentTimeMillis(), expired);
+				if (!idle.isEmpty()) {
+					// the most recently released context is the least likely to be timed out
+					candidate = idle.pollLast();
+					borrowed.put(candidate.dbContext, candidate);
+				}
+				else if (size < settings.maxSize) {
+					size++;
+					create = true;
+				}
+				else {
+					saturated = true;
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						throw new RuntimeException("Timed out after " + settings.borrowTimeoutMillis
+								+ "ms waiting for a database context of pool " + name);
+					}
+					released.awaitNanos(remaining);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for a database context of pool " + name, e);
+			}
+			finally {
+				lock.unlock();
+				destroyAll(expired);
+			}
+
+			if (create) {
+				candidate = createContext();
+			}
+			else if (candidate != null && !factory.isValid(candidate.dbContext)) {
+				invalidate(candidate.dbContext);
+				candidate = null;
+			}
+			if (candidate != null) {
+				recordBorrow(System.nanoTime() - start, saturated);
+				return candidate.dbContext;
+			}
+		}
+	}
+
+	/**
+	 * Gives a borrowed database context back to the pool.
+	 *
+	 * @param dbContext The database context.
+	 */
+	public void release(DbContext dbContext) {
+		PooledContext pooledContext;
+		boolean destroy = false;
+		lock.lock();
+		try {
+			pooledContext = borrowed.remove(dbContext);
+			if (pooledContext == null) {
+				throw new IllegalStateException("Database context was not borrowed from pool " + name);
+			}
+			final long now = System.currentTimeMillis();
+			if (closed || now - pooledContext.createdAt >= settings.maxLifetimeMillis) {
+				size--;
+				destroy = true;
+			}
+			else {
+				pooledContext.releasedAt = now;
+				idle.addLast(pooledContext);
+			}
+			released.signal();
+		}
+		finally {
+			lock.unlock();
+		}
+		if (destroy) {
+			destroy(pooledContext);
+		}
+	}
+
+	/**
+	 * Removes a borrowed database context from the pool and closes it. Use this instead of
+	 * {@link #release(DbContext)} if the context is known to be broken.
+	 *
+	 * @param dbContext The database context.
+	 */
+	public void invalidate(DbContext dbContext) {
+		PooledContext pooledContext;
+		lock.lock();
+		try {
+			pooledContext = borrowed.remove(dbContext);
+			if (pooledContext == null) {
+				throw new IllegalStateException("Database context was not borrowed from pool " + name);
+			}
+			size--;
+			released.signal();
+		}
+		finally {
+			lock.unlock();
+		}
+		destroy(pooledContext);
+	}
+
+	/**
+	 * Closes all idle contexts which exceeded the maximum idle time or lifetime, keeping at least
+	 * the minimum pool size, and creates new contexts until the minimum pool size is reached.
+	 */
+	public void evict() {
+		final List<PooledContext> expired = new ArrayList<PooledContext>();
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			removeExpired(System.currentTimeMillis(), expired);
+		}
+		finally {
+			lock.unlock();
+		}
+		destroyAll(expired);
+		// reserves one slot at a time, so a failing creation only gives back its own slot
+		while (reserveMissing()) {
+			final PooledContext pooledContext = createContext();
+			release(pooledContext.dbContext);
+		}
+	}
+
+	/**
+	 * Closes the pool and all idle contexts. Contexts still borrowed are closed when they are
+	 * released.
+	 */
+	public void close() {
+		final List<PooledContext> toDestroy;
+		lock.lock();
+		try {
+			closed = true;
+			toDestroy = new ArrayList<PooledContext>(idle);
+			size -= idle.size();
+			idle.clear();
+			released.signalAll();
+			if (evictor != null) {
+				evictor.shutdownNow();
+				evictor = null;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		destroyAll(toDestroy);
+	}
+
+	/**
+	 * Returns a snapshot of the pool's counters.
+	 *
+	 * @return The statistics.
+	 */
+	public Statistics getStatistics() {
+		final Statistics statistics = new Statistics();
+		lock.lock();
+		try {
+			statistics.borrowCount = borrowCount;
+			statistics.saturatedBorrowCount = saturatedBorrowCount;
+			statistics.totalBorrowWaitNanos = totalBorrowWaitNanos;
+			statistics.maxBorrowWaitNanos = maxBorrowWaitNanos;
+			statistics.createdCount = createdCount;
+			statistics.destroyedCount = destroyedCount;
+			statistics.idle = idle.size();
+			statistics.active = borrowed.size();
+		}
+		finally {
+			lock.unlock();
+		}
+		return statistics;
+	}
+
+	/**
+	 * Starts a daemon thread calling {@link #evict()} periodically.
+	 */
+	public void startEvictor() {
+		if (settings.evictionIntervalMillis <= 0) {
+			return;
+		}
+		lock.lock();
+		try {
+			if (closed || evictor != null) {
+				return;
+			}
+			evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					final Thread thread = new Thread(runnable, "DbContextPool-evictor-" + name);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			evictor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						evict();
+					}
+					catch (RuntimeException e) {
+						// the next run tries again
+					}
+				}
+			}, settings.evictionIntervalMillis, settings.evictionIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Throws an exception if the pool is closed.
+	 */
+	private void checkNotClosed() {
+		if (closed) {
+			throw new IllegalStateException("Pool " + name + " is closed");
+		}
+	}
+
+	/**
+	 * Counts one more context in size if the pool is below its minimum size.
+	 *
+	 * @return True if a slot was reserved, the caller has to create the context.
+	 */
+	private boolean reserveMissing() {
+		lock.lock();
+		try {
+			if (closed || size >= settings.minSize) {
+				return false;
+			}
+			size++;
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a new context. The caller must already have counted it in size.
+	 *
+	 * @return The new context, registered as borrowed.
+	 */
+	private PooledContext createContext() {
+		final DbContext dbContext;
+		try {
+			dbContext = factory.create();
+		}
+		catch (RuntimeException e) {
+			lock.lock();
+			try {
+				size--;
+				released.signal();
+			}
+			finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+		final PooledContext pooledContext = new PooledContext(dbContext, System.currentTimeMillis());
+		lock.lock();
+		try {
+			createdCount++;
+			borrowed.put(dbContext, pooledContext);
+		}
+		finally {
+			lock.unlock();
+		}
+		return pooledContext;
+	}
+
+	/**
+	 * Closes a context which is no longer counted in size.
+	 *
+	 * @param pooledContext The context.
+	 */
+	private void destroy(PooledContext pooledContext) {
+		factory.destroy(pooledContext.dbContext);
+		lock.lock();
+		try {
+			destroyedCount++;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes all contexts in the list. Must not be called while holding the lock.
+	 *
+	 * @param pooledContexts The contexts.
+	 */
+	private void destroyAll(List<PooledContext> pooledContexts) {
+		for (PooledContext pooledContext : pooledContexts) {
+			destroy(pooledContext);
+		}
+	}
+
+	/**
+	 * Records the counters of a successful borrow.
+	 *
+	 * @param waitNanos The time the borrower waited.
+	 * @param saturated Whether all contexts were in use when the borrower arrived.
+	 */
+	private void recordBorrow(long waitNanos, boolean saturated) {
+		lock.lock();
+		try {
+			borrowCount++;
+			if (saturated) {
+				saturatedBorrowCount++;
+			}
+			totalBorrowWaitNanos += waitNanos;
+			maxBorrowWaitNanos = Math.max(maxBorrowWaitNanos, waitNanos);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves idle contexts exceeding the maximum lifetime or (above the minimum pool size) the
+	 * maximum idle time to the given list. Must be called while holding the lock.
+	 *
+	 * @param now The current time in milliseconds.
+	 * @param expired The list the expired contexts are added to.
+	 */
+	private void removeExpired(long now, List<PooledContext> expired) {
+		final Iterator<PooledContext> iterator = idle.iterator();
+		while (iterator.hasNext()) {
+			final PooledContext pooledContext = iterator.next();
+			final boolean tooOld = now - pooledContext.createdAt >= settings.maxLifetimeMillis;
+			final boolean tooLongIdle = now - pooledContext.releasedAt >= settings.maxIdleMillis && size > settings.minSize;
+			if (tooOld || tooLongIdle) {
+				iterator.remove();
+				size--;
+				expired.add(pooledContext);
+			}
+		}
+	}
+
+}
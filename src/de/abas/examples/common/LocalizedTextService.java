@@ -0,0 +1,119 @@
+package de.abas.examples.common;
+
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Looks up the texts of a resource bundle, e.g. LanguageIndependentTexts_de.properties, in the
+ * operating language.
+ *
+ * The bundle is resolved once per locale and each text is parsed once into a {@link TextTemplate}.
+ * Both are kept in concurrent maps, so a lookup neither resolves the bundle again nor locks. Use
+ * {@link #warmUp(Locale)} to parse all texts of a locale before the first lookup, e.g. when a FOP
+ * starts.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class LocalizedTextService {
+
+	/**
+	 * The bundle of one locale with the texts parsed so far.
+	 */
+	private static class Texts {
+		private final ResourceBundle bundle;
+		private final ConcurrentMap<String, TextTemplate> templates = new ConcurrentHashMap<String, TextTemplate>();
+
+		private Texts(ResourceBundle bundle) {
+			this.bundle = bundle;
+		}
+
+		private TextTemplate get(String key) {
+			TextTemplate template = templates.get(key);
+			if (template == null) {
+				// throws a MissingResourceException if the bundle has no such text
+				final TextTemplate newTemplate = new TextTemplate(bundle.getString(key));
+				template = templates.putIfAbsent(key, newTemplate);
+				if (template == null) {
+					template = newTemplate;
+				}
+			}
+			return template;
+		}
+	}
+
+	private final String baseName;
+	private final ClassLoader classLoader;
+	private final ConcurrentMap<Locale, Texts> texts = new ConcurrentHashMap<Locale, Texts>();
+
+	/**
+	 * Creates the service.
+	 *
+	 * @param baseName The base name of the resource bundle, e.g. the fully qualified class name.
+	 * @param classLoader The class loader loading the resource bundle.
+	 */
+	public LocalizedTextService(String baseName, ClassLoader classLoader) {
+		this.baseName = baseName;
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Gets a text and fills it with the parameters.
+	 *
+	 * @param locale The locale, e.g. the operating language.
+	 * @param key The key of the text.
+	 * @param params The parameters for the format specifiers of the text.
+	 * @return The text, the same as String.format() on the text of the bundle returns.
+	 */
+	public String getText(Locale locale, String key, Object... params) {
+		return getTemplate(locale, key).format(params);
+	}
+
+	/**
+	 * Gets the parsed text. Keep the template to fill it for every row of a table.
+	 *
+	 * @param locale The locale, e.g. the operating language.
+	 * @param key The key of the text.
+	 * @return The parsed text.
+	 */
+	public TextTemplate getTemplate(Locale locale, String key) {
+		return texts(locale).get(key);
+	}
+
+	/**
+	 * Resolves the bundle of a locale and parses all its texts.
+	 *
+	 * @param locale The locale, e.g. the operating language.
+	 * @return The number of texts.
+	 */
+	public int warmUp(Locale locale) {
+		final Texts localeTexts = texts(locale);
+		int count = 0;
+		final Enumeration<String> keys = localeTexts.bundle.getKeys();
+		while (keys.hasMoreElements()) {
+			localeTexts.get(keys.nextElement());
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the bundle and the texts parsed so far of a locale.
+	 */
+	private Texts texts(Locale locale) {
+		Texts localeTexts = texts.get(locale);
+		if (localeTexts == null) {
+			final Texts newTexts = new Texts(ResourceBundle.getBundle(baseName, locale, classLoader));
+			localeTexts = texts.putIfAbsent(locale, newTexts);
+			if (localeTexts == null) {
+				localeTexts = newTexts;
+			}
+		}
+		return localeTexts;
+	}
+
+}
@@ -0,0 +1,189 @@
+package de.abas.examples.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache of lookup results, e.g. of objects selected by their idno.
+ *
+ * A lookup is done once per key. Threads requesting a key whose lookup is still running wait for
+ * that lookup instead of starting another one. A lookup returning null is cached as well, so keys
+ * which do not exist are not looked up again until they are invalidated. A lookup throwing an
+ * exception is not cached.
+ *
+ * Changes by others, e.g. objects committed in another session, cannot be noticed by the cache.
+ * If they matter, the cache is created with a time to live, after which a key is looked up again.
+ *
+ * @author abas Software AG
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LookupCache<K, V> {
+
+	/**
+	 * Looks up the value of a key if it is not cached.
+	 *
+	 * @param <K> The type of the keys.
+	 * @param <V> The type of the values.
+	 */
+	public interface Loader<K, V> {
+		/**
+		 * Looks up a value.
+		 *
+		 * @param key The key.
+		 * @return The value or null if there is no value for the key.
+		 */
+		V load(K key);
+	}
+
+	/**
+	 * A lookup and the time it was started.
+	 */
+	private static final class Entry<V> extends FutureTask<V> {
+		private final long createdNanos = System.nanoTime();
+
+		private Entry(Callable<V> callable) {
+			super(callable);
+		}
+	}
+
+	private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+	private final long ttlNanos;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+
+	/**
+	 * Creates a cache whose values are kept until they are invalidated.
+	 */
+	public LookupCache() {
+		this(0);
+	}
+
+	/**
+	 * Creates a cache whose values are looked up again after the time to live.
+	 *
+	 * @param ttlMillis The time to live of a value in milliseconds, 0 to keep the values until they
+	 * are invalidated.
+	 */
+	public LookupCache(long ttlMillis) {
+		if (ttlMillis < 0) {
+			throw new IllegalArgumentException("The time to live must not be negative: " + ttlMillis);
+		}
+		ttlNanos = ttlMillis * 1000000;
+	}
+
+	/**
+	 * Gets the value of a key, looking it up if it is not cached.
+	 *
+	 * @param key The key.
+	 * @param loader The loader used if the key is not cached.
+	 * @return The value or null if there is no value for the key.
+	 */
+	public V get(final K key, final Loader<K, V> loader) {
+		Entry<V> entry = entries.get(key);
+		if (entry != null && ttlNanos > 0 && entry.isDone() && System.nanoTime() - entry.createdNanos >= ttlNanos) {
+			entries.remove(key, entry);
+			entry = null;
+		}
+		if (entry == null) {
+			final Entry<V> lookup = new Entry<V>(new Callable<V>() {
+				@Override
+				public V call() throws Exception {
+					return loader.load(key);
+				}
+			});
+			entry = entries.putIfAbsent(key, lookup);
+			if (entry == null) {
+				entry = lookup;
+				loadCount.incrementAndGet();
+				lookup.run();
+			}
+			else {
+				hitCount.incrementAndGet();
+			}
+		}
+		else {
+			hitCount.incrementAndGet();
+		}
+		return await(key, entry);
+	}
+
+	/**
+	 * Caches a value, e.g. after the object was created.
+	 *
+	 * @param key The key.
+	 * @param value The value, null if there is no value for the key.
+	 */
+	public void put(K key, final V value) {
+		final Entry<V> entry = new Entry<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return value;
+			}
+		});
+		entry.run();
+		entries.put(key, entry);
+	}
+
+	/**
+	 * Removes a key, so it is looked up again on next use.
+	 *
+	 * @param key The key.
+	 */
+	public void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Removes all keys.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of requests answered without a lookup of their own.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups done.
+	 *
+	 * @return The number of lookups.
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	private V await(K key, Entry<V> entry) {
+		try {
+			return entry.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the lookup of " + key, e);
+		}
+		catch (final ExecutionException e) {
+			// failed lookups are not cached, the next request tries again
+			entries.remove(key, entry);
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException("Lookup of " + key + " failed", cause);
+		}
+	}
+
+}
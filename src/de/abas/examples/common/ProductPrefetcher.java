@@ -0,0 +1,139 @@
+package de.abas.examples.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.schema.part.SelectablePart;
+import de.abas.erp.db.selection.Conditions;
+import de.abas.erp.db.selection.SelectionBuilder;
+
+/**
+ * Loads the products referenced by the rows of a table in a few selections instead of one lazy
+ * load per row.
+ *
+ * The distinct products are combined into OR selections of {@link #CHUNK_SIZE} ids each, which
+ * only load the requested fields. Rows can then read the fields from the prefetched products, so
+ * the number of round-trips depends on the number of distinct products, not on the number of
+ * rows.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ProductPrefetcher {
+
+	/**
+	 * Number of products per selection.
+	 */
+	public static final int CHUNK_SIZE = 50;
+
+	private final DbContext ctx;
+	private final String[] fields;
+	private final Map<Id, Product> products = new HashMap<Id, Product>();
+	private int referenceCount = 0;
+	private int selectionCount = 0;
+
+	/**
+	 * Creates the prefetcher.
+	 *
+	 * @param ctx The database context.
+	 * @param fields The product fields to load, e.g. procureMode.
+	 */
+	public ProductPrefetcher(DbContext ctx, String... fields) {
+		this.ctx = ctx;
+		this.fields = new String[fields.length + 1];
+		this.fields[0] = "id";
+		System.arraycopy(fields, 0, this.fields, 1, fields.length);
+	}
+
+	/**
+	 * Loads the products among the parts. Other parts, e.g. supplementary items, and products
+	 * already loaded are skipped.
+	 *
+	 * @param parts The parts referenced by the table rows, including duplicates and null values.
+	 */
+	public void prefetch(Iterable<? extends SelectablePart> parts) {
+		final Set<Id> ids = new LinkedHashSet<Id>();
+		for (final SelectablePart part : parts) {
+			if (part instanceof Product) {
+				referenceCount++;
+				if (!products.containsKey(part.id())) {
+					ids.add(part.id());
+				}
+			}
+		}
+		final List<Id> chunk = new ArrayList<Id>(CHUNK_SIZE);
+		for (final Id id : ids) {
+			chunk.add(id);
+			if (chunk.size() == CHUNK_SIZE) {
+				select(chunk);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			select(chunk);
+		}
+	}
+
+	/**
+	 * Gets the prefetched product referenced by a part.
+	 *
+	 * @param part The part referenced by a table row.
+	 * @return The prefetched product or null if the part is not a prefetched product.
+	 */
+	public Product get(SelectablePart part) {
+		if (part instanceof Product) {
+			return products.get(part.id());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of selections run so far.
+	 *
+	 * @return The number of selections.
+	 */
+	public int getSelectionCount() {
+		return selectionCount;
+	}
+
+	/**
+	 * Returns the number of round-trips saved, i.e. the lazy loads the product references would
+	 * have needed minus the selections run instead.
+	 *
+	 * @return The number of round-trips saved.
+	 */
+	public int getRoundTripsSaved() {
+		return referenceCount - selectionCount;
+	}
+
+	/**
+	 * Selects the products of one chunk of ids.
+	 *
+	 * @param chunk The ids.
+	 */
+	private void select(List<Id> chunk) {
+		final SelectionBuilder<Product> selectionBuilder = SelectionBuilder.create(Product.class);
+		selectionBuilder.setTermConjunction(SelectionBuilder.Conjunction.OR);
+		for (final Id id : chunk) {
+			selectionBuilder.add(Conditions.eq(Product.META.id, id));
+		}
+		final Query<Product> query = ctx.createQuery(selectionBuilder.build());
+		query.setFields(FieldSet.of(fields));
+		query.setLazyLoad(false);
+		for (final Product product : query) {
+			products.put(product.id(), product);
+		}
+		selectionCount++;
+	}
+
+}
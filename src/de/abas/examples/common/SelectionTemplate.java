@@ -0,0 +1,225 @@
+package de.abas.examples.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.abas.erp.db.SelectableObject;
+import de.abas.erp.db.selection.ExpertSelection;
+import de.abas.erp.db.selection.Selection;
+
+/**
+ * An expert selection criteria string with named placeholders, e.g.
+ * <code>"yteam={teamFrom}!{teamTo};@englvar=(Yes)"</code>.
+ *
+ * The criteria string is parsed once when the template is compiled. Binding the placeholders only
+ * joins the fixed parts with the values, so the template can be kept in a constant and bound on
+ * every button press. The last {@link #CACHE_SIZE} selections created are cached by their criteria
+ * string, so binding the same values again does not create a new ExpertSelection.
+ *
+ * The values are inserted as they are, i.e. with {@link String#valueOf(Object)}. Unbound
+ * placeholders are not allowed, null values are inserted as empty strings.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ * @param <T> The type of the selected objects.
+ */
+public final class SelectionTemplate<T extends SelectableObject> {
+
+	/**
+	 * Number of selections cached per template.
+	 */
+	public static final int CACHE_SIZE = 32;
+
+	/**
+	 * The placeholder values of one selection.
+	 */
+	public final class Binding {
+
+		private final String[] values = new String[names.length];
+
+		private Binding() {
+		}
+
+		/**
+		 * Sets the value of a placeholder.
+		 *
+		 * @param name The name of the placeholder.
+		 * @param value The value.
+		 * @return This binding.
+		 */
+		public Binding set(String name, Object value) {
+			values[indexOf(name)] = value == null ? "" : String.valueOf(value);
+			return this;
+		}
+
+		/**
+		 * Returns the criteria string with the values inserted.
+		 *
+		 * @return The criteria string.
+		 */
+		public String criteria() {
+			final StringBuilder criteria = new StringBuilder(literalLength + 16 * placeholders.length);
+			criteria.append(literals[0]);
+			for (int i = 0; i < placeholders.length; i++) {
+				final String value = values[placeholders[i]];
+				if (value == null) {
+					throw new IllegalStateException("Placeholder " + names[placeholders[i]] + " of selection template " + source + " is not bound");
+				}
+				criteria.append(value).append(literals[i + 1]);
+			}
+			return criteria.toString();
+		}
+
+		/**
+		 * Returns the selection for the criteria string with the values inserted.
+		 *
+		 * @return The selection.
+		 */
+		public Selection<T> create() {
+			return selection(criteria());
+		}
+
+	}
+
+	/**
+	 * Parses a criteria string.
+	 *
+	 * @param type The type of the selected objects.
+	 * @param criteria The criteria string, placeholders are written as {name}.
+	 * @param <T> The type of the selected objects.
+	 * @return The template.
+	 */
+	public static <T extends SelectableObject> SelectionTemplate<T> compile(Class<T> type, String criteria) {
+		return new SelectionTemplate<T>(type, criteria);
+	}
+
+	private final Class<T> type;
+	private final String source;
+	// literals[i] is followed by the placeholder placeholders[i], the last literal ends the string
+	private final String[] literals;
+	private final int[] placeholders;
+	private final String[] names;
+	private final int literalLength;
+
+	private final Map<String, Selection<T>> cache = new LinkedHashMap<String, Selection<T>>(CACHE_SIZE * 2, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Selection<T>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	private long createCount = 0;
+	private long hitCount = 0;
+
+	private SelectionTemplate(Class<T> type, String criteria) {
+		this.type = type;
+		source = criteria;
+		final List<String> literalList = new ArrayList<String>();
+		final List<Integer> placeholderList = new ArrayList<Integer>();
+		final List<String> nameList = new ArrayList<String>();
+		int start = 0;
+		int open = criteria.indexOf('{');
+		while (open >= 0) {
+			final int close = criteria.indexOf('}', open);
+			if (close < 0) {
+				throw new IllegalArgumentException("Unclosed placeholder at position " + open + " of selection template " + criteria);
+			}
+			final String name = criteria.substring(open + 1, close).trim();
+			if (name.isEmpty() || name.indexOf('{') >= 0) {
+				throw new IllegalArgumentException("Invalid placeholder at position " + open + " of selection template " + criteria);
+			}
+			literalList.add(criteria.substring(start, open));
+			int index = nameList.indexOf(name);
+			if (index < 0) {
+				index = nameList.size();
+				nameList.add(name);
+			}
+			placeholderList.add(Integer.valueOf(index));
+			start = close + 1;
+			open = criteria.indexOf('{', start);
+		}
+		literalList.add(criteria.substring(start));
+
+		literals = literalList.toArray(new String[literalList.size()]);
+		names = nameList.toArray(new String[nameList.size()]);
+		placeholders = new int[placeholderList.size()];
+		for (int i = 0; i < placeholders.length; i++) {
+			placeholders[i] = placeholderList.get(i).intValue();
+		}
+		int length = 0;
+		for (final String literal : literals) {
+			length += literal.length();
+		}
+		literalLength = length;
+	}
+
+	/**
+	 * Starts binding the placeholders.
+	 *
+	 * @return A new binding without values.
+	 */
+	public Binding bind() {
+		return new Binding();
+	}
+
+	/**
+	 * Returns the names of the placeholders.
+	 *
+	 * @return The names in the order of their first occurrence.
+	 */
+	public List<String> getParameterNames() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	/**
+	 * Returns the number of selections created, i.e. the number of times the criteria string was
+	 * parsed by ExpertSelection.
+	 *
+	 * @return The number of selections created.
+	 */
+	public synchronized long getCreateCount() {
+		return createCount;
+	}
+
+	/**
+	 * Returns the number of selections taken from the cache.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Selection template " + source + " has no placeholder " + name);
+	}
+
+	private synchronized Selection<T> selection(String criteria) {
+		Selection<T> selection = cache.get(criteria);
+		if (selection != null) {
+			hitCount++;
+			return selection;
+		}
+		selection = ExpertSelection.create(type, criteria);
+		createCount++;
+		cache.put(criteria, selection);
+		return selection;
+	}
+
+}
@@ -0,0 +1,188 @@
+package de.abas.examples.common;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Splits a stream of table rows, e.g. the objects of a query, into pages.
+ *
+ * By default each page is read by the thread calling {@link #nextPage()}, so the source may read
+ * from a database context of an event handler, which must not be used by other threads.
+ *
+ * If the source reads from a database context of its own, e.g. one borrowed from a
+ * {@link DbContextPool}, the following page can be read in a background thread while the current
+ * page is shown, so the next call of {@link #nextPage()} usually does not have to wait for the
+ * source. Then only the current page and the following page are kept in memory and the source
+ * must not be used by other threads before {@link #nextPage()} or {@link #close()} returned.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ * @param <T> The type of the rows.
+ */
+public class TablePager<T> implements Closeable {
+
+	private final Iterator<T> source;
+	private final int pageSize;
+	private final boolean prefetchInBackground;
+	private ExecutorService executor;
+	private Future<List<T>> prefetch;
+	private int pageNumber = 0;
+	private int rowCount = 0;
+
+	/**
+	 * Creates a pager reading each page in the thread calling {@link #nextPage()}.
+	 *
+	 * @param source The rows.
+	 * @param pageSize The number of rows per page.
+	 */
+	public TablePager(Iterator<T> source, int pageSize) {
+		this(source, pageSize, false);
+	}
+
+	/**
+	 * Creates the pager.
+	 *
+	 * @param source The rows.
+	 * @param pageSize The number of rows per page.
+	 * @param prefetchInBackground True to read the following page in a background thread. Only
+	 * allowed if the source does not read from a database context used by other threads.
+	 */
+	public TablePager(Iterator<T> source, int pageSize, boolean prefetchInBackground) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+		}
+		this.source = source;
+		this.pageSize = pageSize;
+		this.prefetchInBackground = prefetchInBackground;
+	}
+
+	/**
+	 * Returns the next page. If enabled, starts reading the following page in the background.
+	 *
+	 * @return The rows of the next page, an empty list if there are no more rows.
+	 */
+	public synchronized List<T> nextPage() {
+		final List<T> page;
+		if (prefetch != null) {
+			page = await(prefetch);
+			prefetch = null;
+		}
+		else {
+			page = read();
+		}
+		if (page.isEmpty()) {
+			return Collections.emptyList();
+		}
+		pageNumber++;
+		rowCount += page.size();
+		if (prefetchInBackground && source.hasNext()) {
+			prefetch = executor().submit(new Callable<List<T>>() {
+				@Override
+				public List<T> call() {
+					return read();
+				}
+			});
+		}
+		return page;
+	}
+
+	/**
+	 * Checks whether there are more rows.
+	 *
+	 * @return True if {@link #nextPage()} returns rows.
+	 */
+	public synchronized boolean hasNextPage() {
+		// a page is only prefetched if the source has more rows
+		return prefetch != null || source.hasNext();
+	}
+
+	/**
+	 * Returns the number of the page returned last.
+	 *
+	 * @return The page number starting with 1, 0 if no page was returned yet.
+	 */
+	public synchronized int getPageNumber() {
+		return pageNumber;
+	}
+
+	/**
+	 * Returns the number of rows returned so far.
+	 *
+	 * @return The number of rows on all pages returned.
+	 */
+	public synchronized int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Stops reading. Waits for a running prefetch, so the source is not read any more when this
+	 * method returns.
+	 */
+	@Override
+	public synchronized void close() {
+		if (prefetch != null) {
+			try {
+				prefetch.get();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (final ExecutionException e) {
+				// the page is not needed any more
+			}
+			prefetch = null;
+		}
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private List<T> read() {
+		final List<T> page = new ArrayList<T>(pageSize);
+		while (page.size() < pageSize && source.hasNext()) {
+			page.add(source.next());
+		}
+		return page;
+	}
+
+	private List<T> await(Future<List<T>> future) {
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for page " + (pageNumber + 1), e);
+		}
+		catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException("Reading page " + (pageNumber + 1) + " failed", e.getCause());
+		}
+	}
+
+	private ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					final Thread thread = new Thread(runnable, "TablePager");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+}
@@ -0,0 +1,165 @@
+package de.abas.examples.common;
+
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+/**
+ * A text with format specifiers, parsed once so it can be filled many times.
+ *
+ * The texts of the property files use the format specifiers of {@link String#format(String,
+ * Object...)}. The specifiers used there, %s, %1$s, %% and %n, are resolved when the template is
+ * created, so filling the template only joins the fixed parts with the parameters. Texts with other
+ * specifiers, e.g. %d or %.2f, and parameters implementing {@link Formattable} are still formatted
+ * by String.format(), so the result is always the same as with String.format().
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public final class TextTemplate {
+
+	private final String pattern;
+	// literals[i] is followed by the parameter params[i], the last literal ends the text
+	private final String[] literals;
+	private final int[] params;
+	private final String[] specifiers;
+	// true if the pattern contains specifiers only String.format() understands
+	private final boolean formatted;
+
+	/**
+	 * Parses a text.
+	 *
+	 * @param pattern The text with format specifiers.
+	 */
+	public TextTemplate(String pattern) {
+		this.pattern = pattern;
+		final List<String> literalList = new ArrayList<String>();
+		final List<Integer> paramList = new ArrayList<Integer>();
+		final List<String> specifierList = new ArrayList<String>();
+		final StringBuilder literal = new StringBuilder();
+		boolean unsupported = false;
+		int ordinary = 0;
+		int i = 0;
+		while (i < pattern.length() && !unsupported) {
+			final char c = pattern.charAt(i);
+			if (c != '%') {
+				literal.append(c);
+				i++;
+				continue;
+			}
+			final int end = parseSpecifier(pattern, i + 1);
+			if (end < 0) {
+				unsupported = true;
+				break;
+			}
+			final char conversion = pattern.charAt(end);
+			if (conversion == '%') {
+				literal.append('%');
+			}
+			else if (conversion == 'n') {
+				literal.append(System.getProperty("line.separator"));
+			}
+			else {
+				// conversion 's', either %s or %<index>$s
+				final int index = end == i + 1 ? ordinary++ : Integer.parseInt(pattern.substring(i + 1, end - 1)) - 1;
+				literalList.add(literal.toString());
+				literal.setLength(0);
+				paramList.add(Integer.valueOf(index));
+				specifierList.add(pattern.substring(i, end + 1));
+			}
+			i = end + 1;
+		}
+		literalList.add(literal.toString());
+
+		formatted = unsupported;
+		literals = literalList.toArray(new String[literalList.size()]);
+		specifiers = specifierList.toArray(new String[specifierList.size()]);
+		params = new int[paramList.size()];
+		for (int p = 0; p < params.length; p++) {
+			params[p] = paramList.get(p).intValue();
+		}
+	}
+
+	/**
+	 * Fills the text with the parameters.
+	 *
+	 * @param args The parameters.
+	 * @return The text, the same as String.format(pattern, args) returns.
+	 */
+	public String format(Object... args) {
+		if (formatted || hasFormattable(args)) {
+			return String.format(pattern, args);
+		}
+		if (params.length == 0) {
+			return literals[0];
+		}
+		final StringBuilder text = new StringBuilder(pattern.length() + 16 * params.length);
+		text.append(literals[0]);
+		for (int p = 0; p < params.length; p++) {
+			if (args != null && params[p] >= args.length) {
+				throw new MissingFormatArgumentException(specifiers[p]);
+			}
+			// like String.format(), a null array fills each parameter with null
+			text.append(args == null ? null : String.valueOf(args[params[p]])).append(literals[p + 1]);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns the text with format specifiers.
+	 *
+	 * @return The pattern.
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	/**
+	 * Parses the specifier after a '%'.
+	 *
+	 * @return The position of the conversion character or -1 if the specifier is not %s, %index$s,
+	 * %% or %n.
+	 */
+	private static int parseSpecifier(String pattern, int start) {
+		int i = start;
+		while (i < pattern.length() && Character.isDigit(pattern.charAt(i))) {
+			i++;
+		}
+		if (i - start > 9) {
+			return -1;
+		}
+		if (i > start) {
+			// %<index>$s, the index starts with 1
+			if (i + 1 < pattern.length() && pattern.charAt(i) == '$' && pattern.charAt(i + 1) == 's' && pattern.charAt(start) != '0') {
+				return i + 1;
+			}
+			return -1;
+		}
+		if (i < pattern.length()) {
+			final char conversion = pattern.charAt(i);
+			if (conversion == 's' || conversion == '%' || conversion == 'n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean hasFormattable(Object[] args) {
+		if (args != null) {
+			for (final Object arg : args) {
+				if (arg instanceof Formattable) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
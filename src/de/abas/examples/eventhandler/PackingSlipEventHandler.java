@@ -1,8 +1,12 @@
 package de.abas.examples.eventhandler;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import de.abas.erp.api.gui.TextBox;
 import de.abas.erp.axi.event.EventException;
@@ -20,7 +24,9 @@ import de.abas.erp.db.schema.part.Product;
 import de.abas.erp.db.schema.part.SelectablePart;
 import de.abas.erp.db.schema.sales.PackingSlipEditor;
 import de.abas.erp.jfop.rt.api.annotation.RunFopWith;
+import de.abas.examples.common.ProductPrefetcher;
 import de.abas.examples.utilities.AbasDateUtilities;
+import de.abas.examples.utilities.DateCalculationBatch;
 
 /**
  * The PackingSlipEventHandler handles events occurring in a packing slip object (database 3:23).
@@ -52,47 +58,64 @@ public class PackingSlipEventHandler {
 		TextBox box = new TextBox(ctx, "ScreenEnter", "running...");
 		box.show();
 
-		// Iterates the table rows
+		// one instance and one batch for all rows, so each distinct warranty period is only calculated once
+		AbasDateUtilities abasDateUtilities = new AbasDateUtilities();
+		DateCalculationBatch batch = abasDateUtilities.newBatch(ctx);
+		// converts dateFrom from AbasDate to AbasDateTime
+		AbasDateTime abasDateTimeFrom = new AbasDateTime(dateFrom.toDate());
+		List<PackingSlipEditor.Row> rows = new ArrayList<PackingSlipEditor.Row>();
+		List<Integer> handles = new ArrayList<Integer>();
+
+		// gets the object of the database part from each table row
+		List<PackingSlipEditor.Row> allRows = new ArrayList<PackingSlipEditor.Row>();
+		List<SelectablePart> selectableParts = new ArrayList<SelectablePart>();
 		for (PackingSlipEditor.Row row : editableRows) {
+			allRows.add(row);
+			selectableParts.add(row.getProduct());
+		}
+		// loads the warranty period of all distinct products together instead of each product on its own
+		ProductPrefetcher productPrefetcher = new ProductPrefetcher(ctx, "warrantyPer");
+		productPrefetcher.prefetch(selectableParts);
 
-			// gets the object of the database part from each table row
-			SelectablePart selectablePart = row.getProduct();
+		// Iterates the table rows
+		for (int i = 0; i < allRows.size(); i++) {
+			PackingSlipEditor.Row row = allRows.get(i);
+			SelectablePart selectablePart = selectableParts.get(i);
 			// casts the object of the database part to Product if it is a product
 			if (selectablePart instanceof Product) {
-				Product product = (Product) selectablePart;
+				Product product = productPrefetcher.get(selectablePart);
+				if (product == null) {
+					// the product could not be prefetched, so it is loaded on its own
+					product = (Product) selectablePart;
+				}
 
 				// gets the warranty period of this product from the product master file
 				AbasDuration warrantyPer = product.getWarrantyPer();
 				// checks whether the warranty period is maintained
 				if (warrantyPer != null) {
-					// calculates the warranty date
-					AbasDate warrantyDateDate = calculateWarrantyDateUtilities(ctx, dateFrom, warrantyPer);
-					// stores the warranty date in the table row
-					row.setYtwadate(warrantyDateDate);
+					// collects the calculation of the exact warranty end date
+					rows.add(row);
+					handles.add(batch.addDuration(abasDateTimeFrom, warrantyPer));
 				}
 			}
 		}
-	}
 
-	/**
-	 * Uses the AbasDateUtility class to add the warranty period to the packaging slip's creation date. Then calls the getCalculatedWarrantyDate
-	 * method to calculate the first day of the next month based on the previously calculated exact warranty date.
-	 * 
-	 * @param ctx The database context.
-	 * @param dateFrom The packaging slip's creation date.
-	 * @param warrantyPer The warranty period to add to calculate the warranty date.
-	 * @return The real warranty date.
-	 */
-	private AbasDate calculateWarrantyDateUtilities(DbContext ctx, AbasDate dateFrom, AbasDuration warrantyPer) {
-		// creates instance of helper class AbasDateUtilities
-		AbasDateUtilities abasDateUtilities = new AbasDateUtilities();
-		// converts dateFrom from AbasDate to AbasDateTime
-		AbasDateTime abasDateTimeFrom = new AbasDateTime(dateFrom.toDate());
-		// adds the warranty period to calculate the exact warranty end date
-		AbasDate calculatedAbasDate = abasDateUtilities.addDuration(ctx, abasDateTimeFrom, warrantyPer);
-		// calculates and returns the real warranty end date, which is the first day of the next month
-		AbasDate calculatedWarrantyAbasDate = getCalculatedWarrantyDate(calculatedAbasDate);
-		return calculatedWarrantyAbasDate;
+		// calculates each distinct warranty end date once
+		batch.resolve();
+		Map<Integer, AbasDate> warrantyDates = new HashMap<Integer, AbasDate>();
+		for (int i = 0; i < rows.size(); i++) {
+			Integer handle = handles.get(i);
+			AbasDate warrantyDateDate = warrantyDates.get(handle);
+			if (warrantyDateDate == null) {
+				// the real warranty end date is the first day of the next month
+				warrantyDateDate = getCalculatedWarrantyDate(batch.getResult(handle));
+				warrantyDates.put(handle, warrantyDateDate);
+			}
+			// stores the warranty date in the table row
+			rows.get(i).setYtwadate(warrantyDateDate);
+		}
+		ctx.out().println("Products loaded in " + productPrefetcher.getSelectionCount() + " selection(s), round-trips saved: "
+				+ productPrefetcher.getRoundTripsSaved());
 	}
 
 	/**
@@ -27,10 +27,15 @@ import de.abas.erp.axi2.event.ScreenEvent;
 import de.abas.erp.axi2.type.ButtonEventType;
 import de.abas.erp.axi2.annotation.ButtonEventHandler;
 import de.abas.erp.axi2.event.ButtonEvent;
+import de.abas.examples.common.ConnectionConfig;
+import de.abas.examples.common.ConnectionProvider;
+import de.abas.examples.keytable.KeyTableIndex;
+import de.abas.examples.keytable.KeyTableLoader;
 
 /**
  * The ProductEventHandler handles events occurring in a product object (database 2:1).
  * This class shows the use of a field's meta data and how to open an infosystem with parameters using AJO.
+ * It also shows how to look up the meaning of a partial key on every screen without selecting the key table each time.
  * 
  * @author abas Software AG
  * @version 1.0
@@ -40,8 +45,15 @@ import de.abas.erp.axi2.event.ButtonEvent;
 @RunFopWith(EventHandlerRunner.class)
 public class ProductEventHandler {
 
+	// connection profile in ajo-access.properties of the login loading the key tables in the background
+	private static final String KEY_TABLE_PROFILE = "keyTables";
+
+	// search word of the key table holding the meanings of the drawing norms
+	private static final String DRAWING_NORM_KEY_TABLE = "DRAWINGNORM";
+
 	/**
-	 * Outputs the product description in different languages, outputs the procurement period in working days and outputs the vendors.
+	 * Outputs the product description in different languages, outputs the procurement period in working days, outputs the vendors and
+	 * outputs the meaning of the drawing norm.
 	 * 
 	 * @param event The event that occurred.
 	 * @param screenControl The ScreenControl instance.
@@ -99,6 +111,49 @@ public class ProductEventHandler {
 			value = fieldMeta.getValue();
 			ctx.out().println(i + " -> " + value);
 		}
+
+		// outputs the meaning of the drawing norm
+		ctx.out().println("Bedeutung der Zeichnungsnorm ausgeben");
+		value = head.getDrawingNorm();
+		ctx.out().println(value + " -> " + getMeaning(ctx, DRAWING_NORM_KEY_TABLE, value));
+	}
+
+	/**
+	 * Gets the meaning of a partial key.
+	 * 
+	 * The meaning is looked up in the key table index of the connection profile keyTables in ajo-access.properties. The index is shared
+	 * by all screens of the JVM, loads all key tables with the first screen and reloads them in the background when they are outdated.
+	 * Without the profile all key tables are loaded with the event's context.
+	 * 
+	 * @param ctx The database context.
+	 * @param keyTable The search word or idno of the key table.
+	 * @param partialKey The partial key.
+	 * @return The meaning or null if there is no such key table or partial key.
+	 */
+	private static String getMeaning(DbContext ctx, String keyTable, String partialKey) {
+		KeyTableIndex keyTableIndex = getKeyTableIndex();
+		if (keyTableIndex == null) {
+			return new KeyTableLoader(ctx).loadMeaning(keyTable, partialKey);
+		}
+		return keyTableIndex.getMeaning(keyTable, partialKey);
+	}
+
+	/**
+	 * Returns the key table index shared by all screens.
+	 * 
+	 * @return The index or null if the connection profile keyTables is not defined in ajo-access.properties.
+	 */
+	private static KeyTableIndex getKeyTableIndex() {
+		try {
+			if (!ConnectionConfig.getProfileNames().contains(KEY_TABLE_PROFILE)) {
+				return null;
+			}
+		}
+		catch (RuntimeException e) {
+			// no ajo-access.properties, the key tables are loaded with the event's context
+			return null;
+		}
+		return KeyTableIndex.forConnection(new ConnectionProvider(KEY_TABLE_PROFILE));
 	}
 
 	/**
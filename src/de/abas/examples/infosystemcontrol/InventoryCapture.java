@@ -0,0 +1,107 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.math.BigDecimal;
+
+/**
+ * One inventory count entered in the infosystem INVENTORY which is not stored as InventoryCounter
+ * object yet.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryCapture {
+
+	private static final String SEPARATOR = "\t";
+
+	private final long sequence;
+	private final int team;
+	private final String articleIdno;
+	private final BigDecimal quantity;
+	private final String unit;
+	private final long capturedMillis;
+
+	/**
+	 * Creates the capture.
+	 *
+	 * @param sequence The number of the capture in the journal.
+	 * @param team The team which counted the article.
+	 * @param articleIdno The idno of the counted article, empty if no article was entered.
+	 * @param quantity The counted quantity.
+	 * @param unit The warehouse unit as stored in the database.
+	 * @param capturedMillis The time of the capture.
+	 */
+	public InventoryCapture(long sequence, int team, String articleIdno, BigDecimal quantity, String unit, long capturedMillis) {
+		this.sequence = sequence;
+		this.team = team;
+		this.articleIdno = articleIdno;
+		this.quantity = quantity;
+		this.unit = unit;
+		this.capturedMillis = capturedMillis;
+	}
+
+	/**
+	 * Parses a line written by {@link #toLine()}.
+	 *
+	 * @param line The line.
+	 * @return The capture.
+	 * @throws IllegalArgumentException Thrown if the line is not complete.
+	 */
+	public static InventoryCapture parse(String line) {
+		final String[] values = line.split(SEPARATOR, -1);
+		if (values.length != 6) {
+			throw new IllegalArgumentException("Incomplete inventory capture: " + line);
+		}
+		return new InventoryCapture(Long.parseLong(values[0]), Integer.parseInt(values[1]), values[2],
+				values[3].isEmpty() ? null : new BigDecimal(values[3]), values[4], Long.parseLong(values[5]));
+	}
+
+	/**
+	 * Returns the capture as one line without line separator.
+	 *
+	 * @return The line.
+	 */
+	public String toLine() {
+		return sequence + SEPARATOR + team + SEPARATOR + clean(articleIdno) + SEPARATOR + (quantity == null ? "" : quantity.toPlainString())
+				+ SEPARATOR + clean(unit) + SEPARATOR + capturedMillis;
+	}
+
+	/**
+	 * Returns the key identifying the capture in the database. The sequence number alone is not
+	 * unique, because it starts again when the journal file is deleted.
+	 *
+	 * @return The time of the capture and the sequence number.
+	 */
+	public String getKey() {
+		return capturedMillis + "-" + sequence;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public int getTeam() {
+		return team;
+	}
+
+	public String getArticleIdno() {
+		return articleIdno;
+	}
+
+	public BigDecimal getQuantity() {
+		return quantity;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public long getCapturedMillis() {
+		return capturedMillis;
+	}
+
+	private static String clean(String value) {
+		return value == null ? "" : value.replace(SEPARATOR, " ").replace('\n', ' ').replace('\r', ' ');
+	}
+
+}
@@ -0,0 +1,201 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-ahead file of the inventory counts entered in the infosystem INVENTORY.
+ *
+ * Every capture is appended and forced to disk before it is accepted. After a batch of captures
+ * is committed, a commit mark with the sequence number of the last capture of the batch is
+ * appended. So after a crash all captures after the last commit mark are committed again. As soon
+ * as every capture is committed, the file is truncated.
+ *
+ * A crash between committing a batch and writing its commit mark recovers the batch although it
+ * was committed, so the captures recovered have to be checked against the database.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryCaptureJournal {
+
+	private static final String COMMIT_MARK = "C\t";
+
+	private final File file;
+	private final FileChannel channel;
+	private final List<InventoryCapture> recovered = new ArrayList<InventoryCapture>();
+	private long lastSequence = 0;
+	private long lastCommittedSequence = 0;
+
+	/**
+	 * Opens the journal and reads the captures which are not committed yet.
+	 *
+	 * @param file The journal file.
+	 */
+	public InventoryCaptureJournal(File file) {
+		this.file = file;
+		try {
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			if (file.exists()) {
+				recover(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+				rewrite();
+			}
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not open inventory capture journal " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Returns the captures found in the file which were not committed before the journal was
+	 * opened.
+	 *
+	 * @return The captures in the order they were captured.
+	 */
+	public List<InventoryCapture> getRecovered() {
+		return recovered;
+	}
+
+	/**
+	 * Appends a capture and forces it to disk.
+	 *
+	 * @param team The team which counted the article.
+	 * @param articleIdno The idno of the counted article.
+	 * @param quantity The counted quantity.
+	 * @param unit The warehouse unit as stored in the database.
+	 * @return The capture with its sequence number.
+	 */
+	public synchronized InventoryCapture append(int team, String articleIdno, BigDecimal quantity, String unit) {
+		final InventoryCapture capture = new InventoryCapture(lastSequence + 1, team, articleIdno, quantity, unit, System.currentTimeMillis());
+		write(capture.toLine());
+		lastSequence = capture.getSequence();
+		return capture;
+	}
+
+	/**
+	 * Marks all captures up to a sequence number as committed. Truncates the file if every capture
+	 * is committed.
+	 *
+	 * @param sequence The sequence number of the last committed capture.
+	 */
+	public synchronized void markCommitted(long sequence) {
+		if (sequence >= lastSequence) {
+			try {
+				channel.truncate(0);
+				channel.force(true);
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Could not truncate inventory capture journal " + file.getAbsolutePath(), e);
+			}
+		}
+		else {
+			write(COMMIT_MARK + sequence);
+		}
+		lastCommittedSequence = sequence;
+	}
+
+	/**
+	 * Returns the number of captures not committed yet.
+	 *
+	 * @return The number of captures.
+	 */
+	public synchronized long getPendingCount() {
+		return lastSequence - lastCommittedSequence;
+	}
+
+	/**
+	 * Closes the file. Captures not committed yet are recovered when the journal is opened again.
+	 */
+	public synchronized void close() {
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not close inventory capture journal " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Returns the journal file.
+	 *
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	private void recover(List<String> lines) {
+		final List<InventoryCapture> captures = new ArrayList<InventoryCapture>();
+		for (final String line : lines) {
+			try {
+				if (line.startsWith(COMMIT_MARK)) {
+					lastCommittedSequence = Math.max(lastCommittedSequence, Long.parseLong(line.substring(COMMIT_MARK.length())));
+				}
+				else if (!line.isEmpty()) {
+					final InventoryCapture capture = InventoryCapture.parse(line);
+					captures.add(capture);
+					lastSequence = Math.max(lastSequence, capture.getSequence());
+				}
+			}
+			catch (IllegalArgumentException e) {
+				// the last line is incomplete if the process ended while writing it, the capture was not accepted
+			}
+		}
+		for (final InventoryCapture capture : captures) {
+			if (capture.getSequence() > lastCommittedSequence) {
+				recovered.add(capture);
+			}
+		}
+		// the rewritten file only contains the recovered captures
+		lastCommittedSequence = lastSequence - recovered.size();
+	}
+
+	/**
+	 * Replaces the file by one containing only the recovered captures. The new file is written to a
+	 * temporary file and moved over the old file atomically, so an incomplete last line is dropped
+	 * and no capture is lost if the process ends while rewriting.
+	 */
+	private void rewrite() throws IOException {
+		final File tmpFile = new File(file.getPath() + ".tmp");
+		try (FileChannel tmpChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final StringBuilder lines = new StringBuilder();
+			for (final InventoryCapture capture : recovered) {
+				lines.append(capture.toLine()).append('\n');
+			}
+			final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				tmpChannel.write(buffer);
+			}
+			tmpChannel.force(true);
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void write(String line) {
+		final ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not write inventory capture journal " + file.getAbsolutePath(), e);
+		}
+	}
+
+}
@@ -0,0 +1,358 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts inventory counts immediately and stores them in the background.
+ *
+ * A capture is appended to an {@link InventoryCaptureJournal} before it is accepted, so it
+ * survives a crash. A background thread collects the captures into batches of up to
+ * {@link #BATCH_SIZE} captures and stores each batch with a {@link BatchWriter}. If a batch cannot
+ * be stored, it is retried after {@link #RETRY_MILLIS} milliseconds, so the captures are stored in
+ * the order they were accepted.
+ *
+ * Captures recovered from the journal and batches retried after a failure may already have been
+ * stored, e.g. if the process ended or the journal could not be written after the batch was stored.
+ * The writer is told so and has to skip the captures already stored.
+ *
+ * A capture which can never be stored, e.g. because its article was deleted, is rejected by the
+ * writer with a {@link RejectedCaptureException}. It is appended to a file next to the journal with
+ * the reason and the rest of the batch is stored without it, so one bad capture does not block the
+ * following ones.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryCaptureQueue {
+
+	/**
+	 * Stores a batch of captures.
+	 */
+	public interface BatchWriter {
+		/**
+		 * Stores the captures. Either all captures are stored or an exception is thrown.
+		 *
+		 * @param captures The captures in the order they were accepted.
+		 * @param mayBeStored True if some of the captures may have been stored already. Then the
+		 * captures already stored have to be skipped.
+		 * @throws RejectedCaptureException Thrown before anything is stored if a capture can never be
+		 * stored.
+		 */
+		void write(List<InventoryCapture> captures, boolean mayBeStored);
+	}
+
+	/**
+	 * Thrown by a {@link BatchWriter} if a capture can never be stored.
+	 */
+	public static class RejectedCaptureException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final InventoryCapture capture;
+
+		/**
+		 * Creates the exception.
+		 *
+		 * @param capture The capture which can never be stored.
+		 * @param message The reason.
+		 */
+		public RejectedCaptureException(InventoryCapture capture, String message) {
+			super(message);
+			this.capture = capture;
+		}
+
+		/**
+		 * Returns the rejected capture.
+		 *
+		 * @return The capture.
+		 */
+		public InventoryCapture getCapture() {
+			return capture;
+		}
+	}
+
+	/**
+	 * Maximum number of captures stored together.
+	 */
+	public static final int BATCH_SIZE = 50;
+
+	/**
+	 * Time to wait for more captures before a batch that is not full is stored.
+	 */
+	public static final long FLUSH_INTERVAL_MILLIS = 2000;
+
+	/**
+	 * Time to wait before a batch that could not be stored is retried.
+	 */
+	public static final long RETRY_MILLIS = 10000;
+
+	private final InventoryCaptureJournal journal;
+	private final File rejectedFile;
+	private final BatchWriter writer;
+	private final long retryMillis;
+	// captures up to this sequence number were recovered from the journal
+	private final long lastRecoveredSequence;
+	private final LinkedBlockingQueue<InventoryCapture> queue = new LinkedBlockingQueue<InventoryCapture>();
+	private final Thread worker;
+	private volatile boolean running = true;
+	private volatile long lastFlushMillis = -1;
+	private volatile long lastFlushLatencyMillis = -1;
+	private volatile RuntimeException lastFailure;
+	private final AtomicInteger rejectedCount = new AtomicInteger();
+	private volatile RejectedCaptureException lastRejection;
+
+	/**
+	 * Creates the queue and starts the background thread. Captures recovered from the journal are
+	 * stored first.
+	 *
+	 * @param journal The journal.
+	 * @param writer The writer storing the batches.
+	 */
+	public InventoryCaptureQueue(InventoryCaptureJournal journal, BatchWriter writer) {
+		this(journal, writer, RETRY_MILLIS);
+	}
+
+	/**
+	 * Creates the queue with another retry interval and starts the background thread.
+	 *
+	 * @param journal The journal.
+	 * @param writer The writer storing the batches.
+	 * @param retryMillis The time to wait before a batch that could not be stored is retried.
+	 */
+	InventoryCaptureQueue(InventoryCaptureJournal journal, BatchWriter writer, long retryMillis) {
+		this.journal = journal;
+		this.writer = writer;
+		this.retryMillis = retryMillis;
+		rejectedFile = new File(journal.getFile().getPath() + ".rejected");
+		final List<InventoryCapture> recovered = journal.getRecovered();
+		lastRecoveredSequence = recovered.isEmpty() ? 0 : recovered.get(recovered.size() - 1).getSequence();
+		queue.addAll(recovered);
+		worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		}, "InventoryCaptureQueue");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Accepts an inventory count. Returns as soon as the count is in the journal.
+	 *
+	 * @param team The team which counted the article.
+	 * @param articleIdno The idno of the counted article.
+	 * @param quantity The counted quantity.
+	 * @param unit The warehouse unit as stored in the database.
+	 * @return The capture.
+	 */
+	public InventoryCapture accept(int team, String articleIdno, BigDecimal quantity, String unit) {
+		if (!running) {
+			throw new IllegalStateException("The inventory capture queue is closed");
+		}
+		final InventoryCapture capture;
+		// the journal lock keeps the queue in sequence order
+		synchronized (journal) {
+			capture = journal.append(team, articleIdno, quantity, unit);
+			queue.add(capture);
+		}
+		return capture;
+	}
+
+	/**
+	 * Returns the number of accepted captures which are not stored yet.
+	 *
+	 * @return The number of captures.
+	 */
+	public long getQueueDepth() {
+		return journal.getPendingCount();
+	}
+
+	/**
+	 * Returns the time the last batch was stored.
+	 *
+	 * @return The time in milliseconds or -1 if no batch was stored yet.
+	 */
+	public long getLastFlushMillis() {
+		return lastFlushMillis;
+	}
+
+	/**
+	 * Returns how long storing the last batch took.
+	 *
+	 * @return The latency in milliseconds or -1 if no batch was stored yet.
+	 */
+	public long getLastFlushLatencyMillis() {
+		return lastFlushLatencyMillis;
+	}
+
+	/**
+	 * Returns the exception thrown by the last attempt to store a batch.
+	 *
+	 * @return The exception or null if the last attempt succeeded.
+	 */
+	public RuntimeException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Returns the number of captures rejected since the queue was created.
+	 *
+	 * @return The number of rejected captures.
+	 */
+	public int getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Returns the last rejection.
+	 *
+	 * @return The exception with the rejected capture and the reason or null if no capture was
+	 * rejected.
+	 */
+	public RejectedCaptureException getLastRejection() {
+		return lastRejection;
+	}
+
+	/**
+	 * Returns the file the rejected captures are appended to. Each line holds a capture as written
+	 * to the journal followed by the reason.
+	 *
+	 * @return The file.
+	 */
+	public File getRejectedFile() {
+		return rejectedFile;
+	}
+
+	/**
+	 * Stops the background thread after the current batch. Captures not stored yet stay in the
+	 * journal.
+	 *
+	 * @param timeoutMillis The time to wait for the current batch.
+	 * @throws InterruptedException Thrown if the calling thread is interrupted while waiting.
+	 */
+	public void close(long timeoutMillis) throws InterruptedException {
+		running = false;
+		worker.interrupt();
+		worker.join(timeoutMillis);
+		journal.close();
+	}
+
+	private void work() {
+		final List<InventoryCapture> batch = new ArrayList<InventoryCapture>(BATCH_SIZE);
+		boolean retry = false;
+		try {
+			while (running) {
+				try {
+					if (batch.isEmpty()) {
+						collect(batch);
+						retry = false;
+					}
+					if (!batch.isEmpty() && flush(batch, retry || batch.get(0).getSequence() <= lastRecoveredSequence)) {
+						batch.clear();
+					}
+					else if (!batch.isEmpty()) {
+						retry = true;
+						Thread.sleep(retryMillis);
+					}
+				}
+				catch (RuntimeException e) {
+					// e.g. the journal or the rejected file could not be written, the batch may be stored
+					lastFailure = e;
+					retry = true;
+					Thread.sleep(retryMillis);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			// closed, the captures not stored yet stay in the journal
+		}
+	}
+
+	/**
+	 * Waits for the first capture and then up to {@link #FLUSH_INTERVAL_MILLIS} for more.
+	 */
+	private void collect(List<InventoryCapture> batch) throws InterruptedException {
+		final InventoryCapture first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		final long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+		while (batch.size() < BATCH_SIZE) {
+			queue.drainTo(batch, BATCH_SIZE - batch.size());
+			final long remaining = deadline - System.currentTimeMillis();
+			if (batch.size() == BATCH_SIZE || remaining <= 0) {
+				break;
+			}
+			final InventoryCapture next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+			if (next == null) {
+				break;
+			}
+			batch.add(next);
+		}
+	}
+
+	/**
+	 * Stores a batch and marks it committed in the journal. Rejected captures are removed from the
+	 * batch and the rest is stored again right away.
+	 *
+	 * @param mayBeStored True if some of the captures may have been stored already.
+	 * @return True if the batch was stored.
+	 */
+	private boolean flush(List<InventoryCapture> batch, boolean mayBeStored) {
+		final long start = System.currentTimeMillis();
+		final long lastSequence = batch.get(batch.size() - 1).getSequence();
+		while (!batch.isEmpty()) {
+			try {
+				writer.write(batch, mayBeStored);
+				break;
+			}
+			catch (RejectedCaptureException e) {
+				if (!batch.contains(e.getCapture())) {
+					lastFailure = e;
+					return false;
+				}
+				// the capture stays in the batch if the rejected file cannot be written
+				reject(e);
+				batch.remove(e.getCapture());
+			}
+			catch (RuntimeException e) {
+				lastFailure = e;
+				return false;
+			}
+		}
+		journal.markCommitted(lastSequence);
+		lastFlushMillis = System.currentTimeMillis();
+		lastFlushLatencyMillis = lastFlushMillis - start;
+		lastFailure = null;
+		return true;
+	}
+
+	/**
+	 * Appends a rejected capture with the reason to the rejected file.
+	 */
+	private void reject(RejectedCaptureException rejection) {
+		final String line = rejection.getCapture().toLine() + "\t" + rejection.getMessage().replace('\t', ' ').replace('\n', ' ') + "\n";
+		try {
+			Files.write(rejectedFile.toPath(), line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not write rejected inventory captures " + rejectedFile.getAbsolutePath(), e);
+		}
+		rejectedCount.incrementAndGet();
+		lastRejection = rejection;
+	}
+
+}
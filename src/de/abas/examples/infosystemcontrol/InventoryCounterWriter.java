@@ -0,0 +1,183 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.Transaction;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounterEditor;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.selection.Conditions;
+import de.abas.erp.db.selection.SelectionBuilder;
+import de.abas.erp.db.settings.DisplayMode;
+import de.abas.examples.common.DbContextPool;
+
+/**
+ * Creates one InventoryCounter object per capture, all captures of a batch in one transaction.
+ *
+ * The articles of a batch are selected with one OR selection. The contexts are borrowed from a
+ * {@link DbContextPool}, so the login is only needed for the first batch.
+ *
+ * A capture whose article does not exist is rejected with a
+ * {@link InventoryCaptureQueue.RejectedCaptureException} before the transaction begins, so the
+ * queue can store the rest of the batch without it.
+ *
+ * Each InventoryCounter object gets the key of its capture in the field ycapture. If the queue says
+ * the batch may have been stored already, the captures whose key exists are skipped, so a crash
+ * between storing a batch and marking it in the journal does not count the articles twice.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryCounterWriter implements InventoryCaptureQueue.BatchWriter {
+
+	// the field of the InventoryCounter object containing the key of the capture
+	private static final String CAPTURE_KEY_FIELD = "ycapture";
+
+	private final DbContextPool pool;
+
+	/**
+	 * Creates the writer.
+	 *
+	 * @param pool The pool of the contexts used to create the InventoryCounter objects.
+	 */
+	public InventoryCounterWriter(DbContextPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void write(List<InventoryCapture> captures, boolean mayBeStored) {
+		final DbContext ctx = pool.borrow();
+		boolean broken = true;
+		try {
+			// the units are stored as in the database
+			ctx.getSettings().setDisplayMode(DisplayMode.DATABASE);
+			final List<InventoryCapture> toStore = mayBeStored ? skipStored(ctx, captures) : captures;
+			final Map<String, Product> articles = selectArticles(ctx, toStore);
+			try {
+				checkArticles(toStore, articles);
+			}
+			catch (final InventoryCaptureQueue.RejectedCaptureException e) {
+				broken = false;
+				throw e;
+			}
+			final Transaction transaction = ctx.getTransaction();
+			transaction.begin();
+			try {
+				for (final InventoryCapture capture : toStore) {
+					create(ctx, capture, articles.get(capture.getArticleIdno()));
+				}
+				transaction.commit();
+			}
+			finally {
+				if (transaction.isActive()) {
+					transaction.rollback();
+				}
+			}
+			broken = false;
+		}
+		finally {
+			if (broken) {
+				pool.invalidate(ctx);
+			}
+			else {
+				pool.release(ctx);
+			}
+		}
+	}
+
+	/**
+	 * Rejects the first capture whose article does not exist.
+	 */
+	private void checkArticles(List<InventoryCapture> captures, Map<String, Product> articles) {
+		for (final InventoryCapture capture : captures) {
+			if (!capture.getArticleIdno().isEmpty() && !articles.containsKey(capture.getArticleIdno())) {
+				throw new InventoryCaptureQueue.RejectedCaptureException(capture, "Article " + capture.getArticleIdno() + " of capture " + capture.getSequence() + " does not exist");
+			}
+		}
+	}
+
+	/**
+	 * Creates the InventoryCounter object of a capture.
+	 */
+	private void create(DbContext ctx, InventoryCapture capture, Product article) {
+		final InventoryCounterEditor inventoryInstance = ctx.newObject(InventoryCounterEditor.class);
+		inventoryInstance.setSwd("Inventory2014");
+		inventoryInstance.setYteam(capture.getTeam());
+		inventoryInstance.setYarticle(article);
+		inventoryInstance.setYqty(capture.getQuantity());
+		inventoryInstance.setString("ywarehouseunit", capture.getUnit());
+		inventoryInstance.setYdate(new AbasDate(new Date(capture.getCapturedMillis())));
+		inventoryInstance.setString(CAPTURE_KEY_FIELD, capture.getKey());
+		inventoryInstance.commit();
+	}
+
+	/**
+	 * Selects the InventoryCounter objects of the captures with one OR selection.
+	 *
+	 * @return The captures not stored yet.
+	 */
+	private List<InventoryCapture> skipStored(DbContext ctx, List<InventoryCapture> captures) {
+		final SelectionBuilder<InventoryCounter> selectionBuilder = SelectionBuilder.create(InventoryCounter.class);
+		selectionBuilder.setTermConjunction(SelectionBuilder.Conjunction.OR);
+		for (final InventoryCapture capture : captures) {
+			selectionBuilder.add(Conditions.eq(CAPTURE_KEY_FIELD, capture.getKey()));
+		}
+		final Query<InventoryCounter> query = ctx.createQuery(selectionBuilder.build());
+		query.setFields(FieldSet.of("id", CAPTURE_KEY_FIELD));
+		query.setLazyLoad(false);
+		final Set<String> stored = new HashSet<String>();
+		for (final InventoryCounter inventoryCounter : query) {
+			stored.add(inventoryCounter.getString(CAPTURE_KEY_FIELD));
+		}
+		final List<InventoryCapture> toStore = new ArrayList<InventoryCapture>(captures.size());
+		for (final InventoryCapture capture : captures) {
+			if (!stored.contains(capture.getKey())) {
+				toStore.add(capture);
+			}
+		}
+		return toStore;
+	}
+
+	/**
+	 * Selects the articles of all captures with one OR selection.
+	 *
+	 * @return The articles by idno.
+	 */
+	private Map<String, Product> selectArticles(DbContext ctx, List<InventoryCapture> captures) {
+		final Set<String> idnos = new LinkedHashSet<String>();
+		for (final InventoryCapture capture : captures) {
+			if (!capture.getArticleIdno().isEmpty()) {
+				idnos.add(capture.getArticleIdno());
+			}
+		}
+		final Map<String, Product> articles = new HashMap<String, Product>();
+		if (idnos.isEmpty()) {
+			return articles;
+		}
+		final SelectionBuilder<Product> selectionBuilder = SelectionBuilder.create(Product.class);
+		selectionBuilder.setTermConjunction(SelectionBuilder.Conjunction.OR);
+		for (final String idno : idnos) {
+			selectionBuilder.add(Conditions.eq(Product.META.idno, idno));
+		}
+		final Query<Product> query = ctx.createQuery(selectionBuilder.build());
+		query.setFields(FieldSet.of("id", "idno"));
+		query.setLazyLoad(false);
+		for (final Product product : query) {
+			articles.put(product.getIdno(), product);
+		}
+		return articles;
+	}
+
+}
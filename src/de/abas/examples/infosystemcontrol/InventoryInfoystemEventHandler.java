@@ -1,8 +1,8 @@
 package de.abas.examples.infosystemcontrol;
 
+import java.io.File;
 import java.math.BigDecimal;
 
-import de.abas.erp.api.gui.TextBox;
 import de.abas.erp.axi.event.EventException;
 import de.abas.erp.axi.screen.ScreenControl;
 import de.abas.erp.axi2.EventHandlerRunner;
@@ -15,17 +15,15 @@ import de.abas.erp.axi2.type.ButtonEventType;
 import de.abas.erp.axi2.type.FieldEventType;
 import de.abas.erp.common.type.AbasDate;
 import de.abas.erp.db.DbContext;
-import de.abas.erp.db.Query;
 import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem;
-import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem.Row;
 import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
-import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounterEditor;
 import de.abas.erp.db.schema.part.Product;
-import de.abas.erp.db.selection.ExpertSelection;
 import de.abas.erp.db.selection.Selection;
 import de.abas.erp.db.settings.DisplayMode;
-import de.abas.erp.db.type.AbasUnit;
 import de.abas.erp.jfop.rt.api.annotation.RunFopWith;
+import de.abas.examples.common.ConnectionConfig;
+import de.abas.examples.common.ConnectionProvider;
+import de.abas.examples.common.DbContextPool;
 
 /**
  * The InventoryInfosystemEventHandler handles all registered events for the infosystem INVENTORY.
@@ -43,9 +41,28 @@ import de.abas.erp.jfop.rt.api.annotation.RunFopWith;
 @RunFopWith(EventHandlerRunner.class)
 public class InventoryInfoystemEventHandler {
 
+	// connection profile in ajo-access.properties of the service login storing the captures
+	private static final String CAPTURE_PROFILE = "inventoryCapture";
+
+	// connection profile in ajo-access.properties of the login reading the pages in the background
+	private static final String PAGING_PROFILE = "inventoryPaging";
+
+	// journal of the captures not stored yet
+	private static final String CAPTURE_JOURNAL_FILE = "win/tmp/inventoryCapture.journal";
+
+	// stores the captures of all sessions in the background
+	private static InventoryCaptureQueue captureQueue;
+
+	// remembers the shown InventoryCounter objects, so pressing a button again only writes the changed rows
+	private final InventoryTableRefresh inventoryTableRefresh = new InventoryTableRefresh();
+	// the pages of the selection, null if the table is not paged
+	private PagedInventoryTable pagedInventoryTable;
+
 	/**
 	 * Stores data entered in the InventoryInfosystem such as team, article, quantity, unit and current date in the InventoryCounter database.
 	 * 
+	 * The data is written to a journal file and stored in the background together with other captures, so the button returns immediately.
+	 * 
 	 * @param event The event that occurred.
 	 * @param screenControl The ScreenControl instance.
 	 * @param ctx The database context.
@@ -54,25 +71,19 @@ public class InventoryInfoystemEventHandler {
 	 */
 	@ButtonEventHandler(field = "commitqty", type = ButtonEventType.AFTER)
 	public void commitqtyAfter(ButtonEvent event, ScreenControl screenControl, DbContext ctx, InventoryInfoystem head) throws EventException {
-		// gets data from InventoryInfosystem
+		// gets data from InventoryInfosystem, the unit as stored in the database
+		ctx.getSettings().setDisplayMode(DisplayMode.DATABASE);
 		Product article = head.getArticle();
 		int team = head.getTeam();
 		BigDecimal quantity = head.getQty();
-		AbasUnit unit = head.getUnit();
-
-		// uses gathered data to create a new InventoryCounter object
-		InventoryCounterEditor inventoryInstance = ctx.newObject(InventoryCounterEditor.class);
-		inventoryInstance.setSwd("Inventory2014");
-		inventoryInstance.setYteam(team);
-		inventoryInstance.setYarticle(article);
-		inventoryInstance.setYqty(quantity);
-		inventoryInstance.setYwarehouseunit(unit);
-		inventoryInstance.setYdate(new AbasDate());
-		inventoryInstance.commit();
-
-		// displays success message
-		TextBox textBox = new TextBox(ctx, "Committed", "Data is secured!");
-		textBox.show();
+		String unit = head.getString("unit");
+
+		// queues the data, the InventoryCounter object is created in the background
+		InventoryCaptureQueue queue = getCaptureQueue();
+		queue.accept(team, article == null ? "" : article.getIdno(), quantity, unit);
+
+		// displays the state of the queue
+		screenControl.setNote(captureQueueState(queue));
 	}
 
 	/**
@@ -90,45 +101,10 @@ public class InventoryInfoystemEventHandler {
 		int team = head.getTeam();
 		AbasDate abasDate = new AbasDate();
 
-		// initializes counter for table rows
-		int counter = 1;
-
-		// selects all data sets for the selected team and date entered in the InventoryCounter
-		String selectionString = "idno=;swd=;descr==`!;yteam=" + team + "!" + team + ";ydate=" + abasDate + "!" + abasDate + ";@englvar=(Yes)";
-		Selection<InventoryCounter> selection = ExpertSelection.create(InventoryCounter.class, selectionString);
-		Query<InventoryCounter> createQuery = ctx.createQuery(selection);
-
-		// sets display mode to display unit as text
-		// this only works when getting the AbasUnit value with getString()
-		ctx.getSettings().setDisplayMode(DisplayMode.DISPLAY);
+		// loads one row in table for each InventoryCounter object of the selected team and date and appends the warehouse value per team,
+		// per article and in total
+		show(ctx, head, team, team, abasDate, abasDate);
 
-		// resets table
-		head.table().clear();
-
-		// loads one row in table for each InventoryCounter object that was selected previously
-		for (InventoryCounter inventoryCounter : createQuery) {
-
-			Product article = inventoryCounter.getYarticle();
-			String warehouseunit = inventoryCounter.getString("ywarehouseunit");
-			int teamFromDatabase = inventoryCounter.getYteam();
-
-			BigDecimal purchPriceArticle = inventoryCounter.getYarticle().getPurchPrice();
-			BigDecimal quantity = inventoryCounter.getYqty();
-			String purchDescrOperLang = inventoryCounter.getYarticle().getPurchDescrOperLang();
-
-			Row appendRow = head.table().appendRow();
-
-			appendRow.setItem(counter++);
-			appendRow.setTarticle(article);
-			appendRow.setDate(inventoryCounter.getYdate());
-			appendRow.setTteam(teamFromDatabase);
-			appendRow.setTqty(quantity);
-			appendRow.setString("tunit", warehouseunit);
-			appendRow.setTarticledescr(purchDescrOperLang);
-			appendRow.setTpurchprice(purchPriceArticle);
-			appendRow.setTwarehousevalue(purchPriceArticle.multiply(quantity));
-
-		}
 		// positions the cursor on the table tab
 		screenControl.moveCursor(head, InventoryInfoystem.META.teamfrom);
 	}
@@ -150,48 +126,26 @@ public class InventoryInfoystemEventHandler {
 		AbasDate dateTo = head.getDateto();
 
 		if ((dateFrom != null) && (dateTo != null)) {
-			// initializes counter for table rows
-			int counter = 1;
-
-			// selects all data sets for the selected team and date range entered in the filter criteria
-			String selectionString = "idno=;swd=;descr==`!;yteam=" + teamFrom + "!" + teamTo + ";ydate=" + dateFrom + "!" + dateTo + ";@englvar=(Yes)";
-			Selection<InventoryCounter> selection = ExpertSelection.create(InventoryCounter.class, selectionString);
-			Query<InventoryCounter> createQuery = ctx.createQuery(selection);
-
-			// sets display mode to display unit as text
-			// this only works when getting the AbasUnit value with getString()
-			ctx.getSettings().setDisplayMode(DisplayMode.DISPLAY);
-
-			// resets table
-			head.table().clear();
-
-			// loads one row in table for each InventoryCounter object that was selected previously
-			for (InventoryCounter inventoryCounter : createQuery) {
-
-				Product article = inventoryCounter.getYarticle();
-				AbasUnit warehouseUnit = inventoryCounter.getYwarehouseunit();
-				int team = inventoryCounter.getYteam();
-
-				BigDecimal purchPriceFromArticle = inventoryCounter.getYarticle().getPurchPrice();
-				BigDecimal quantity = inventoryCounter.getYqty();
-				String purchDescrOperLang = inventoryCounter.getYarticle().getPurchDescrOperLang();
-
-				Row appendRow = head.table().appendRow();
-
-				appendRow.setItem(counter++);
-				appendRow.setTarticle(article);
-				appendRow.setDate(inventoryCounter.getYdate());
-				appendRow.setTteam(team);
-				appendRow.setTqty(quantity);
-				appendRow.setTunit(warehouseUnit.toString());
-				appendRow.setTarticledescr(purchDescrOperLang);
-				appendRow.setTpurchprice(purchPriceFromArticle);
-				appendRow.setTwarehousevalue(purchPriceFromArticle.multiply(quantity));
-
-				BigDecimal tmpWarehouseValue = purchPriceFromArticle.multiply(quantity);
-				tmpWarehouseValue.add(tmpWarehouseValue);
+			// loads one row in table for each InventoryCounter object of the selected team and date range and appends the warehouse value
+			// per team, per article and in total
+			show(ctx, head, teamFrom, teamTo, dateFrom, dateTo);
+		}
+	}
 
-			}
+	/**
+	 * Shows the next page of a selection with more rows than fit on one page.
+	 * 
+	 * @param event The event that occurred.
+	 * @param screenControl The ScreenControl instance.
+	 * @param ctx The database context.
+	 * @param head The InventoryInfosystem instance.
+	 * @throws EventException The exception thrown if an error occurs.
+	 */
+	@ButtonEventHandler(field = "nextpage", type = ButtonEventType.AFTER)
+	public void nextpageAfter(ButtonEvent event, ScreenControl screenControl, DbContext ctx, InventoryInfoystem head) throws EventException {
+		if ((pagedInventoryTable == null) || !pagedInventoryTable.showNextPage(head)) {
+			// the last page is shown
+			closePagedInventoryTable();
 		}
 	}
 
@@ -209,4 +163,102 @@ public class InventoryInfoystemEventHandler {
 		head.setUnit(head.getArticle().getSU());
 	}
 
+	/**
+	 * Returns the capture queue shared by all sessions of the infosystem. The queue is created with the first capture.
+	 * 
+	 * The captures of all sessions are stored with the service login of the connection profile inventoryCapture in
+	 * ajo-access.properties, so the InventoryCounter objects are created by that login and not by the user who counted.
+	 * 
+	 * @return The capture queue.
+	 */
+	private static synchronized InventoryCaptureQueue getCaptureQueue() {
+		if (captureQueue == null) {
+			DbContextPool pool = DbContextPool.forConnection(new ConnectionProvider(CAPTURE_PROFILE), "AJO-InventoryCapture");
+			captureQueue = new InventoryCaptureQueue(new InventoryCaptureJournal(new File(CAPTURE_JOURNAL_FILE)), new InventoryCounterWriter(pool));
+		}
+		return captureQueue;
+	}
+
+	/**
+	 * Returns the pool of the contexts reading the pages in the background.
+	 * 
+	 * @return The pool or null if the connection profile inventoryPaging is not defined in ajo-access.properties.
+	 */
+	private static DbContextPool getPagingPool() {
+		try {
+			if (!ConnectionConfig.getProfileNames().contains(PAGING_PROFILE)) {
+				return null;
+			}
+		}
+		catch (RuntimeException e) {
+			// no ajo-access.properties, the pages are read when the button nextpage is pressed
+			return null;
+		}
+		return DbContextPool.forConnection(new ConnectionProvider(PAGING_PROFILE), "AJO-InventoryPaging");
+	}
+
+	/**
+	 * Shows the InventoryCounter objects of a team and date range.
+	 * 
+	 * If the table already shows this range only new or changed InventoryCounter objects are written. If more objects are selected than
+	 * fit on one page, the first page is shown and the button nextpage shows the following pages. The summary rows are appended to the
+	 * last page.
+	 * 
+	 * @param ctx The database context.
+	 * @param head The InventoryInfosystem instance.
+	 * @param teamFrom The first team.
+	 * @param teamTo The last team.
+	 * @param dateFrom The first date.
+	 * @param dateTo The last date.
+	 */
+	private void show(DbContext ctx, InventoryInfoystem head, int teamFrom, int teamTo, AbasDate dateFrom, AbasDate dateTo) {
+		closePagedInventoryTable();
+		if (inventoryTableRefresh.refresh(ctx, head, teamFrom, teamTo, dateFrom, dateTo, PagedInventoryTable.PAGE_SIZE)) {
+			return;
+		}
+		Selection<InventoryCounter> selection = InventoryTableLoader.selection(teamFrom, teamTo, dateFrom, dateTo);
+		DbContextPool pagingPool = getPagingPool();
+		if (pagingPool != null) {
+			pagedInventoryTable = new PagedInventoryTable(pagingPool, selection, PagedInventoryTable.PAGE_SIZE);
+		}
+		else {
+			pagedInventoryTable = new PagedInventoryTable(ctx, selection, PagedInventoryTable.PAGE_SIZE);
+		}
+		if (!pagedInventoryTable.showNextPage(head)) {
+			// all rows fit on one page
+			closePagedInventoryTable();
+		}
+	}
+
+	/**
+	 * Describes the state of the capture queue.
+	 * 
+	 * @param queue The capture queue.
+	 * @return The number of queued captures and the latency of the last flush or the last error and the rejected captures.
+	 */
+	private static String captureQueueState(InventoryCaptureQueue queue) {
+		StringBuilder state = new StringBuilder("Queued: ").append(queue.getQueueDepth());
+		if (queue.getLastFailure() != null) {
+			state.append(", last flush failed: ").append(queue.getLastFailure().getMessage());
+		}
+		else if (queue.getLastFlushMillis() >= 0) {
+			state.append(", last flush: ").append(queue.getLastFlushLatencyMillis()).append("ms");
+		}
+		if (queue.getRejectedCount() > 0) {
+			state.append(", rejected: ").append(queue.getRejectedCount()).append(" (").append(queue.getLastRejection().getMessage())
+					.append(", see ").append(queue.getRejectedFile().getPath()).append(")");
+		}
+		return state.toString();
+	}
+
+	/**
+	 * Stops reading the pages of the selection.
+	 */
+	private void closePagedInventoryTable() {
+		if (pagedInventoryTable != null) {
+			pagedInventoryTable.close();
+			pagedInventoryTable = null;
+		}
+	}
+
 }
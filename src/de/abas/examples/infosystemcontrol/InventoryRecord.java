@@ -0,0 +1,118 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.math.BigDecimal;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.schema.part.Product;
+
+/**
+ * The values of one InventoryCounter object shown in a table row of the infosystem INVENTORY,
+ * including the values of the referenced article.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryRecord {
+
+	private final Id id;
+	private final Product article;
+	private final int team;
+	private final BigDecimal quantity;
+	private final String unit;
+	private final AbasDate date;
+	private final BigDecimal purchPrice;
+	private final String purchDescrOperLang;
+
+	/**
+	 * Creates the record.
+	 *
+	 * @param id The id of the InventoryCounter object.
+	 * @param article The counted article.
+	 * @param team The team which counted the article.
+	 * @param quantity The counted quantity.
+	 * @param unit The warehouse unit as text.
+	 * @param date The date of the count.
+	 * @param purchPrice The purchase price of the article.
+	 * @param purchDescrOperLang The purchase description of the article.
+	 */
+	public InventoryRecord(Id id, Product article, int team, BigDecimal quantity, String unit, AbasDate date, BigDecimal purchPrice,
+			String purchDescrOperLang) {
+		this.id = id;
+		this.article = article;
+		this.team = team;
+		this.quantity = quantity;
+		this.unit = unit;
+		this.date = date;
+		this.purchPrice = purchPrice;
+		this.purchDescrOperLang = purchDescrOperLang;
+	}
+
+	public Id getId() {
+		return id;
+	}
+
+	public Product getArticle() {
+		return article;
+	}
+
+	public int getTeam() {
+		return team;
+	}
+
+	public BigDecimal getQuantity() {
+		return quantity;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public AbasDate getDate() {
+		return date;
+	}
+
+	public BigDecimal getPurchPrice() {
+		return purchPrice;
+	}
+
+	public String getPurchDescrOperLang() {
+		return purchDescrOperLang;
+	}
+
+	/**
+	 * Returns the warehouse value of the counted quantity.
+	 *
+	 * @return The purchase price multiplied by the quantity.
+	 */
+	public BigDecimal getWarehouseValue() {
+		return purchPrice.multiply(quantity);
+	}
+
+	/**
+	 * Checks whether the table row of this record and of another record of the same
+	 * InventoryCounter object show the same values.
+	 *
+	 * @param other The other record.
+	 * @return True if all shown values are equal, else false.
+	 */
+	public boolean hasSameValues(InventoryRecord other) {
+		return team == other.team && equal(articleId(), other.articleId()) && compare(quantity, other.quantity) && equal(unit, other.unit)
+				&& equal(String.valueOf(date), String.valueOf(other.date)) && compare(purchPrice, other.purchPrice)
+				&& equal(purchDescrOperLang, other.purchDescrOperLang);
+	}
+
+	private Id articleId() {
+		return article == null ? null : article.id();
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static boolean compare(BigDecimal a, BigDecimal b) {
+		return a == null ? b == null : b != null && a.compareTo(b) == 0;
+	}
+
+}
@@ -0,0 +1,134 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem;
+import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem.Row;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
+import de.abas.erp.db.selection.Selection;
+import de.abas.examples.common.SelectionTemplate;
+
+/**
+ * Loads InventoryCounter objects into the table of the infosystem INVENTORY.
+ *
+ * The purchase price and description of the counted article are read in the same query as the
+ * InventoryCounter objects by adding the referenced fields to the FieldSet, like
+ * <code>PerformanceOptimization</code> does with "product^idno". So filling the table takes one
+ * query instead of one query for each InventoryCounter object and each access to its article.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryTableLoader {
+
+	/**
+	 * The fields read for each InventoryCounter object.
+	 */
+	public static final String[] FIELDS = { "id", "yteam", "yqty", "ywarehouseunit", "ydate", "yarticle", "yarticle^purchPrice",
+			"yarticle^purchDescrOperLang" };
+
+	private static final SelectionTemplate<InventoryCounter> SELECTION = SelectionTemplate.compile(InventoryCounter.class,
+			"idno=;swd=;descr==`!;yteam={teamFrom}!{teamTo};ydate={dateFrom}!{dateTo};@englvar=(Yes)");
+
+	private final DbContext ctx;
+
+	/**
+	 * Creates the loader.
+	 *
+	 * @param ctx The database context.
+	 */
+	public InventoryTableLoader(DbContext ctx) {
+		this.ctx = ctx;
+	}
+
+	/**
+	 * Creates the expert selection for the InventoryCounter objects of a team and date range.
+	 *
+	 * @param teamFrom The first team.
+	 * @param teamTo The last team.
+	 * @param dateFrom The first date.
+	 * @param dateTo The last date.
+	 * @return The selection.
+	 */
+	public static Selection<InventoryCounter> selection(int teamFrom, int teamTo, AbasDate dateFrom, AbasDate dateTo) {
+		return SELECTION.bind().set("teamFrom", teamFrom).set("teamTo", teamTo).set("dateFrom", dateFrom).set("dateTo", dateTo).create();
+	}
+
+	/**
+	 * Creates the query reading only the fields needed for the table.
+	 *
+	 * @param selection The selection of InventoryCounter objects.
+	 * @return The query.
+	 */
+	public Query<InventoryCounter> createQuery(Selection<InventoryCounter> selection) {
+		final Query<InventoryCounter> query = ctx.createQuery(selection);
+		query.setFields(FieldSet.of(FIELDS));
+		// reads all fields with the selection instead of loading each object on first access
+		query.setLazyLoad(false);
+		return query;
+	}
+
+	/**
+	 * Reads the values of an InventoryCounter object selected by {@link #createQuery(Selection)}.
+	 *
+	 * @param inventoryCounter The InventoryCounter object.
+	 * @return The values.
+	 */
+	public InventoryRecord read(InventoryCounter inventoryCounter) {
+		return new InventoryRecord(inventoryCounter.id(), inventoryCounter.getYarticle(), inventoryCounter.getYteam(), inventoryCounter.getYqty(),
+				inventoryCounter.getString("ywarehouseunit"), inventoryCounter.getYdate(), inventoryCounter.getBigDecimal("yarticle^purchPrice"),
+				inventoryCounter.getString("yarticle^purchDescrOperLang"));
+	}
+
+	/**
+	 * Fills a table row.
+	 *
+	 * @param row The table row.
+	 * @param item The item number of the row.
+	 * @param record The values of the InventoryCounter object.
+	 */
+	public static void fillRow(Row row, int item, InventoryRecord record) {
+		row.setItem(item);
+		row.setTarticle(record.getArticle());
+		row.setDate(record.getDate());
+		row.setTteam(record.getTeam());
+		row.setTqty(record.getQuantity());
+		row.setString("tunit", record.getUnit());
+		row.setTarticledescr(record.getPurchDescrOperLang());
+		row.setTpurchprice(record.getPurchPrice());
+		row.setTwarehousevalue(record.getWarehouseValue());
+	}
+
+	/**
+	 * Appends the summary rows: one per team, one per article and the total.
+	 *
+	 * @param head The InventoryInfosystem instance.
+	 * @param aggregator The aggregated warehouse values.
+	 * @return The number of summary rows.
+	 */
+	public static int fillSummaryRows(InventoryInfoystem head, WarehouseValueAggregator aggregator) {
+		for (final Map.Entry<Integer, BigDecimal> teamTotal : aggregator.getTeamTotals().entrySet()) {
+			final Row row = head.table().appendRow();
+			row.setTteam(teamTotal.getKey().intValue());
+			row.setTarticledescr("Total team " + teamTotal.getKey());
+			row.setTwarehousevalue(teamTotal.getValue());
+		}
+		for (final WarehouseValueAggregator.ArticleTotal articleTotal : aggregator.getArticleTotals()) {
+			final Row row = head.table().appendRow();
+			row.setTarticle(articleTotal.getArticle());
+			row.setTarticledescr("Total article");
+			row.setTwarehousevalue(articleTotal.getValue());
+		}
+		final Row row = head.table().appendRow();
+		row.setTarticledescr("Total");
+		row.setTwarehousevalue(aggregator.getTotal());
+		return aggregator.getTeamTotals().size() + aggregator.getArticleTotals().size() + 1;
+	}
+
+}
@@ -0,0 +1,225 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
+import de.abas.erp.db.settings.DisplayMode;
+
+/**
+ * Keeps the table of the infosystem INVENTORY up to date without rewriting it completely.
+ *
+ * Every refresh selects all InventoryCounter objects of the team and date range with one query.
+ * While the query is read, each object is compared with the row shown: only rows of changed
+ * objects are patched, new objects are appended and the summary rows are rebuilt. Only the values
+ * of the shown rows are kept, not the objects read. If an object shown is no longer selected, e.g.
+ * because it was deleted or its team or date was corrected, or the table was changed by someone
+ * else, the query is read again and the table is filled again.
+ *
+ * InventoryCounter objects have neither a change timestamp nor a version field which could be
+ * selected, so only selecting the objects changed since the last refresh would miss corrections of
+ * objects with an earlier date. The refresh therefore saves the writes to the table, not the query.
+ *
+ * Selections with more objects than fit on one page are not refreshed but shown by a
+ * {@link PagedInventoryTable}.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class InventoryTableRefresh {
+
+	/**
+	 * Reads the selected objects. Called again if the table has to be filled again.
+	 */
+	interface Loader {
+		Iterator<InventoryRecord> load();
+	}
+
+	/**
+	 * A table row showing an InventoryCounter object.
+	 */
+	private static class ShownRow {
+		private final int rowNo;
+		private InventoryRecord record;
+
+		private ShownRow(int rowNo, InventoryRecord record) {
+			this.rowNo = rowNo;
+			this.record = record;
+		}
+	}
+
+	private final Map<Id, ShownRow> shown = new HashMap<Id, ShownRow>();
+	private String range;
+	private WarehouseValueAggregator aggregator;
+	private int summaryRowCount;
+	private int lastRefreshCount;
+	private boolean reloaded;
+
+	/**
+	 * Refreshes the table.
+	 *
+	 * @param ctx The database context.
+	 * @param head The InventoryInfosystem instance.
+	 * @param teamFrom The first team.
+	 * @param teamTo The last team.
+	 * @param dateFrom The first date.
+	 * @param dateTo The last date.
+	 * @param maxRows The maximum number of InventoryCounter rows shown.
+	 * @return True if the table was refreshed, false if more than maxRows objects are selected. Then
+	 * the table is incomplete and has to be replaced, e.g. by a {@link PagedInventoryTable}.
+	 */
+	public boolean refresh(final DbContext ctx, InventoryInfoystem head, final int teamFrom, final int teamTo, final AbasDate dateFrom,
+			final AbasDate dateTo, int maxRows) {
+		// sets display mode to display unit as text
+		// this only works when getting the AbasUnit value with getString()
+		ctx.getSettings().setDisplayMode(DisplayMode.DISPLAY);
+		final InventoryTableLoader loader = new InventoryTableLoader(ctx);
+		return refresh(head, teamFrom + "!" + teamTo + ";" + dateFrom + "!" + dateTo, new Loader() {
+			@Override
+			public Iterator<InventoryRecord> load() {
+				final Iterator<InventoryCounter> inventoryCounters = loader.createQuery(InventoryTableLoader.selection(teamFrom, teamTo, dateFrom, dateTo))
+						.iterator();
+				return new Iterator<InventoryRecord>() {
+					@Override
+					public boolean hasNext() {
+						return inventoryCounters.hasNext();
+					}
+
+					@Override
+					public InventoryRecord next() {
+						return loader.read(inventoryCounters.next());
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		}, maxRows);
+	}
+
+	/**
+	 * Refreshes the table with the objects read by a loader.
+	 *
+	 * @param head The InventoryInfosystem instance.
+	 * @param newRange Identifies the selection. The table is filled again if it changes.
+	 * @param loader Reads the selected objects.
+	 * @param maxRows The maximum number of InventoryCounter rows shown.
+	 * @return True if the table was refreshed, false if more than maxRows objects are selected.
+	 */
+	boolean refresh(InventoryInfoystem head, String newRange, Loader loader, int maxRows) {
+		lastRefreshCount = 0;
+		reloaded = false;
+		if (!newRange.equals(range) || head.table().getRowCount() != shown.size() + summaryRowCount) {
+			return reload(head, newRange, loader, maxRows);
+		}
+
+		// the summary rows are rebuilt after the new rows
+		for (int rowNo = head.table().getRowCount(); rowNo > shown.size(); rowNo--) {
+			head.table().deleteRow(rowNo);
+		}
+		final int shownCount = shown.size();
+		int selectedCount = 0;
+		int selectedShownCount = 0;
+		final Iterator<InventoryRecord> selected = loader.load();
+		while (selected.hasNext()) {
+			final InventoryRecord record = selected.next();
+			if (++selectedCount > maxRows) {
+				forget();
+				return false;
+			}
+			final ShownRow row = shown.get(record.getId());
+			if (row == null) {
+				append(head, record);
+			}
+			else {
+				selectedShownCount++;
+				if (!record.hasSameValues(row.record)) {
+					patch(head, row, record);
+				}
+			}
+		}
+		if (selectedShownCount < shownCount) {
+			return reload(head, newRange, loader, maxRows);
+		}
+		summaryRowCount = InventoryTableLoader.fillSummaryRows(head, aggregator);
+		return true;
+	}
+
+	/**
+	 * Returns the number of table rows written by the last refresh without the summary rows.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getLastRefreshCount() {
+		return lastRefreshCount;
+	}
+
+	/**
+	 * Checks whether the last refresh filled the table again instead of patching it.
+	 *
+	 * @return True if the table was filled again.
+	 */
+	public boolean isReloaded() {
+		return reloaded;
+	}
+
+	/**
+	 * Clears the table and fills it with the selected objects.
+	 */
+	private boolean reload(InventoryInfoystem head, String newRange, Loader loader, int maxRows) {
+		forget();
+		aggregator = new WarehouseValueAggregator();
+		lastRefreshCount = 0;
+		reloaded = true;
+
+		// resets table
+		head.table().clear();
+
+		final Iterator<InventoryRecord> selected = loader.load();
+		while (selected.hasNext()) {
+			final InventoryRecord record = selected.next();
+			if (shown.size() == maxRows) {
+				forget();
+				return false;
+			}
+			append(head, record);
+		}
+		summaryRowCount = InventoryTableLoader.fillSummaryRows(head, aggregator);
+		range = newRange;
+		return true;
+	}
+
+	/**
+	 * Forgets the shown rows, so the next refresh fills the table again.
+	 */
+	private void forget() {
+		shown.clear();
+		range = null;
+		summaryRowCount = 0;
+	}
+
+	private void patch(InventoryInfoystem head, ShownRow row, InventoryRecord record) {
+		InventoryTableLoader.fillRow(head.table().getRow(row.rowNo), row.rowNo, record);
+		aggregator.remove(row.record);
+		aggregator.add(record);
+		row.record = record;
+		lastRefreshCount++;
+	}
+
+	private void append(InventoryInfoystem head, InventoryRecord record) {
+		final int rowNo = shown.size() + 1;
+		InventoryTableLoader.fillRow(head.table().appendRow(), rowNo, record);
+		shown.put(record.getId(), new ShownRow(rowNo, record));
+		aggregator.add(record);
+		lastRefreshCount++;
+	}
+
+}
@@ -0,0 +1,151 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
+import de.abas.erp.db.selection.Selection;
+import de.abas.erp.db.settings.DisplayMode;
+import de.abas.examples.common.DbContextPool;
+import de.abas.examples.common.TablePager;
+
+/**
+ * Shows a large selection of InventoryCounter objects page by page in the table of the
+ * infosystem INVENTORY.
+ *
+ * The table only contains the rows of the current page. The query is read page by page while the
+ * pages are shown, so at most two pages are kept in memory. The summary rows are appended to the
+ * last page.
+ *
+ * If the table is created with a {@link DbContextPool}, the query is read with a context borrowed
+ * from the pool and the following page is read in the background while the current page is shown.
+ * Otherwise the pages are read in the event handler's thread, because the database context of the
+ * event must not be used by other threads.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class PagedInventoryTable implements Closeable {
+
+	/**
+	 * Default number of rows per page.
+	 */
+	public static final int PAGE_SIZE = 200;
+
+	private final TablePager<InventoryRecord> pager;
+	private final WarehouseValueAggregator aggregator = new WarehouseValueAggregator();
+	private final DbContextPool pool;
+	private final DbContext pooledContext;
+
+	/**
+	 * Creates the paged table reading the pages in the calling thread. The query is not read before
+	 * the first page is shown.
+	 *
+	 * @param ctx The database context.
+	 * @param selection The selection of InventoryCounter objects.
+	 * @param pageSize The number of rows per page.
+	 */
+	public PagedInventoryTable(DbContext ctx, Selection<InventoryCounter> selection, int pageSize) {
+		pool = null;
+		pooledContext = null;
+		pager = new TablePager<InventoryRecord>(records(ctx, selection), pageSize);
+	}
+
+	/**
+	 * Creates the paged table reading the following page in the background. The query is read with
+	 * a context borrowed from the pool until the table is closed.
+	 *
+	 * @param pool The pool the context reading the query is borrowed from.
+	 * @param selection The selection of InventoryCounter objects.
+	 * @param pageSize The number of rows per page.
+	 */
+	public PagedInventoryTable(DbContextPool pool, Selection<InventoryCounter> selection, int pageSize) {
+		this.pool = pool;
+		pooledContext = pool.borrow();
+		try {
+			pager = new TablePager<InventoryRecord>(records(pooledContext, selection), pageSize, true);
+		}
+		catch (final RuntimeException e) {
+			pool.invalidate(pooledContext);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the InventoryCounter objects of the selection as records.
+	 */
+	private static Iterator<InventoryRecord> records(DbContext ctx, Selection<InventoryCounter> selection) {
+		final InventoryTableLoader loader = new InventoryTableLoader(ctx);
+		// sets display mode to display unit as text
+		// this only works when getting the AbasUnit value with getString()
+		ctx.getSettings().setDisplayMode(DisplayMode.DISPLAY);
+		final Iterator<InventoryCounter> inventoryCounters = loader.createQuery(selection).iterator();
+		return new Iterator<InventoryRecord>() {
+			@Override
+			public boolean hasNext() {
+				return inventoryCounters.hasNext();
+			}
+
+			@Override
+			public InventoryRecord next() {
+				return loader.read(inventoryCounters.next());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Replaces the table rows by the rows of the next page.
+	 *
+	 * @param head The InventoryInfosystem instance.
+	 * @return True if there are more pages.
+	 */
+	public boolean showNextPage(InventoryInfoystem head) {
+		if (!pager.hasNextPage()) {
+			return false;
+		}
+		int item = pager.getRowCount();
+		head.table().clear();
+		for (final InventoryRecord record : pager.nextPage()) {
+			InventoryTableLoader.fillRow(head.table().appendRow(), ++item, record);
+			aggregator.add(record);
+		}
+		if (pager.hasNextPage()) {
+			return true;
+		}
+		InventoryTableLoader.fillSummaryRows(head, aggregator);
+		return false;
+	}
+
+	/**
+	 * Checks whether there are more pages.
+	 *
+	 * @return True if there are more pages.
+	 */
+	public boolean hasNextPage() {
+		return pager.hasNextPage();
+	}
+
+	/**
+	 * Stops reading the query and gives the borrowed context back to the pool.
+	 */
+	@Override
+	public void close() {
+		try {
+			pager.close();
+		}
+		finally {
+			if (pooledContext != null) {
+				pool.release(pooledContext);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package de.abas.examples.infosystemcontrol;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.schema.part.Product;
+
+/**
+ * Sums up the warehouse values of InventoryCounter objects per team, per article and in total
+ * while they are read, so no second pass over the selection is needed.
+ *
+ * All methods are thread-safe. If a selection is split into partitions, e.g. date ranges read in
+ * parallel, each partition can use its own aggregator and the results are combined with
+ * {@link #merge(WarehouseValueAggregator)}.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class WarehouseValueAggregator {
+
+	/**
+	 * The warehouse value of one article.
+	 */
+	public static class ArticleTotal {
+		private final Product article;
+		private BigDecimal value = BigDecimal.ZERO;
+
+		private ArticleTotal(Product article) {
+			this.article = article;
+		}
+
+		public Product getArticle() {
+			return article;
+		}
+
+		public BigDecimal getValue() {
+			return value;
+		}
+	}
+
+	private final Map<Integer, BigDecimal> teamTotals = new TreeMap<Integer, BigDecimal>();
+	private final Map<Id, ArticleTotal> articleTotals = new LinkedHashMap<Id, ArticleTotal>();
+	private BigDecimal total = BigDecimal.ZERO;
+	private int count = 0;
+
+	/**
+	 * Adds the warehouse value of an InventoryCounter object.
+	 *
+	 * @param record The values of the InventoryCounter object.
+	 */
+	public void add(InventoryRecord record) {
+		final BigDecimal value = record.getWarehouseValue();
+		synchronized (this) {
+			addTeamValue(record.getTeam(), value);
+			if (record.getArticle() != null) {
+				addArticleValue(record.getArticle(), value);
+			}
+			total = total.add(value);
+			count++;
+		}
+	}
+
+	/**
+	 * Removes the warehouse value of an InventoryCounter object added before, e.g. because the
+	 * object has changed.
+	 *
+	 * @param record The values of the InventoryCounter object when it was added.
+	 */
+	public void remove(InventoryRecord record) {
+		final BigDecimal value = record.getWarehouseValue().negate();
+		synchronized (this) {
+			addTeamValue(record.getTeam(), value);
+			if (record.getArticle() != null) {
+				addArticleValue(record.getArticle(), value);
+			}
+			total = total.add(value);
+			count--;
+		}
+	}
+
+	/**
+	 * Adds the totals of another aggregator, e.g. of another partition of the selection.
+	 *
+	 * @param other The other aggregator.
+	 */
+	public void merge(WarehouseValueAggregator other) {
+		// copies the other totals first, so the two aggregators are never locked at the same time
+		final Map<Integer, BigDecimal> otherTeamTotals = other.getTeamTotals();
+		final List<ArticleTotal> otherArticleTotals = other.getArticleTotals();
+		final BigDecimal otherTotal;
+		final int otherCount;
+		synchronized (other) {
+			otherTotal = other.total;
+			otherCount = other.count;
+		}
+		synchronized (this) {
+			for (final Map.Entry<Integer, BigDecimal> entry : otherTeamTotals.entrySet()) {
+				addTeamValue(entry.getKey().intValue(), entry.getValue());
+			}
+			for (final ArticleTotal articleTotal : otherArticleTotals) {
+				addArticleValue(articleTotal.article, articleTotal.value);
+			}
+			total = total.add(otherTotal);
+			count += otherCount;
+		}
+	}
+
+	/**
+	 * Returns the warehouse value per team.
+	 *
+	 * @return A copy of the totals sorted by team.
+	 */
+	public synchronized Map<Integer, BigDecimal> getTeamTotals() {
+		return new TreeMap<Integer, BigDecimal>(teamTotals);
+	}
+
+	/**
+	 * Returns the warehouse value per article.
+	 *
+	 * @return A copy of the totals in the order the articles were added first.
+	 */
+	public synchronized List<ArticleTotal> getArticleTotals() {
+		final List<ArticleTotal> copy = new ArrayList<ArticleTotal>(articleTotals.size());
+		for (final ArticleTotal articleTotal : articleTotals.values()) {
+			final ArticleTotal articleCopy = new ArticleTotal(articleTotal.article);
+			articleCopy.value = articleTotal.value;
+			copy.add(articleCopy);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the total warehouse value.
+	 *
+	 * @return The sum of all warehouse values.
+	 */
+	public synchronized BigDecimal getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of InventoryCounter objects added.
+	 *
+	 * @return The number of objects.
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	private void addTeamValue(int team, BigDecimal value) {
+		final Integer key = Integer.valueOf(team);
+		final BigDecimal teamTotal = teamTotals.get(key);
+		teamTotals.put(key, teamTotal == null ? value : teamTotal.add(value));
+	}
+
+	private void addArticleValue(Product article, BigDecimal value) {
+		ArticleTotal articleTotal = articleTotals.get(article.id());
+		if (articleTotal == null) {
+			articleTotal = new ArticleTotal(article);
+			articleTotals.put(article.id(), articleTotal);
+		}
+		articleTotal.value = articleTotal.value.add(value);
+	}
+
+}
@@ -0,0 +1,81 @@
+package de.abas.examples.keytable;
+
+/**
+ * A key table with its partial keys and their meanings, as loaded by {@link KeyTableLoader}.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public final class KeyTableEntry {
+
+	private final String idno;
+	private final String swd;
+	private final String type;
+	private final PartialKeyMap partialKeys;
+
+	KeyTableEntry(String idno, String swd, String type, PartialKeyMap partialKeys) {
+		this.idno = idno;
+		this.swd = swd;
+		this.type = type;
+		this.partialKeys = partialKeys;
+	}
+
+	public String getIdno() {
+		return idno;
+	}
+
+	public String getSwd() {
+		return swd;
+	}
+
+	/**
+	 * Returns the type of the key table.
+	 *
+	 * @return The display string of the type.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the meaning of a partial key. If the partial key occurs in more than one row, the meaning
+	 * of the first row is returned.
+	 *
+	 * @param partialKey The partial key.
+	 * @return The meaning or null if the key table has no such partial key.
+	 */
+	public String getMeaning(String partialKey) {
+		return partialKeys.get(partialKey);
+	}
+
+	/**
+	 * Returns the number of table rows, including rows without or with a repeated partial key.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getPartialKeyCount() {
+		return partialKeys.size();
+	}
+
+	/**
+	 * Returns the partial key of a table row.
+	 *
+	 * @param index The position of the table row, starting with 0.
+	 * @return The partial key.
+	 */
+	public String getPartialKey(int index) {
+		return partialKeys.partialKeyAt(index);
+	}
+
+	/**
+	 * Returns the meaning of the partial key of a table row.
+	 *
+	 * @param index The position of the table row, starting with 0.
+	 * @return The meaning.
+	 */
+	public String getPartialKeyMeaning(int index) {
+		return partialKeys.meaningAt(index);
+	}
+
+}
@@ -0,0 +1,271 @@
+package de.abas.examples.keytable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.abas.erp.db.DbContext;
+import de.abas.examples.common.ConnectionProvider;
+import de.abas.examples.common.DbContextPool;
+
+/**
+ * In-memory index of all key tables, e.g. for event handlers showing the meaning of partial keys
+ * on every screen.
+ *
+ * The key tables are loaded by {@link KeyTableLoader} with the first access. When the index is
+ * older than the time to live, the next access starts reloading it in a background thread and
+ * still gets the old index, so no access waits for the database after the first one. A failed
+ * reload keeps the old index and is retried by the first access after the retry delay, so while the
+ * ERP server cannot be reached not every access borrows a context for another reload.
+ *
+ * {@link #forConnection(ConnectionProvider)} returns one index per connection profile and login
+ * shared by all callers of the JVM, e.g. the <code>ProductEventHandler</code> showing the meaning
+ * of the drawing norm on every screen.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class KeyTableIndex {
+
+	/**
+	 * Default time to live of the index.
+	 */
+	public static final long DEFAULT_TTL_MILLIS = 600000;
+
+	/**
+	 * Default delay before a failed reload is retried.
+	 */
+	public static final long DEFAULT_RETRY_MILLIS = 60000;
+
+	/**
+	 * The key tables of one load.
+	 */
+	private static class Snapshot {
+		private final List<KeyTableEntry> keyTables;
+		private final Map<String, KeyTableEntry> byName = new HashMap<String, KeyTableEntry>();
+
+		private Snapshot(List<KeyTableEntry> keyTables) {
+			this.keyTables = Collections.unmodifiableList(keyTables);
+			for (final KeyTableEntry keyTable : keyTables) {
+				byName.put(keyTable.getSwd(), keyTable);
+			}
+			// an idno wins over an equal search word of another key table
+			for (final KeyTableEntry keyTable : keyTables) {
+				byName.put(keyTable.getIdno(), keyTable);
+			}
+		}
+	}
+
+	/**
+	 * Loads the key tables with a borrowed context.
+	 */
+	interface Loader {
+		List<KeyTableEntry> load(DbContext ctx);
+	}
+
+	private static final Loader KEY_TABLE_LOADER = new Loader() {
+		@Override
+		public List<KeyTableEntry> load(DbContext ctx) {
+			return new KeyTableLoader(ctx).load();
+		}
+	};
+
+	private static final ConcurrentMap<String, KeyTableIndex> INDEXES = new ConcurrentHashMap<String, KeyTableIndex>();
+
+	private final DbContextPool pool;
+	private final long ttlMillis;
+	private final long retryMillis;
+	private final Loader loader;
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "KeyTableIndex-refresh");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private volatile Snapshot snapshot;
+	private volatile long refreshAt;
+	private volatile RuntimeException lastFailure;
+	private final AtomicInteger loadCount = new AtomicInteger();
+
+	/**
+	 * Creates the index. The key tables are not loaded before the first access.
+	 *
+	 * @param pool The pool of the contexts used to load the key tables.
+	 * @param ttlMillis The time to live of the index.
+	 */
+	public KeyTableIndex(DbContextPool pool, long ttlMillis) {
+		this(pool, ttlMillis, DEFAULT_RETRY_MILLIS, KEY_TABLE_LOADER);
+	}
+
+	/**
+	 * Creates an index loading the key tables with another loader.
+	 *
+	 * @param pool The pool of the contexts passed to the loader.
+	 * @param ttlMillis The time to live of the index.
+	 * @param retryMillis The delay before a failed reload is retried.
+	 * @param loader The loader.
+	 */
+	KeyTableIndex(DbContextPool pool, long ttlMillis, long retryMillis, Loader loader) {
+		this.pool = pool;
+		this.ttlMillis = ttlMillis;
+		this.retryMillis = retryMillis;
+		this.loader = loader;
+	}
+
+	/**
+	 * Returns the shared index for the login of the provider's connection profile. The key tables
+	 * are loaded with contexts of the shared {@link DbContextPool} of the login and are reloaded
+	 * after {@link #DEFAULT_TTL_MILLIS}.
+	 *
+	 * @param connectionProvider The connection data.
+	 * @return The shared index.
+	 */
+	public static KeyTableIndex forConnection(ConnectionProvider connectionProvider) {
+		final String key = connectionProvider.getConfig().getPoolKey();
+		KeyTableIndex index = INDEXES.get(key);
+		if (index == null) {
+			final KeyTableIndex newIndex = new KeyTableIndex(DbContextPool.forConnection(connectionProvider, "AJO-KeyTableIndex"),
+					DEFAULT_TTL_MILLIS);
+			index = INDEXES.putIfAbsent(key, newIndex);
+			if (index == null) {
+				index = newIndex;
+			}
+			else {
+				newIndex.close();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the meaning of a partial key.
+	 *
+	 * @param keyTable The search word or idno of the key table.
+	 * @param partialKey The partial key.
+	 * @return The meaning or null if there is no such key table or partial key.
+	 */
+	public String getMeaning(String keyTable, String partialKey) {
+		final KeyTableEntry entry = getKeyTable(keyTable);
+		return entry == null ? null : entry.getMeaning(partialKey);
+	}
+
+	/**
+	 * Gets a key table.
+	 *
+	 * @param keyTable The search word or idno of the key table.
+	 * @return The key table or null if there is no such key table.
+	 */
+	public KeyTableEntry getKeyTable(String keyTable) {
+		return current().byName.get(keyTable);
+	}
+
+	/**
+	 * Returns all key tables.
+	 *
+	 * @return The key tables in the order of the selection.
+	 */
+	public List<KeyTableEntry> getKeyTables() {
+		return current().keyTables;
+	}
+
+	/**
+	 * Loads the key tables now and replaces the index.
+	 */
+	public void refresh() {
+		final DbContext ctx = pool.borrow();
+		final List<KeyTableEntry> keyTables;
+		try {
+			keyTables = loader.load(ctx);
+		}
+		catch (RuntimeException e) {
+			pool.invalidate(ctx);
+			throw e;
+		}
+		pool.release(ctx);
+		// set first, so an access seeing the new index does not reload it again
+		refreshAt = System.currentTimeMillis() + ttlMillis;
+		snapshot = new Snapshot(keyTables);
+		loadCount.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of times the key tables were loaded.
+	 *
+	 * @return The number of loads.
+	 */
+	public int getLoadCount() {
+		return loadCount.get();
+	}
+
+	/**
+	 * Returns the exception thrown by the last background refresh.
+	 *
+	 * @return The exception or null if the last background refresh succeeded.
+	 */
+	public RuntimeException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Stops the background refresh.
+	 */
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the current index. Loads it if there is none, starts a background refresh if it is
+	 * expired and the retry delay of a failed refresh has passed.
+	 */
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					refresh();
+				}
+				current = snapshot;
+			}
+		}
+		else if (System.currentTimeMillis() >= refreshAt && refreshing.compareAndSet(false, true)) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							refresh();
+							lastFailure = null;
+						}
+						catch (RuntimeException e) {
+							lastFailure = e;
+							// the old index is used until the retry
+							refreshAt = System.currentTimeMillis() + retryMillis;
+						}
+						finally {
+							refreshing.set(false);
+						}
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				// closed, the old index is used
+				refreshing.set(false);
+			}
+		}
+		return current;
+	}
+
+}
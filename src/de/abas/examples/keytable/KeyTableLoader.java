@@ -0,0 +1,121 @@
+package de.abas.examples.keytable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.RowQuery;
+import de.abas.erp.db.schema.company.KeyTable;
+import de.abas.erp.db.schema.company.KeyTable.Row;
+import de.abas.erp.db.selection.RowSelectionBuilder;
+import de.abas.erp.db.selection.SelectionBuilder;
+
+/**
+ * Loads all key tables with their partial keys in two queries.
+ *
+ * The key tables are read by one selection and all table rows of all key tables by one row
+ * selection, instead of loading the rows of each key table separately with
+ * <code>keyTable.table().getRows()</code>. Both queries only read the fields needed.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class KeyTableLoader {
+
+	/**
+	 * The collected rows of one key table.
+	 */
+	private static class Builder {
+		private final String idno;
+		private final String swd;
+		private final String type;
+		private final List<String> partialKeys = new ArrayList<String>();
+		private final List<String> meanings = new ArrayList<String>();
+
+		private Builder(String idno, String swd, String type) {
+			this.idno = idno;
+			this.swd = swd;
+			this.type = type;
+		}
+
+		private KeyTableEntry build() {
+			return new KeyTableEntry(idno, swd, type, new PartialKeyMap(partialKeys, meanings));
+		}
+	}
+
+	private final DbContext ctx;
+
+	/**
+	 * Creates the loader.
+	 *
+	 * @param ctx The database context.
+	 */
+	public KeyTableLoader(DbContext ctx) {
+		this.ctx = ctx;
+	}
+
+	/**
+	 * Loads all key tables.
+	 *
+	 * @return The key tables in the order of the selection.
+	 */
+	public List<KeyTableEntry> load() {
+		final Map<Id, Builder> builders = new LinkedHashMap<Id, Builder>();
+
+		// selects all keys
+		final Query<KeyTable> queryKeyTable = ctx.createQuery(SelectionBuilder.create(KeyTable.class).build());
+		queryKeyTable.setFields(FieldSet.of("id", "idno", "swd", "type"));
+		queryKeyTable.setLazyLoad(false);
+		for (final KeyTable keyTable : queryKeyTable) {
+			builders.put(keyTable.id(), new Builder(keyTable.getIdno(), keyTable.getSwd(), keyTable.getType().getDisplayString()));
+		}
+
+		// selects the table rows of all keys
+		final RowQuery<KeyTable, Row> queryRows = ctx.createQuery(RowSelectionBuilder.create(KeyTable.class, Row.class).build());
+		queryRows.setFields(FieldSet.of("head", "partialKey", "partialKeyMeaning"));
+		queryRows.setLazyLoad(false);
+		for (final Row row : queryRows) {
+			final Builder builder = builders.get(row.header().id());
+			// keys created after the first selection are loaded with the next refresh
+			if (builder != null) {
+				builder.partialKeys.add(row.getPartialKey());
+				builder.meanings.add(row.getPartialKeyMeaning());
+			}
+		}
+
+		final List<KeyTableEntry> keyTables = new ArrayList<KeyTableEntry>(builders.size());
+		for (final Builder builder : builders.values()) {
+			keyTables.add(builder.build());
+		}
+		return keyTables;
+	}
+
+	/**
+	 * Loads all key tables and gets the meaning of a partial key.
+	 *
+	 * @param keyTable The search word or idno of the key table.
+	 * @param partialKey The partial key.
+	 * @return The meaning or null if there is no such key table or partial key.
+	 */
+	public String loadMeaning(String keyTable, String partialKey) {
+		KeyTableEntry found = null;
+		for (final KeyTableEntry entry : load()) {
+			// an idno wins over an equal search word of another key table
+			if (entry.getIdno().equals(keyTable)) {
+				found = entry;
+				break;
+			}
+			if (found == null && entry.getSwd().equals(keyTable)) {
+				found = entry;
+			}
+		}
+		return found == null ? null : found.getMeaning(partialKey);
+	}
+
+}
@@ -0,0 +1,112 @@
+package de.abas.examples.keytable;
+
+import java.util.List;
+
+/**
+ * Maps the partial keys of a key table to their meanings.
+ *
+ * The map is filled once and not changed afterwards. The partial keys and meanings of all table
+ * rows are kept in two arrays in the order of the rows, including empty and repeated partial keys,
+ * so the rows can be iterated completely. The hash table only holds the array position of the first
+ * row of each partial key and is searched by linear probing. So the map needs no entry objects and
+ * is about a third of the size of a HashMap with the same content.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+final class PartialKeyMap {
+
+	private final String[] partialKeys;
+	private final String[] meanings;
+	// position + 1 of the first row with the partial key in partialKeys, 0 if the slot is empty
+	private final int[] slots;
+	private final int mask;
+
+	/**
+	 * Creates the map. If a partial key occurs in more than one row, the meaning of the first row is
+	 * found. Rows without partial key are kept but cannot be found.
+	 *
+	 * @param partialKeys The partial keys in the order of the table rows.
+	 * @param meanings The meanings of the partial keys.
+	 */
+	PartialKeyMap(List<String> partialKeys, List<String> meanings) {
+		if (partialKeys.size() != meanings.size()) {
+			throw new IllegalArgumentException(partialKeys.size() + " partial keys but " + meanings.size() + " meanings");
+		}
+		this.partialKeys = partialKeys.toArray(new String[partialKeys.size()]);
+		this.meanings = meanings.toArray(new String[meanings.size()]);
+
+		// at most half of the slots are used, so the probe sequences stay short
+		int capacity = 2;
+		while (capacity < this.partialKeys.length * 2) {
+			capacity <<= 1;
+		}
+		slots = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < this.partialKeys.length; i++) {
+			if (this.partialKeys[i] != null) {
+				final int slot = slotOf(this.partialKeys[i]);
+				if (slots[slot] == 0) {
+					slots[slot] = i + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the meaning of a partial key.
+	 *
+	 * @param partialKey The partial key.
+	 * @return The meaning or null if the key table has no such partial key.
+	 */
+	String get(String partialKey) {
+		if (partialKey == null) {
+			return null;
+		}
+		final int position = slots[slotOf(partialKey)];
+		return position == 0 ? null : meanings[position - 1];
+	}
+
+	/**
+	 * Returns the number of table rows.
+	 *
+	 * @return The number of rows.
+	 */
+	int size() {
+		return partialKeys.length;
+	}
+
+	/**
+	 * Returns the partial key of a table row.
+	 *
+	 * @param index The position in the order of the table rows.
+	 * @return The partial key.
+	 */
+	String partialKeyAt(int index) {
+		return partialKeys[index];
+	}
+
+	/**
+	 * Returns the meaning of a table row.
+	 *
+	 * @param index The position in the order of the table rows.
+	 * @return The meaning.
+	 */
+	String meaningAt(int index) {
+		return meanings[index];
+	}
+
+	/**
+	 * Finds the slot holding the partial key or the empty slot where it belongs.
+	 */
+	private int slotOf(String partialKey) {
+		final int hash = partialKey.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (slots[slot] != 0 && !partialKeys[slots[slot] - 1].equals(partialKey)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+}
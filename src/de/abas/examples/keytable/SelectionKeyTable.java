@@ -1,15 +1,15 @@
 package de.abas.examples.keytable;
 
+import java.util.List;
+
 import de.abas.erp.db.DbContext;
-import de.abas.erp.db.Query;
-import de.abas.erp.db.schema.company.KeyTable;
-import de.abas.erp.db.schema.company.KeyTable.Row;
-import de.abas.erp.db.selection.SelectionBuilder;
 import de.abas.examples.common.AbstractAjoAccess;
 
 /**
  * This class selects all keys and its table rows. It works in client and server mode.
  * 
+ * Called with a key and a partial key as arguments, it only shows the meaning of the partial key.
+ * 
  * @author abas Software AG
  * @version 1.0
  *
@@ -29,18 +29,22 @@ public class SelectionKeyTable extends AbstractAjoAccess {
     public int run(String[] args) {
         DbContext dbContext = getDbContext();
         
-        // selects all keys
-        SelectionBuilder<KeyTable> selectionBuilder = SelectionBuilder.create(KeyTable.class);
-        Query<KeyTable> queryKeyTable = dbContext.createQuery(selectionBuilder.build());
+        if (args.length == 2) {
+            // loads all keys and their table rows with the program's context and looks up the meaning
+            String meaning = new KeyTableLoader(dbContext).loadMeaning(args[0], args[1]);
+            dbContext.out().println(args[0] + " - " + args[1] + " - " + meaning);
+            return 0;
+        }
+        
+        // loads all keys and the table rows of all keys with two queries instead of one query per key
+        List<KeyTableEntry> keyTables = new KeyTableLoader(dbContext).load();
         
         // iterates all keys
-        for (KeyTable keyTable : queryKeyTable) {
-            dbContext.out().println(keyTable.getIdno() + " - " + keyTable.getSwd() + " - " + keyTable.getType().getDisplayString());
-            // gets each key's table rows
-            Iterable<Row> rows = keyTable.table().getRows();
+        for (KeyTableEntry keyTable : keyTables) {
+            dbContext.out().println(keyTable.getIdno() + " - " + keyTable.getSwd() + " - " + keyTable.getType());
             // iterates each key's table rows
-            for (Row row : rows) {
-                dbContext.out().println("-- " + row.getPartialKey() + " - " + row.getPartialKeyMeaning());
+            for (int i = 0; i < keyTable.getPartialKeyCount(); i++) {
+                dbContext.out().println("-- " + keyTable.getPartialKey(i) + " - " + keyTable.getPartialKeyMeaning(i));
             }
         }
         
@@ -1,7 +1,6 @@
 package de.abas.examples.languageindependency;
 
 import java.util.Locale;
-import java.util.ResourceBundle;
 
 import de.abas.eks.jfop.FOPException;
 import de.abas.eks.jfop.remote.ContextRunnable;
@@ -9,6 +8,7 @@ import de.abas.eks.jfop.remote.EKS;
 import de.abas.eks.jfop.remote.FO;
 import de.abas.eks.jfop.remote.FOPSessionContext;
 import de.abas.erp.api.gui.TextBox;
+import de.abas.examples.common.LocalizedTextService;
 
 /**
  * This class shows how to use language independent texts. The translation of each text is stored in a Property file with the locale as extension in the file.
@@ -20,8 +20,18 @@ import de.abas.erp.api.gui.TextBox;
  */
 public class LanguageIndependentTexts implements ContextRunnable {
 
+	// resolves the bundle once per locale and parses each text once
+	private static final LocalizedTextService TEXTS = new LocalizedTextService(LanguageIndependentTexts.class.getName(),
+			LanguageIndependentTexts.class.getClassLoader());
+
+	private Locale operatingLangLocale = null;
+
 	@Override
 	public int runFop(FOPSessionContext ctx, String[] args) throws FOPException {
+		// gets current operating language once and parses all its texts
+		operatingLangLocale = ctx.getOperatingLangLocale();
+		TEXTS.warmUp(operatingLangLocale);
+
 		// TextBox with simple text
 		new TextBox(ctx.getDbContext(), getTextInOperatingLanguage("LanguageIndependentTexts.1"), getTextInOperatingLanguage("LanguageIndependentTexts.2")).show();
 
@@ -40,14 +50,12 @@ public class LanguageIndependentTexts implements ContextRunnable {
 	 * @return Returns text in current operating language.
 	 */
 	protected String getTextInOperatingLanguage(String key, Object... params) {
-		// gets current operating language
-		Locale operatingLangLocale = EKS.getFOPSessionContext().getOperatingLangLocale();
+		// gets current operating language, if not done in runFop()
+		Locale locale = operatingLangLocale != null ? operatingLangLocale : EKS.getFOPSessionContext().getOperatingLangLocale();
 		// gets text specified by key from ControlFOPCopySystem.properties in
-		// previously specified operating language
-		String bundle = ResourceBundle.getBundle(LanguageIndependentTexts.class.getName(), operatingLangLocale, LanguageIndependentTexts.class.getClassLoader()).getString(key);
-		// fills replacement characters (%s) with the according parameters from
-		// params
-		return String.format(bundle, params);
+		// previously specified operating language and fills replacement
+		// characters (%s) with the according parameters from params
+		return TEXTS.getText(locale, key, params);
 	}
 
 }
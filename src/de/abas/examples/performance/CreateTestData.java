@@ -2,10 +2,10 @@ package de.abas.examples.performance;
 
 import de.abas.eks.jfop.FOPException;
 import de.abas.eks.jfop.remote.ContextRunnable;
+import de.abas.eks.jfop.remote.FO;
 import de.abas.eks.jfop.remote.FOPSessionContext;
 import de.abas.erp.db.DbContext;
-import de.abas.erp.db.schema.part.ProductEditor;
-import de.abas.erp.db.schema.part.ProductEditor.Row;
+import de.abas.examples.common.DbContextPool;
 
 /**
  * Creates test data for <code>PerformanceOptimizationSalesOrder</code>.
@@ -19,34 +19,41 @@ public class CreateTestData implements ContextRunnable {
 	private DbContext ctx = null;
 
 	/**
-	 * Creates one product with AJOPERF{i} as search word.
-	 *
-	 * @param i Search word suffix.
-	 */
-	private void createOneProduct(int i) {
-		final ProductEditor newObject = ctx.newObject(ProductEditor.class);
-		newObject.setSwd("AJOPERF" + i);
-		final Row newRow = newObject.table().appendRow();
-		newRow.setString("productListElem", "10001");
-		newRow.setElemQty(1);
-		newObject.commit();
-	}
-
-	/**
-	 * Calls createOneProduct method for {count} times.
+	 * Creates {count} products with AJOPERF{i} as search word on several client contexts in
+	 * parallel.
 	 *
 	 * @param count Number of products to create.
+	 * @param swdPrefix Search word prefix.
+	 * @param rowsPerProduct Number of table rows per product.
+	 * @param parallelism Number of client contexts used at the same time.
 	 */
-	private void createSalesOrders(int count) {
-		for (int i = 0; i < count; i++) {
-			createOneProduct(i);
+	private void createSalesOrders(int count, String swdPrefix, int rowsPerProduct, int parallelism) {
+		final DbContextPool.Settings settings = new DbContextPool.Settings();
+		settings.maxSize = parallelism;
+		settings.evictionIntervalMillis = 0;
+		final DbContextPool pool = new DbContextPool("AJO-TestData", new LocalClientContextFactory(FO.Gvar("einmalpw"), "AJO-TestData-ClientContext"), settings);
+		try {
+			final TestDataGenerator generator = new TestDataGenerator(pool, count, swdPrefix, rowsPerProduct, parallelism);
+			final int created = generator.run(ctx.out());
+			ctx.out().println(created + " products created");
+		}
+		finally {
+			pool.close();
 		}
 	}
 
+	/**
+	 * Arguments after the class name (all optional): count, search word prefix, rows per product,
+	 * parallelism. Defaults: 5000 AJOPERF 1 4
+	 */
 	@Override
 	public int runFop(FOPSessionContext ctx, String[] args) throws FOPException {
 		this.ctx = ctx.getDbContext();
-		createSalesOrders(5000);
+		final int count = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+		final String swdPrefix = args.length > 2 ? args[2] : "AJOPERF";
+		final int rowsPerProduct = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		final int parallelism = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+		createSalesOrders(count, swdPrefix, rowsPerProduct, parallelism);
 		return 0;
 	}
 
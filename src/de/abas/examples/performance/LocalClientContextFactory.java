@@ -0,0 +1,36 @@
+package de.abas.examples.performance;
+
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.util.ContextHelper;
+import de.abas.examples.common.ClientContextFactory;
+
+/**
+ * Creates client contexts on the local ERP client from within a FOP, as
+ * <code>PerformanceOptimization.runClient()</code> does.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class LocalClientContextFactory extends ClientContextFactory {
+
+	private final String password;
+
+	/**
+	 * Creates the factory. The one-time password has to be read from the G buffer (einmalpw) in
+	 * the FOP thread, the contexts themselves may be created in any thread.
+	 *
+	 * @param password The one-time password.
+	 * @param name The name of the client contexts as shown in the ERP.
+	 */
+	public LocalClientContextFactory(String password, String name) {
+		super(name);
+		this.password = password;
+	}
+
+	@Override
+	public DbContext create() {
+		return ContextHelper.createClientContext(null, 6550, "", password, getName());
+	}
+
+}
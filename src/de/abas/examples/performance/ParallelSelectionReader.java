@@ -0,0 +1,392 @@
+package de.abas.examples.performance;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.abas.ceks.jedp.EDPSession;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.SelectableObject;
+import de.abas.erp.db.selection.ExpertSelection;
+import de.abas.erp.db.util.LegacyUtil;
+import de.abas.examples.common.DbContextPool;
+
+/**
+ * Reads the objects of an expert selection in parallel.
+ *
+ * The selection is split into disjoint idno ranges, see {@link KeyRange#partition(List, int)}. Every range is read on its own client context
+ * borrowed from a {@link DbContextPool}, so the throughput is no longer limited by one EDP
+ * connection. The values extracted from the objects are merged into one iteration in arrival order.
+ *
+ * The objects must not be used outside of {@link ObjectReader#read(Object)}: their client context
+ * is given back to the pool as soon as the range is read.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ * @param <T> The type of the selected objects.
+ * @param <R> The type of the values extracted from the objects.
+ */
+public class ParallelSelectionReader<T extends SelectableObject, R> implements Iterable<R> {
+
+	/**
+	 * Extracts the needed values from a selected object. Called in the partition's thread.
+	 *
+	 * @param <T> The type of the selected objects.
+	 * @param <R> The type of the extracted values.
+	 */
+	public interface ObjectReader<T, R> {
+		public R read(T object);
+	}
+
+	/**
+	 * A range of idnos, both bounds included.
+	 */
+	public static class KeyRange {
+		private final String from;
+		private final String to;
+
+		public KeyRange(String from, String to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Splits the idnos of a selection into ranges with about the same number of idnos. The
+		 * bounds are idnos of the selection, so every idno is in exactly one range, whatever its
+		 * length or characters.
+		 *
+		 * @param idnos The idnos of the selection, sorted in ascending order without duplicates.
+		 * @param count The maximum number of ranges.
+		 * @return The ranges, fewer than count if there are fewer idnos.
+		 */
+		public static List<KeyRange> partition(List<String> idnos, int count) {
+			if (count < 1) {
+				throw new IllegalArgumentException("The number of ranges must be positive: " + count);
+			}
+			final List<KeyRange> ranges = new ArrayList<KeyRange>();
+			final int size = idnos.size();
+			final int rangeCount = Math.min(count, size);
+			int start = 0;
+			for (int i = 1; i <= rangeCount; i++) {
+				final int end = (int) ((long) size * i / rangeCount);
+				ranges.add(new KeyRange(idnos.get(start), idnos.get(end - 1)));
+				start = end;
+			}
+			return ranges;
+		}
+
+		/**
+		 * Returns the range as expert selection criterion.
+		 *
+		 * @return The criterion, e.g. idno=10000!19999.
+		 */
+		public String toCriterion() {
+			return "idno=" + from + "!" + to;
+		}
+
+		@Override
+		public String toString() {
+			return from + "!" + to;
+		}
+	}
+
+	/**
+	 * Number of objects and duration of one range.
+	 */
+	public static class PartitionStats {
+		private final KeyRange range;
+		private final int counter;
+		private final long delta;
+
+		private PartitionStats(KeyRange range, int counter, long delta) {
+			this.range = range;
+			this.counter = counter;
+			this.delta = delta;
+		}
+
+		public KeyRange getRange() {
+			return range;
+		}
+
+		public int getCounter() {
+			return counter;
+		}
+
+		public long getDelta() {
+			return delta;
+		}
+	}
+
+	// marks the end of one partition in the queue
+	private static final Object END_OF_PARTITION = new Object();
+	// stands for null values in the queue
+	private static final Object NULL_VALUE = new Object();
+
+	private final DbContextPool pool;
+	private final Class<T> type;
+	private final String criteria;
+	private final List<KeyRange> ranges;
+	private final ObjectReader<T, R> reader;
+
+	private String[] fields = null;
+	private int dataSetSize = 0;
+	private int queueCapacity = 10000;
+
+	private final List<PartitionStats> partitionStats = Collections.synchronizedList(new ArrayList<PartitionStats>());
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private ExecutorService executor = null;
+	private long start;
+	private long delta;
+	private int counter;
+
+	/**
+	 * Creates the reader.
+	 *
+	 * @param pool The pool the client contexts are borrowed from.
+	 * @param type The type of the selected objects.
+	 * @param criteria The expert selection criteria without idno range, e.g. swd=AJOPERF.
+	 * @param ranges The disjoint idno ranges, one partition each.
+	 * @param reader Extracts the needed values from each object.
+	 */
+	public ParallelSelectionReader(DbContextPool pool, Class<T> type, String criteria, List<KeyRange> ranges, ObjectReader<T, R> reader) {
+		this.pool = pool;
+		this.type = type;
+		this.criteria = criteria;
+		this.ranges = ranges;
+		this.reader = reader;
+	}
+
+	/**
+	 * Restricts the loaded fields, see {@link Query#setFields(FieldSet)}. Lazy loading is disabled
+	 * if fields are set.
+	 *
+	 * @param fields The field names.
+	 * @return This instance.
+	 */
+	public ParallelSelectionReader<T, R> setFields(String... fields) {
+		this.fields = fields;
+		return this;
+	}
+
+	/**
+	 * Sets the EDP data set size of every partition's session.
+	 *
+	 * @param dataSetSize The number of objects per round-trip.
+	 * @return This instance.
+	 */
+	public ParallelSelectionReader<T, R> setDataSetSize(int dataSetSize) {
+		this.dataSetSize = dataSetSize;
+		return this;
+	}
+
+	/**
+	 * Sets the number of values buffered between the partitions and the consumer. Partitions wait
+	 * if the consumer is slower.
+	 *
+	 * @param queueCapacity The capacity.
+	 * @return This instance.
+	 */
+	public ParallelSelectionReader<T, R> setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * Starts reading all partitions. Can only be called once.
+	 *
+	 * @return The values of all partitions.
+	 */
+	@Override
+	public synchronized Iterator<R> iterator() {
+		if (executor != null) {
+			throw new IllegalStateException("ParallelSelectionReader can only be iterated once");
+		}
+		start = System.currentTimeMillis();
+		final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueCapacity);
+		executor = Executors.newFixedThreadPool(Math.max(1, ranges.size()), new ThreadFactory() {
+			private int number = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable runnable) {
+				final Thread thread = new Thread(runnable, "ParallelSelectionReader-" + number++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (final KeyRange range : ranges) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					readPartition(range, queue);
+				}
+			});
+		}
+		executor.shutdown();
+		return new MergingIterator(queue);
+	}
+
+	/**
+	 * Stops all partitions still reading. Has to be called if the iteration is not completed,
+	 * otherwise the partitions keep their client contexts.
+	 */
+	public synchronized void cancel() {
+		failure.compareAndSet(null, new CancellationException("ParallelSelectionReader was cancelled"));
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Prints the number of objects, duration and objects/s of every partition and in total.
+	 *
+	 * @param out The output.
+	 */
+	public void printStats(PrintWriter out) {
+		synchronized (partitionStats) {
+			for (PartitionStats stats : partitionStats) {
+				out.println("========== partition idno=" + stats.getRange());
+				PerformanceOptimization.printStats(out, stats.getCounter(), stats.getDelta());
+			}
+		}
+		out.println("========== total (" + ranges.size() + " partitions)");
+		PerformanceOptimization.printStats(out, counter, delta);
+	}
+
+	/**
+	 * Returns the statistics of all partitions read so far.
+	 *
+	 * @return The statistics.
+	 */
+	public List<PartitionStats> getPartitionStats() {
+		synchronized (partitionStats) {
+			return new ArrayList<PartitionStats>(partitionStats);
+		}
+	}
+
+	/**
+	 * Reads one idno range on a borrowed client context and puts the extracted values into the
+	 * queue.
+	 *
+	 * @param range The idno range.
+	 * @param queue The queue shared by all partitions.
+	 */
+	private void readPartition(KeyRange range, BlockingQueue<Object> queue) {
+		final long partitionStart = System.currentTimeMillis();
+		int partitionCounter = 0;
+		try {
+			final DbContext ctx = pool.borrow();
+			try {
+				if (dataSetSize > 0) {
+					final EDPSession session = LegacyUtil.getSession(ctx);
+					session.setDataSetSize(dataSetSize);
+				}
+				final Query<T> query = ctx.createQuery(ExpertSelection.create(type, criteria + ";" + range.toCriterion()));
+				if (fields != null) {
+					query.setFields(FieldSet.of(fields));
+					query.setLazyLoad(false);
+				}
+				for (final T object : query) {
+					if (failure.get() != null) {
+						break;
+					}
+					final R value = reader.read(object);
+					queue.put(value == null ? NULL_VALUE : value);
+					partitionCounter++;
+				}
+			}
+			finally {
+				pool.release(ctx);
+			}
+			partitionStats.add(new PartitionStats(range, partitionCounter, System.currentTimeMillis() - partitionStart));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		}
+		catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+		finally {
+			try {
+				queue.put(END_OF_PARTITION);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Takes the values from the queue until every partition has ended.
+	 */
+	private class MergingIterator implements Iterator<R> {
+		private final BlockingQueue<Object> queue;
+		private int runningPartitions = ranges.size();
+		private Object next = null;
+
+		private MergingIterator(BlockingQueue<Object> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && runningPartitions > 0) {
+				final Object element;
+				try {
+					element = queue.take();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancel();
+					throw new RuntimeException("Interrupted while reading partitions", e);
+				}
+				if (element == END_OF_PARTITION) {
+					runningPartitions--;
+				}
+				else {
+					next = element;
+				}
+			}
+			if (next == null) {
+				delta = System.currentTimeMillis() - start;
+				final Throwable throwable = failure.get();
+				if (throwable != null) {
+					throw new RuntimeException("Reading partitions failed: " + throwable.getMessage(), throwable);
+				}
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public R next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			@SuppressWarnings("unchecked")
+			final R value = (R) (next == NULL_VALUE ? null : next);
+			next = null;
+			counter++;
+			return value;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
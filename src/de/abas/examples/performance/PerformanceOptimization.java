@@ -1,5 +1,11 @@
 package de.abas.examples.performance;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
 import de.abas.ceks.jedp.EDPSession;
 import de.abas.eks.jfop.FOPException;
 import de.abas.eks.jfop.remote.ContextRunnable;
@@ -14,6 +20,9 @@ import de.abas.erp.db.selection.ExpertSelection;
 import de.abas.erp.db.selection.Selection;
 import de.abas.erp.db.util.ContextHelper;
 import de.abas.erp.db.util.LegacyUtil;
+import de.abas.examples.common.DbContextPool;
+import de.abas.examples.performance.ParallelSelectionReader.KeyRange;
+import de.abas.examples.performance.ParallelSelectionReader.ObjectReader;
 
 /**
  * This class shows how to optimize the performance of database requests with AJO.
@@ -33,10 +42,21 @@ public class PerformanceOptimization implements ContextRunnable {
 	 * @param delta Time delta.
 	 */
 	private void printStats(int counter, long delta) {
-		ctx.out().println("Number of objects: " + counter);
-		ctx.out().println("Duration: " + delta + "ms");
+		printStats(ctx.out(), counter, delta);
+	}
+
+	/**
+	 * Print info about performance.
+	 *
+	 * @param out The output.
+	 * @param counter Number of objects.
+	 * @param delta Time delta.
+	 */
+	static void printStats(PrintWriter out, int counter, long delta) {
+		out.println("Number of objects: " + counter);
+		out.println("Duration: " + delta + "ms");
 		final double deltaInSecond = (double) delta / 1000;
-		ctx.out().println("Performance: " + (int) (counter / deltaInSecond) + " objects/s!!!");
+		out.println("Performance: " + (int) (counter / deltaInSecond) + " objects/s!!!");
 	}
 
 	/**
@@ -92,12 +112,80 @@ public class PerformanceOptimization implements ContextRunnable {
 		}
 	}
 
+	/**
+	 * Runs selection on several client contexts in parallel, one idno range each.
+	 *
+	 * The ranges are built from the idnos of the selection, which are read first on one client
+	 * context. The number of objects read in parallel has to match the number of idnos, otherwise
+	 * the ranges did not cover the selection.
+	 *
+	 * @param partitions Number of idno ranges read in parallel.
+	 */
+	private void runClientParallel(int partitions) {
+		final DbContextPool.Settings settings = new DbContextPool.Settings();
+		settings.maxSize = partitions;
+		settings.evictionIntervalMillis = 0;
+		final DbContextPool pool = new DbContextPool("AJO-Parallel", new LocalClientContextFactory(FO.Gvar("einmalpw"), "AJO-Parallel-ClientContext"), settings);
+		try {
+			final List<String> idnos = readIdnos(pool);
+			final ParallelSelectionReader<Product, String> reader = new ParallelSelectionReader<Product, String>(pool, Product.class, "swd=AJOPERF",
+					KeyRange.partition(idnos, partitions), new ObjectReader<Product, String>() {
+						@Override
+						public String read(Product product) {
+							product.getSwd();
+							return product.getIdno();
+						}
+					});
+			reader.setDataSetSize(1000).setFields("id", "idno", "swd");
+
+			int counter = 0;
+			for (final String idno : reader) {
+				if (idno != null) {
+					counter++;
+				}
+			}
+
+			ctx.out().println("========== runClientParallel() Partitions: " + partitions + ", objects read: " + counter);
+			reader.printStats(ctx.out());
+			if (counter != idnos.size()) {
+				throw new RuntimeException("The partitions read " + counter + " objects, the selection has " + idnos.size());
+			}
+		}
+		finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * Reads the idnos of the test products on one client context.
+	 *
+	 * @param pool The pool the client context is borrowed from.
+	 * @return The idnos sorted in ascending order.
+	 */
+	private List<String> readIdnos(DbContextPool pool) {
+		final DbContext clientContext = pool.borrow();
+		try {
+			final Query<Product> query = clientContext.createQuery(ExpertSelection.create(Product.class, "swd=AJOPERF"));
+			query.setFields(FieldSet.of("id", "idno"));
+			query.setLazyLoad(false);
+			final SortedSet<String> idnos = new TreeSet<String>();
+			for (final Product product : query) {
+				idnos.add(product.getIdno());
+			}
+			return new ArrayList<String>(idnos);
+		}
+		finally {
+			pool.release(clientContext);
+		}
+	}
+
 	@Override
 	public int runFop(FOPSessionContext ctx, String[] args) throws FOPException {
 		this.ctx = ctx.getDbContext();
 		runOnServer();
 		runClient(false);
 		runClient(true);
+		runClientParallel(4);
 		return 0;
 	}
 
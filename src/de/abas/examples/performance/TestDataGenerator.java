@@ -0,0 +1,360 @@
+package de.abas.examples.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.schema.part.ProductEditor;
+import de.abas.erp.db.schema.part.ProductEditor.Row;
+import de.abas.erp.db.selection.Conditions;
+import de.abas.erp.db.selection.SelectionBuilder;
+import de.abas.erp.db.util.QueryUtil;
+import de.abas.examples.common.DbContextPool;
+
+/**
+ * Creates test products with the search words {prefix}0 to {prefix}{count - 1} on several client
+ * contexts in parallel.
+ *
+ * The products are handed to the workers through a bounded queue, so the producer never runs
+ * further ahead than the queue capacity. A progress file holds the index below which all products
+ * are created and the index below which products may have been started. The second index is
+ * written before a product is handed to a worker. After a crash the generator resumes from the
+ * first index; products up to the second index are only created if they do not exist yet.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class TestDataGenerator {
+
+	// marks the end of the work for one worker
+	private static final Integer NO_MORE_WORK = Integer.valueOf(-1);
+
+	private final DbContextPool pool;
+	private final int count;
+	private final String swdPrefix;
+	private final int rowsPerProduct;
+	private final int parallelism;
+	private final File progressFile;
+	private final long reportIntervalMillis = 5000;
+
+	// indexes of created products, guarded by this
+	private final BitSet created = new BitSet();
+	private int createdCount = 0;
+	// the progress as written to the progress file, guarded by this
+	private int watermark = 0;
+	private int startedUpTo = 0;
+	private int skippedCount = 0;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * Creates the generator.
+	 *
+	 * @param pool The pool the workers' client contexts are borrowed from. Should allow at least
+	 * parallelism contexts.
+	 * @param count The number of products.
+	 * @param swdPrefix The search word prefix.
+	 * @param rowsPerProduct The number of table rows per product.
+	 * @param parallelism The number of products created at the same time.
+	 */
+	public TestDataGenerator(DbContextPool pool, int count, String swdPrefix, int rowsPerProduct, int parallelism) {
+		this.pool = pool;
+		this.count = count;
+		this.swdPrefix = swdPrefix;
+		this.rowsPerProduct = rowsPerProduct;
+		this.parallelism = parallelism;
+		progressFile = new File(swdPrefix + ".progress");
+	}
+
+	/**
+	 * Creates all products not created by a previous run. Progress and ETA are printed to out,
+	 * which is only used by the calling thread.
+	 *
+	 * @param out The output.
+	 * @return The number of products created by this run.
+	 */
+	public int run(PrintWriter out) {
+		final int[] progress = readProgress();
+		final int resumeIndex = progress[0];
+		// products started by the last run may already exist
+		final int uncertainUpTo = progress[1];
+		synchronized (this) {
+			created.set(0, resumeIndex);
+			watermark = resumeIndex;
+			startedUpTo = Math.max(resumeIndex, uncertainUpTo);
+		}
+		if (resumeIndex > 0) {
+			out.println("Resuming at " + swdPrefix + resumeIndex);
+		}
+
+		final BlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>(queueCapacity());
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private int number = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable runnable) {
+				final Thread thread = new Thread(runnable, "TestDataGenerator-" + number++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < parallelism; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					work(queue, uncertainUpTo);
+				}
+			});
+		}
+		executor.shutdown();
+
+		final long start = System.currentTimeMillis();
+		long nextReport = start + reportIntervalMillis;
+		try {
+			for (int i = resumeIndex; i < count; i++) {
+				started(i);
+				if (!offer(queue, Integer.valueOf(i))) {
+					break;
+				}
+				if (System.currentTimeMillis() >= nextReport) {
+					report(out, start, resumeIndex);
+					nextReport += reportIntervalMillis;
+				}
+			}
+			for (int i = 0; i < parallelism && offer(queue, NO_MORE_WORK); i++) {
+				// one end marker per worker
+			}
+			if (failure.get() != null) {
+				executor.shutdownNow();
+			}
+			while (!executor.awaitTermination(reportIntervalMillis, TimeUnit.MILLISECONDS)) {
+				report(out, start, resumeIndex);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+		report(out, start, resumeIndex);
+
+		final Throwable throwable = failure.get();
+		if (throwable != null) {
+			throw new RuntimeException("Creating test data failed, restart to resume: " + throwable.getMessage(), throwable);
+		}
+		if (readProgress()[0] >= count) {
+			progressFile.delete();
+		}
+		synchronized (this) {
+			return createdCount;
+		}
+	}
+
+	/**
+	 * Records that a product is about to be handed to a worker. The index below which products may
+	 * have been started is written ahead in steps of the queue capacity, so the progress file is
+	 * not written for every product.
+	 *
+	 * @param index The index of the product.
+	 */
+	private synchronized void started(int index) {
+		if (index >= startedUpTo) {
+			startedUpTo = Math.min(count, index + queueCapacity());
+			writeProgress();
+		}
+	}
+
+	/**
+	 * Puts a value into the queue, waiting while the workers are behind.
+	 *
+	 * @param queue The queue.
+	 * @param value The value.
+	 * @return False if a worker failed and the value was not put, else true.
+	 * @throws InterruptedException Exception thrown if the thread is interrupted while waiting.
+	 */
+	private boolean offer(BlockingQueue<Integer> queue, Integer value) throws InterruptedException {
+		while (failure.get() == null) {
+			if (queue.offer(value, 1, TimeUnit.SECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes indexes from the queue and creates the products on one borrowed client context.
+	 *
+	 * @param queue The queue.
+	 * @param uncertainUpTo Index up to which products are checked for existence before creating.
+	 */
+	private void work(BlockingQueue<Integer> queue, int uncertainUpTo) {
+		DbContext ctx = null;
+		try {
+			ctx = pool.borrow();
+			while (true) {
+				final int index = queue.take().intValue();
+				if (index < 0 || failure.get() != null) {
+					break;
+				}
+				if (index < uncertainUpTo && exists(ctx, swdPrefix + index)) {
+					done(index, false);
+				}
+				else {
+					createOneProduct(ctx, index);
+					done(index, true);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+		finally {
+			if (ctx != null) {
+				pool.release(ctx);
+			}
+		}
+	}
+
+	/**
+	 * Creates one product with {prefix}{index} as search word.
+	 *
+	 * @param ctx The database context.
+	 * @param index Search word suffix.
+	 */
+	private void createOneProduct(DbContext ctx, int index) {
+		final ProductEditor newObject = ctx.newObject(ProductEditor.class);
+		try {
+			newObject.setSwd(swdPrefix + index);
+			for (int i = 0; i < rowsPerProduct; i++) {
+				final Row newRow = newObject.table().appendRow();
+				newRow.setString("productListElem", "10001");
+				newRow.setElemQty(1);
+			}
+			newObject.commit();
+		}
+		finally {
+			if (newObject.active()) {
+				newObject.abort();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a product with the search word exists.
+	 *
+	 * @param ctx The database context.
+	 * @param swd The search word.
+	 * @return True if the product exists, else false.
+	 */
+	private boolean exists(DbContext ctx, String swd) {
+		final SelectionBuilder<Product> selectionBuilder = SelectionBuilder.create(Product.class);
+		selectionBuilder.add(Conditions.eq(Product.META.swd, swd));
+		return QueryUtil.getFirst(ctx, selectionBuilder.build()) != null;
+	}
+
+	/**
+	 * Marks a product as done and writes the progress if the index below which all products are
+	 * done moved.
+	 *
+	 * @param index The index of the product.
+	 * @param createdNow Whether the product was created by this run.
+	 */
+	private synchronized void done(int index, boolean createdNow) {
+		created.set(index);
+		if (createdNow) {
+			createdCount++;
+		}
+		else {
+			skippedCount++;
+		}
+		final int newWatermark = created.nextClearBit(0);
+		if (newWatermark != watermark) {
+			watermark = newWatermark;
+			writeProgress();
+		}
+	}
+
+	/**
+	 * Prints the progress and the estimated remaining time.
+	 *
+	 * @param out The output.
+	 * @param start The start time of this run.
+	 * @param resumeIndex The index this run started at.
+	 */
+	private void report(PrintWriter out, long start, int resumeIndex) {
+		final int done;
+		final int skipped;
+		synchronized (this) {
+			done = createdCount + skippedCount;
+			skipped = skippedCount;
+		}
+		final int remaining = count - resumeIndex - done;
+		final long elapsed = System.currentTimeMillis() - start;
+		final double perSecond = elapsed == 0 ? 0 : done * 1000.0 / elapsed;
+		final String eta = perSecond == 0 ? "unknown" : ((long) (remaining / perSecond)) + "s";
+		out.println("Created " + (resumeIndex + done) + "/" + count + " (" + skipped + " already existing), " + (int) perSecond
+				+ " products/s, ETA: " + eta);
+	}
+
+	/**
+	 * Reads the progress of a previous run.
+	 *
+	 * @return The index below which all products were created and the index below which products
+	 * may have been started, both 0 if there is no progress file.
+	 */
+	private int[] readProgress() {
+		if (!progressFile.exists()) {
+			return new int[] { 0, 0 };
+		}
+		try {
+			final List<String> lines = Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8);
+			if (lines.isEmpty()) {
+				return new int[] { 0, 0 };
+			}
+			final int done = Math.min(count, Integer.parseInt(lines.get(0).trim()));
+			// files without the second index are checked completely
+			final int started = lines.size() > 1 ? Math.min(count, Integer.parseInt(lines.get(1).trim())) : count;
+			return new int[] { done, started };
+		}
+		catch (IOException | NumberFormatException e) {
+			throw new RuntimeException("Could not read progress file " + progressFile.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Writes the index below which all products are created and the index below which products may
+	 * have been started. Replaces the progress file atomically, so a crash leaves either the old or
+	 * the new indexes. Must be called while holding the lock.
+	 */
+	private void writeProgress() {
+		final File tmpFile = new File(progressFile.getPath() + ".tmp");
+		try {
+			Files.write(tmpFile.toPath(), (watermark + "\n" + startedUpTo).getBytes(StandardCharsets.UTF_8));
+			Files.move(tmpFile.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not write progress file " + progressFile.getAbsolutePath(), e);
+		}
+	}
+
+	private int queueCapacity() {
+		return parallelism * 4;
+	}
+
+}
@@ -1,10 +1,15 @@
 package de.abas.examples.readxml;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.jdom2.Attribute;
 import org.jdom2.Document;
@@ -14,17 +19,31 @@ import org.jdom2.input.SAXBuilder;
 
 import de.abas.erp.db.DbContext;
 import de.abas.erp.db.Transaction;
-import de.abas.erp.db.schema.part.Product;
 import de.abas.erp.db.schema.part.ProductEditor;
-import de.abas.erp.db.selection.Conditions;
-import de.abas.erp.db.selection.SelectionBuilder;
-import de.abas.erp.db.util.QueryUtil;
 import de.abas.examples.common.AbstractAjoAccess;
 
 /**
  * This class reads from a XML file, extracts the products stored in it and
- * creates new products accordingly. If a product with the same search word
- * already exists the transaction is rolled back completely.
+ * creates new products accordingly. The search words of all records are
+ * checked with a few batched selections before the transaction begins. If a
+ * product with the same search word already exists no product is created.
+ *
+ * By default the whole file is read into a JDOM document. With the argument
+ * "stream" the records are read one by one using StAX and the products are
+ * created in chunks of ExistingProductFinder.CHUNK_SIZE records, so only one
+ * chunk of records and the search words read so far are held in memory. The
+ * search words of each chunk are checked before its products are created. If
+ * one already exists, the transaction is rolled back, so no product is
+ * created either.
+ *
+ * With the arguments "chunked [n]" the records are read one by one as well,
+ * but every n records (default 500) are committed in their own transaction.
+ * Records that cannot be imported are written to a reject file and the index
+ * of the next record is written to a checkpoint file after each commit, so an
+ * interrupted import can be resumed by running it again.
+ *
+ * The log is written by a background thread. With the argument "trace" every
+ * field name and value is logged as well.
  *
  * win/tmp/productionListToRead.xml: 
  * <?xml version="1.0" encoding="UTF-8"?>
@@ -111,10 +130,13 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 
 	private final String XML_FILE = "win/tmp/productListToRead.xml";
 	private final String LOG_FILE = "win/tmp/productListToRead.log";
+	private final String CHECKPOINT_FILE =
+			"win/tmp/productListToRead.checkpoint";
+	private final int DEFAULT_CHUNK_SIZE = 500;
+	private final int LOG_CAPACITY = 8192;
 
-	private BufferedWriter bufferedWriter = null;
+	private ImportLog importLog = null;
 	private DbContext ctx = null;
-	private boolean rollBack = false;
 	private Transaction transaction = null;
 	private ProductEditor productEditor = null;
 
@@ -122,23 +144,19 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	public int run(String[] args) {
 		ctx = getDbContext();
 		getsOrCreatesLogFile(LOG_FILE);
-		SAXBuilder saxBuilder = new SAXBuilder();
-		Document document = null;
 		try {
-			bufferedWriter = new BufferedWriter(new FileWriter(LOG_FILE));
-			document = saxBuilder.build(XML_FILE);
-			Element rootElement = document.getRootElement();
-			if (isValidXML(rootElement)) {
-				ouputRootElement(rootElement);
-				outputAttributes(rootElement.getChild("recordSet"));
-				beginTransaction();
-				createsProductsIfNotExisting(rootElement.getChild("recordSet")
-						.getChildren());
-				rollBackIfNecessary();
-				commit();
+			importLog = new ImportLog(LOG_FILE, LOG_CAPACITY,
+					isTraceMode(args) ? ImportLog.Verbosity.TRACE
+							: ImportLog.Verbosity.SUMMARY);
+			int chunkSize = getChunkSize(args);
+			if (chunkSize > 0) {
+				importChunked(chunkSize);
+			}
+			else if (isStreamingMode(args)) {
+				importStreaming();
 			}
 			else {
-				log("invalid abas xml format");
+				importDocument();
 			}
 			log("End of program");
 			return 0;
@@ -147,14 +165,192 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 			ctx.out().println(e.getMessage());
 			return 1;
 		}
+		catch (XMLStreamException e) {
+			ctx.out().println(e.getMessage());
+			return 1;
+		}
 		catch (IOException e) {
 			ctx.out().println(e.getMessage());
 			return 1;
 		}
 		finally {
 			closeProductEditor();
-			closeBufferedWriter();
+			closeImportLog();
+		}
+	}
+
+	/**
+	 * Reads the whole XML file into a JDOM document and creates the products.
+	 *
+	 * @throws JDOMException Exception thrown if the XML file cannot be parsed.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private void importDocument() throws JDOMException, IOException {
+		SAXBuilder saxBuilder = new SAXBuilder();
+		Document document = saxBuilder.build(XML_FILE);
+		Element rootElement = document.getRootElement();
+		if (isValidXML(rootElement)) {
+			ouputRootElement(rootElement);
+			outputAttributes(rootElement.getChild("recordSet"));
+			List<Element> records = rootElement.getChild("recordSet")
+					.getChildren();
+			if (!checksWhetherProductsExist(collectSearchWords(records))) {
+				beginTransaction();
+				createProducts(records);
+				commit();
+			}
+		}
+		else {
+			log("invalid abas xml format");
+		}
+	}
+
+	/**
+	 * Reads the XML file record by record and creates the products chunk by
+	 * chunk in one transaction. Only one chunk of records is held in memory at
+	 * a time, so files of any size can be imported.
+	 *
+	 * @throws XMLStreamException Exception thrown if the XML file cannot be
+	 * parsed.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private void importStreaming() throws XMLStreamException, IOException {
+		try (ProductRecordReader reader = new ProductRecordReader(XML_FILE)) {
+			String rootElementName = reader.readRoot();
+			if (isValidXML(rootElementName)) {
+				ctx.out().println("root-Element: " + rootElementName);
+				outputAttributes(reader.getRecordSetAttributes());
+				beginTransaction();
+				if (createProducts(reader)) {
+					commit();
+				}
+				else {
+					transaction.rollback();
+					log("rollback");
+				}
+			}
+			else {
+				log("invalid abas xml format");
+			}
+		}
+	}
+
+	/**
+	 * Reads the XML file record by record and commits every chunkSize records
+	 * in their own transaction. Records that cannot be imported are written to
+	 * a reject file instead of aborting the import. After each commit the
+	 * index of the next record is written to the checkpoint file, so an
+	 * interrupted import resumes after the last committed chunk.
+	 *
+	 * @param chunkSize The number of records per transaction.
+	 * @throws XMLStreamException Exception thrown if the XML file cannot be
+	 * parsed.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private void importChunked(int chunkSize) throws XMLStreamException,
+			IOException {
+		ImportCheckpoint checkpoint =
+				new ImportCheckpoint(new File(CHECKPOINT_FILE));
+		int resumeIndex = checkpoint.read();
+		if (resumeIndex > 0) {
+			log("Resuming at record " + resumeIndex);
+		}
+		RejectedRecordWriter rejectedRecordWriter = null;
+		try (ProductRecordReader reader = new ProductRecordReader(XML_FILE)) {
+			String rootElementName = reader.readRoot();
+			if (!isValidXML(rootElementName)) {
+				log("invalid abas xml format");
+				return;
+			}
+			ctx.out().println("root-Element: " + rootElementName);
+			outputAttributes(reader.getRecordSetAttributes());
+			// a new reject file per run, so a resumed run keeps the rejects
+			// of the interrupted one
+			String rejectFile =
+					XML_FILE.replace(".xml", ".rejects-" + resumeIndex + ".xml");
+			rejectedRecordWriter = new RejectedRecordWriter(rejectFile,
+					reader.getRecordSetAttributes());
+			List<ProductRecord> chunk = new ArrayList<ProductRecord>(chunkSize);
+			ProductRecord record;
+			while ((record = reader.next()) != null) {
+				if (record.getIndex() < resumeIndex) {
+					continue;
+				}
+				chunk.add(record);
+				if (chunk.size() == chunkSize) {
+					importChunk(chunk, checkpoint, rejectedRecordWriter);
+					chunk.clear();
+				}
+			}
+			if (!chunk.isEmpty()) {
+				importChunk(chunk, checkpoint, rejectedRecordWriter);
+			}
+			checkpoint.delete();
+			log(rejectedRecordWriter.getCount() + " records rejected, see "
+					+ rejectFile);
+		}
+		finally {
+			if (rejectedRecordWriter != null) {
+				rejectedRecordWriter.close();
+			}
+		}
+	}
+
+	/**
+	 * Imports one chunk of records in one transaction. Records whose product
+	 * already exists or cannot be saved are rejected, the other records are
+	 * committed. Then the rejected records and the checkpoint are written.
+	 *
+	 * @param chunk The records.
+	 * @param checkpoint The checkpoint.
+	 * @param rejectedRecordWriter The writer for rejected records.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private void importChunk(List<ProductRecord> chunk,
+			ImportCheckpoint checkpoint,
+			RejectedRecordWriter rejectedRecordWriter) throws IOException {
+		List<String> swds = new ArrayList<String>();
+		for (ProductRecord record : chunk) {
+			if (record.getAttribute("swd") != null) {
+				swds.add(record.getAttribute("swd"));
+			}
 		}
+		// products committed by earlier chunks are found here as well
+		Set<String> existing = new ExistingProductFinder(ctx).findExisting(swds);
+		Set<String> chunkSwds = new HashSet<String>();
+		List<ProductRecord> rejectedRecords = new ArrayList<ProductRecord>();
+		List<String> rejectReasons = new ArrayList<String>();
+		beginTransaction();
+		for (ProductRecord record : chunk) {
+			String swd = record.getAttribute("swd");
+			if (swd != null && (existing.contains(swd) || !chunkSwds.add(swd))) {
+				rejectedRecords.add(record);
+				rejectReasons.add("Product with swd " + swd + " already exists");
+				continue;
+			}
+			try {
+				productEditor = ctx.newObject(ProductEditor.class);
+				createProduct(record, productEditor);
+				productEditor.commit();
+				log(productEditor.objectId().getSwd() + " - "
+						+ productEditor.objectId().getIdno());
+			}
+			catch (RuntimeException e) {
+				closeProductEditor();
+				rejectedRecords.add(record);
+				rejectReasons.add(e.getMessage());
+			}
+		}
+		commit();
+		for (int i = 0; i < rejectedRecords.size(); i++) {
+			log("Record " + rejectedRecords.get(i).getIndex() + " rejected: "
+					+ rejectReasons.get(i));
+			rejectedRecordWriter.write(rejectedRecords.get(i),
+					rejectReasons.get(i));
+		}
+		// the rejects must be on disk before the checkpoint skips them
+		rejectedRecordWriter.flush();
+		checkpoint.write(chunk.get(chunk.size() - 1).getIndex() + 1);
 	}
 
 	/**
@@ -166,45 +362,68 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	}
 
 	/**
-	 * Checks whether product already exists and sets value of rollBack
-	 * accordingly.
+	 * Checks whether products with the search words of the records already
+	 * exist. All search words are checked with a few batched selections before
+	 * the transaction begins, so no product is created if one exists.
 	 *
-	 * @param dbContext The database context.
-	 * @param bufferedWriter The BufferedWriter instance.
-	 * @param rollBack Whether or not a roll back is necessary.
-	 * @param record The current record element.
-	 * @return Returns value of rollBack indicating whether a roll back is
-	 * necessary.
+	 * @param swds The search words of all records in file order.
+	 * @return True if a product already exists or a search word occurs more
+	 * than once in the file, else false.
 	 * @throws IOException Exception thrown if an error occurred.
 	 */
-	private boolean
-			checksWhetherProductExists(boolean rollBack, Element record)
-					throws IOException {
-		List<Attribute> recordAttributes = record.getAttributes();
-		for (Attribute attribute : recordAttributes) {
-			// if current 'record' element attribute is swd
-			if (attribute.getName().equals("swd")) {
-				// if there is already a product with the same search word
-				if (isRecordExisting(ctx, attribute.getValue())) {
-					// the transaction has to be rolled back
-					rollBack = true;
-					log("Product with swd " + attribute.getValue()
-							+ " already exists");
-				}
+	private boolean checksWhetherProductsExist(List<String> swds)
+			throws IOException {
+		Set<String> uniqueSwds = new LinkedHashSet<String>();
+		boolean exists = false;
+		for (String swd : swds) {
+			if (!uniqueSwds.add(swd)) {
+				exists = true;
+				log("Product with swd " + swd + " occurs more than once");
+			}
+		}
+		Set<String> existing =
+				new ExistingProductFinder(ctx).findExisting(uniqueSwds);
+		for (String swd : uniqueSwds) {
+			if (existing.contains(swd)) {
+				exists = true;
+				log("Product with swd " + swd + " already exists");
+			}
+		}
+		if (exists) {
+			log("no products created");
+		}
+		return exists;
+	}
+
+	/**
+	 * Collects the search words of the records.
+	 *
+	 * @param records The records from the XML file.
+	 * @return The values of the swd attributes in file order.
+	 */
+	private List<String> collectSearchWords(List<Element> records) {
+		List<String> swds = new ArrayList<String>();
+		for (Element record : records) {
+			String swd = record.getAttributeValue("swd");
+			if (swd != null) {
+				swds.add(swd);
 			}
 		}
-		return rollBack;
+		return swds;
 	}
 
 	/**
-	 * Closes BufferedWriter instance.
+	 * Closes the import log after all messages are written.
 	 */
-	private void closeBufferedWriter() {
+	private void closeImportLog() {
+		if (importLog == null) {
+			return;
+		}
 		try {
-			bufferedWriter.close();
+			importLog.close();
 		}
 		catch (IOException e) {
-			ctx.out().println("Error while trying to close bufferedWriter.");
+			ctx.out().println("Error while trying to close importLog.");
 		}
 	}
 
@@ -225,10 +444,8 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	 * @throws IOException Exception thrown if an error occurs.
 	 */
 	private void commit() throws IOException {
-		if (!rollBack) {
-			transaction.commit();
-			log("commit");
-		}
+		transaction.commit();
+		log("commit");
 	}
 
 	/**
@@ -253,31 +470,36 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	}
 
 	/**
-	 * Checks whether each record's product is not already existing. Then
-	 * creates product or sets rollback to true.
+	 * Creates the product of a record read from the XML file.
+	 *
+	 * @param record The current record.
+	 * @param productEditor The ProductEditor instance.
+	 */
+	private void createProduct(ProductRecord record,
+			ProductEditor productEditor) {
+		for (ProductRecord.Field field : record.getHeaderFields()) {
+			logField(field.getName(), field.getValue());
+			productEditor.setString(field.getName(), field.getValue());
+		}
+		for (List<ProductRecord.Field> row : record.getRows()) {
+			ProductEditor.Row appendRow = productEditor.table().appendRow();
+			for (ProductRecord.Field field : row) {
+				logField(field.getName(), field.getValue());
+				appendRow.setString(field.getName(), field.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Creates the products of the records.
 	 *
-	 * @param dbContext The database context.
-	 * @param bufferedWriter The BufferedWriter instance.
-	 * @param rollBack Whether or not to roll back.
 	 * @param records The records from the XML file.
-	 * @return Returns value of rollBack, to indicate whether or not a roll back
-	 * is necessary.
 	 * @throws IOException Exception thrown if an error occurs.
 	 */
-	private void createsProductsIfNotExisting(List<Element> records)
-			throws IOException {
+	private void createProducts(List<Element> records) throws IOException {
 		for (Element record : records) {
 			productEditor = ctx.newObject(ProductEditor.class);
-			rollBack = checksWhetherProductExists(rollBack, record);
-			if (rollBack == true) {
-				// if rollBack is true the opened ProductEditor instance is
-				// aborted and the foreach loop is cancelled
-				productEditor.abort();
-				break;
-			}
-			else {
-				createProduct(record, productEditor);
-			}
+			createProduct(record, productEditor);
 			// saves the new product
 			productEditor.commit();
 			// for testing the ProductEditor instance can be aborted
@@ -287,6 +509,105 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 		}
 	}
 
+	/**
+	 * Reads the records one by one and creates the products chunk by chunk.
+	 * The search words of a chunk are checked before its products are
+	 * created.
+	 *
+	 * @param reader The reader positioned at the first record.
+	 * @return True if all products were created, false if a product already
+	 * exists or a search word occurs more than once in the file.
+	 * @throws XMLStreamException Exception thrown if the XML file cannot be
+	 * parsed.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private boolean createProducts(ProductRecordReader reader)
+			throws XMLStreamException, IOException {
+		Set<String> readSwds = new HashSet<String>();
+		List<ProductRecord> chunk =
+				new ArrayList<ProductRecord>(ExistingProductFinder.CHUNK_SIZE);
+		ProductRecord record;
+		while ((record = reader.next()) != null) {
+			chunk.add(record);
+			if (chunk.size() == ExistingProductFinder.CHUNK_SIZE) {
+				if (!createProducts(chunk, readSwds)) {
+					return false;
+				}
+				chunk.clear();
+			}
+		}
+		return chunk.isEmpty() || createProducts(chunk, readSwds);
+	}
+
+	/**
+	 * Creates the products of a chunk of records if none of their search
+	 * words is used yet.
+	 *
+	 * @param chunk The records.
+	 * @param readSwds The search words of the records read before, the
+	 * search words of the chunk are added.
+	 * @return True if the products were created, false if a product already
+	 * exists or a search word occurs more than once in the file.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	private boolean createProducts(List<ProductRecord> chunk,
+			Set<String> readSwds) throws IOException {
+		List<String> swds = new ArrayList<String>();
+		boolean exists = false;
+		for (ProductRecord record : chunk) {
+			String swd = record.getAttribute("swd");
+			if (swd == null) {
+				continue;
+			}
+			if (readSwds.add(swd)) {
+				swds.add(swd);
+			}
+			else {
+				exists = true;
+				log("Product with swd " + swd + " occurs more than once");
+			}
+		}
+		for (String swd : new ExistingProductFinder(ctx).findExisting(swds)) {
+			exists = true;
+			log("Product with swd " + swd + " already exists");
+		}
+		if (exists) {
+			log("no products created");
+			return false;
+		}
+		for (ProductRecord record : chunk) {
+			productEditor = ctx.newObject(ProductEditor.class);
+			createProduct(record, productEditor);
+			productEditor.commit();
+			log(productEditor.objectId().getSwd() + " - "
+					+ productEditor.objectId().getIdno());
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of records per transaction if the records are to be
+	 * committed in chunks.
+	 *
+	 * @param args The program arguments.
+	 * @return The number following the argument "chunked", the default chunk
+	 * size if "chunked" is not followed by a number or 0 if there is no
+	 * argument "chunked".
+	 */
+	private int getChunkSize(String[] args) {
+		if (args != null) {
+			for (int i = 0; i < args.length; i++) {
+				if ("chunked".equalsIgnoreCase(args[i])) {
+					if (i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+						return Math.max(1, Integer.parseInt(args[i + 1]));
+					}
+					return DEFAULT_CHUNK_SIZE;
+				}
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Gets or if not existent creates log file.
 	 *
@@ -308,24 +629,38 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	}
 
 	/**
-	 * Checks whether a product with the same search word exists.
+	 * Checks whether the records are to be read one by one instead of
+	 * reading the whole XML file at once.
 	 *
-	 * @param dbContext The database context.
-	 * @param swd The search word.
-	 * @return Returns true if the a product with the search word exits, else
-	 * returns false.
+	 * @param args The program arguments.
+	 * @return True if one of the arguments is "stream", else false.
 	 */
-	private boolean isRecordExisting(DbContext dbContext, String swd) {
-		SelectionBuilder<Product> selectionBuilder =
-				SelectionBuilder.create(Product.class);
-		selectionBuilder.add(Conditions.eq(Product.META.swd, swd));
-		Product first = QueryUtil.getFirst(dbContext, selectionBuilder.build());
-		if (first == null) {
-			return false;
+	private boolean isStreamingMode(String[] args) {
+		if (args != null) {
+			for (String arg : args) {
+				if ("stream".equalsIgnoreCase(arg)) {
+					return true;
+				}
+			}
 		}
-		else {
-			return true;
+		return false;
+	}
+
+	/**
+	 * Checks whether every field name and value is to be logged.
+	 *
+	 * @param args The program arguments.
+	 * @return True if one of the arguments is "trace", else false.
+	 */
+	private boolean isTraceMode(String[] args) {
+		if (args != null) {
+			for (String arg : args) {
+				if ("trace".equalsIgnoreCase(arg)) {
+					return true;
+				}
+			}
 		}
+		return false;
 	}
 
 	/**
@@ -335,17 +670,38 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	 * @return True, if XML is valid, else false.
 	 */
 	private boolean isValidXML(Element rootElement) {
-		return rootElement.getName().equals("abasData");
+		return isValidXML(rootElement.getName());
+	}
+
+	/**
+	 * Checks whether the XML file is valid.
+	 *
+	 * @param rootElementName The name of the root element.
+	 * @return True, if XML is valid, else false.
+	 */
+	private boolean isValidXML(String rootElementName) {
+		return "abasData".equals(rootElementName);
 	}
 
 	/**
 	 * Logs message.
 	 *
-	 * @throws IOException Exception thrown if an error occurs.
+	 * @param message The message.
+	 */
+	private void log(String message) {
+		importLog.summary(message);
+	}
+
+	/**
+	 * Logs a field name and value if the log verbosity is TRACE.
+	 *
+	 * @param fieldName The field name.
+	 * @param fieldValue The field value.
 	 */
-	private void log(String message) throws IOException {
-		bufferedWriter.write(message);
-		bufferedWriter.newLine();
+	private void logField(String fieldName, String fieldValue) {
+		if (importLog.isTraceEnabled()) {
+			importLog.trace(fieldName + " - " + fieldValue);
+		}
 	}
 
 	/**
@@ -370,14 +726,13 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 	}
 
 	/**
-	 * Rolls the transaction back if necessary and logs the process.
+	 * Outputs the attributes of the recordSet element.
 	 *
-	 * @throws IOException Exception thrown if an error occurs.
+	 * @param attributes The attributes of the recordSet element.
 	 */
-	private void rollBackIfNecessary() throws IOException {
-		if (rollBack) {
-			transaction.rollback();
-			log("rollback");
+	private void outputAttributes(Map<String, String> attributes) {
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			ctx.out().println(attribute.getKey() + " - " + attribute.getValue());
 		}
 	}
 
@@ -397,7 +752,7 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 		for (Element field : fields) {
 			String fieldName = field.getAttributeValue("name");
 			String fieldValue = field.getValue();
-			dbContext.out().println(fieldName + " - " + fieldValue);
+			logField(fieldName, fieldValue);
 			productEditor.setString(fieldName, fieldValue);
 		}
 	}
@@ -419,7 +774,7 @@ public class CreateNewProductsWithHeadAndTableXMLTransaction extends
 		for (Element field : fields) {
 			String fieldName = field.getAttributeValue("name");
 			String fieldValue = field.getValue();
-			dbContext.out().println(fieldName + " - " + fieldValue);
+			logField(fieldName, fieldValue);
 			appendRow.setString(fieldName, fieldValue);
 		}
 	}
@@ -0,0 +1,136 @@
+package de.abas.examples.readxml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.selection.Conditions;
+import de.abas.erp.db.selection.SelectionBuilder;
+
+/**
+ * Finds out which of a set of search words are already used by products.
+ *
+ * Instead of one selection per search word the search words are combined into OR selections of
+ * {@link #CHUNK_SIZE} search words each, which only load the search word field.
+ *
+ * Like a selection per search word, a search word is used if any product is found for it. The
+ * server compares search words case-insensitively, so a product whose search word only differs in
+ * case is a hit for every search word of the chunk equal to it ignoring case.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ExistingProductFinder {
+
+	/**
+	 * Number of search words per selection.
+	 */
+	public static final int CHUNK_SIZE = 50;
+
+	private final DbContext ctx;
+	private int selectionCount = 0;
+
+	/**
+	 * Creates the finder.
+	 *
+	 * @param ctx The database context.
+	 */
+	public ExistingProductFinder(DbContext ctx) {
+		this.ctx = ctx;
+	}
+
+	/**
+	 * Returns the search words used by existing products.
+	 *
+	 * @param swds The search words to check.
+	 * @return The subset of swds used by existing products.
+	 */
+	public Set<String> findExisting(Collection<String> swds) {
+		final Set<String> existing = new HashSet<String>();
+		final List<String> chunk = new ArrayList<String>(CHUNK_SIZE);
+		for (final String swd : swds) {
+			chunk.add(swd);
+			if (chunk.size() == CHUNK_SIZE) {
+				select(chunk, existing);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			select(chunk, existing);
+		}
+		return existing;
+	}
+
+	/**
+	 * Returns the number of selections run so far.
+	 *
+	 * @return The number of selections.
+	 */
+	public int getSelectionCount() {
+		return selectionCount;
+	}
+
+	/**
+	 * Selects the products of one chunk of search words.
+	 *
+	 * @param chunk The search words.
+	 * @param existing The set the search words of the found products are added to.
+	 */
+	private void select(List<String> chunk, Set<String> existing) {
+		final SelectionBuilder<Product> selectionBuilder = SelectionBuilder.create(Product.class);
+		selectionBuilder.setTermConjunction(SelectionBuilder.Conjunction.OR);
+		for (final String swd : chunk) {
+			selectionBuilder.add(Conditions.eq(Product.META.swd, swd));
+		}
+		final Query<Product> query = ctx.createQuery(selectionBuilder.build());
+		query.setFields(FieldSet.of("swd"));
+		query.setLazyLoad(false);
+		final List<String> found = new ArrayList<String>();
+		for (final Product product : query) {
+			found.add(product.getSwd());
+		}
+		addHits(chunk, found, existing);
+		selectionCount++;
+	}
+
+	/**
+	 * Adds the search words of a chunk which are equal to a found search word ignoring case.
+	 *
+	 * @param chunk The search words selected.
+	 * @param found The search words of the products found.
+	 * @param existing The set the search words of the chunk are added to.
+	 */
+	static void addHits(List<String> chunk, Collection<String> found, Set<String> existing) {
+		final Map<String, List<String>> byKey = new HashMap<String, List<String>>();
+		for (final String swd : chunk) {
+			final String key = normalize(swd);
+			List<String> swds = byKey.get(key);
+			if (swds == null) {
+				swds = new ArrayList<String>(1);
+				byKey.put(key, swds);
+			}
+			swds.add(swd);
+		}
+		for (final String swd : found) {
+			final List<String> swds = byKey.get(normalize(swd));
+			if (swds != null) {
+				existing.addAll(swds);
+			}
+		}
+	}
+
+	private static String normalize(String swd) {
+		return swd.toUpperCase(Locale.ROOT);
+	}
+
+}
@@ -0,0 +1,92 @@
+package de.abas.examples.readxml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sidecar file storing the index of the first record of an XML import that is neither committed
+ * nor rejected yet.
+ *
+ * The file is written to a temporary file, forced to disk and then moved over the old file
+ * atomically, so after a crash it contains either the old or the new index.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ImportCheckpoint {
+
+	private final File file;
+
+	/**
+	 * Creates the checkpoint.
+	 *
+	 * @param file The sidecar file.
+	 */
+	public ImportCheckpoint(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads the index of the record to resume at.
+	 *
+	 * @return The index or 0 if there is no checkpoint.
+	 */
+	public int read() {
+		if (!file.exists()) {
+			return 0;
+		}
+		try {
+			final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			return lines.isEmpty() ? 0 : Integer.parseInt(lines.get(0).trim());
+		}
+		catch (IOException | NumberFormatException e) {
+			throw new RuntimeException("Could not read checkpoint file " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Writes the index of the record to resume at.
+	 *
+	 * @param index The index.
+	 */
+	public void write(int index) {
+		final File tmpFile = new File(file.getPath() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer buffer = ByteBuffer.wrap(Integer.toString(index).getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not write checkpoint file " + file.getAbsolutePath(), e);
+		}
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not write checkpoint file " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Deletes the checkpoint after the import is complete.
+	 */
+	public void delete() {
+		file.delete();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+}
@@ -0,0 +1,224 @@
+package de.abas.examples.readxml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log of an import written by a background thread.
+ *
+ * Messages are put into a lock-free ring buffer and written to the log file through a FileChannel
+ * by a writer thread, so the importing thread never waits for I/O. If the buffer is full, trace
+ * messages are dropped and counted, summary messages wait until the writer has made room.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ImportLog implements Closeable {
+
+	/**
+	 * Verbosity of the log.
+	 */
+	public enum Verbosity {
+		/**
+		 * One message per record and the messages of the import itself.
+		 */
+		SUMMARY,
+		/**
+		 * Additionally every field name and value.
+		 */
+		TRACE
+	}
+
+	private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator").getBytes(StandardCharsets.UTF_8);
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Verbosity verbosity;
+	private final FileChannel channel;
+	private final AtomicReferenceArray<String> buffer;
+	private final int mask;
+	// next position to be claimed by a producer
+	private final AtomicLong tail = new AtomicLong();
+	// next position to be written, only advanced by the writer thread
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final Thread writerThread;
+	private volatile boolean closed = false;
+	private volatile IOException writeFailure = null;
+
+	/**
+	 * Creates or truncates the log file and starts the writer thread.
+	 *
+	 * @param fileName The log file.
+	 * @param capacity The number of messages buffered, rounded up to a power of two.
+	 * @param verbosity The verbosity.
+	 * @throws IOException Exception thrown if the file cannot be opened.
+	 */
+	public ImportLog(String fileName, int capacity, Verbosity verbosity) throws IOException {
+		this.verbosity = verbosity;
+		final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		buffer = new AtomicReferenceArray<String>(size);
+		mask = size - 1;
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write();
+			}
+		}, "ImportLog-" + fileName);
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Returns whether trace messages are logged. Callers building trace messages should check this
+	 * first.
+	 *
+	 * @return True if the verbosity is TRACE, else false.
+	 */
+	public boolean isTraceEnabled() {
+		return verbosity == Verbosity.TRACE;
+	}
+
+	/**
+	 * Logs a summary message. Waits if the buffer is full.
+	 *
+	 * @param message The message.
+	 */
+	public void summary(String message) {
+		while (!offer(message)) {
+			if (closed) {
+				return;
+			}
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Logs a trace message if the verbosity is TRACE. Drops the message if the buffer is full.
+	 *
+	 * @param message The message.
+	 */
+	public void trace(String message) {
+		if (isTraceEnabled() && !offer(message)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the number of trace messages dropped because the buffer was full.
+	 *
+	 * @return The number of messages.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Writes all buffered messages, notes the number of dropped messages and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		if (dropped.get() > 0) {
+			summary(dropped.get() + " trace messages dropped");
+		}
+		closed = true;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			channel.close();
+		}
+		if (writeFailure != null) {
+			throw writeFailure;
+		}
+	}
+
+	/**
+	 * Claims a slot and publishes the message.
+	 *
+	 * @param message The message.
+	 * @return False if the buffer is full, else true.
+	 */
+	private boolean offer(String message) {
+		while (true) {
+			final long position = tail.get();
+			if (position - head.get() >= buffer.length()) {
+				return false;
+			}
+			if (tail.compareAndSet(position, position + 1)) {
+				buffer.lazySet((int) position & mask, message);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Body of the writer thread. Collects messages into a byte buffer, writes it whenever it is full
+	 * or no more messages are available and parks while the ring buffer is empty.
+	 */
+	private void write() {
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(64 * 1024);
+		try {
+			while (true) {
+				final boolean closing = closed;
+				long position = head.get();
+				String message;
+				while ((message = buffer.get((int) position & mask)) != null) {
+					buffer.lazySet((int) position & mask, null);
+					head.lazySet(++position);
+					put(bytes, message.getBytes(StandardCharsets.UTF_8));
+					put(bytes, LINE_SEPARATOR);
+				}
+				flush(bytes);
+				// a producer may have claimed a slot without having published it yet
+				if (closing && position == tail.get()) {
+					return;
+				}
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+		}
+		catch (IOException e) {
+			writeFailure = e;
+			closed = true;
+		}
+	}
+
+	private void put(ByteBuffer bytes, byte[] data) throws IOException {
+		int offset = 0;
+		while (offset < data.length) {
+			if (!bytes.hasRemaining()) {
+				flush(bytes);
+			}
+			final int length = Math.min(bytes.remaining(), data.length - offset);
+			bytes.put(data, offset, length);
+			offset += length;
+		}
+	}
+
+	private void flush(ByteBuffer bytes) throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+}
@@ -0,0 +1,94 @@
+package de.abas.examples.readxml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One 'record' element of the product XML file: its attributes, the fields of its 'header'
+ * element and the fields of each 'row' element, all in document order.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ProductRecord {
+
+	/**
+	 * One 'field' element.
+	 */
+	public static class Field {
+		private final String name;
+		private final String value;
+
+		public Field(String name, String value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getValue() {
+			return value;
+		}
+	}
+
+	private final int index;
+	private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+	private final List<Field> headerFields = new ArrayList<Field>();
+	private final List<List<Field>> rows = new ArrayList<List<Field>>();
+
+	/**
+	 * Creates an empty record.
+	 *
+	 * @param index The position of the record in the file, starting with 0.
+	 */
+	public ProductRecord(int index) {
+		this.index = index;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the value of an attribute of the 'record' element.
+	 *
+	 * @param name The attribute name.
+	 * @return The value or null if the attribute does not exist.
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	public Map<String, String> getAttributes() {
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	public List<Field> getHeaderFields() {
+		return Collections.unmodifiableList(headerFields);
+	}
+
+	public List<List<Field>> getRows() {
+		return Collections.unmodifiableList(rows);
+	}
+
+	void addAttribute(String name, String value) {
+		attributes.put(name, value);
+	}
+
+	void addHeaderField(Field field) {
+		headerFields.add(field);
+	}
+
+	List<Field> addRow() {
+		final List<Field> row = new ArrayList<Field>();
+		rows.add(row);
+		return row;
+	}
+
+}
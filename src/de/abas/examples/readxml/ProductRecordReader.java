@@ -0,0 +1,156 @@
+package de.abas.examples.readxml;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the product XML file record by record using StAX.
+ *
+ * Unlike building a JDOM document, only the current 'record' element is kept in memory, so the
+ * memory needed does not depend on the size of the file.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class ProductRecordReader implements Closeable {
+
+	private final InputStream inputStream;
+	private final XMLStreamReader xmlStreamReader;
+	private String rootElementName = null;
+	private final Map<String, String> recordSetAttributes = new LinkedHashMap<String, String>();
+	private int nextIndex = 0;
+
+	/**
+	 * Opens the XML file.
+	 *
+	 * @param fileName The XML file.
+	 * @throws IOException Exception thrown if the file cannot be opened.
+	 * @throws XMLStreamException Exception thrown if the file is no XML file.
+	 */
+	public ProductRecordReader(String fileName) throws IOException, XMLStreamException {
+		inputStream = new BufferedInputStream(new FileInputStream(fileName));
+		try {
+			final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+			// the file is read from disk only, external entities are never needed
+			xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			xmlStreamReader = xmlInputFactory.createXMLStreamReader(inputStream);
+		}
+		catch (XMLStreamException e) {
+			inputStream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads up to the start of the 'recordSet' element.
+	 *
+	 * @return The name of the root element.
+	 * @throws XMLStreamException Exception thrown if the file is not well-formed.
+	 */
+	public String readRoot() throws XMLStreamException {
+		while (xmlStreamReader.hasNext()) {
+			if (xmlStreamReader.next() == XMLStreamConstants.START_ELEMENT) {
+				if (rootElementName == null) {
+					rootElementName = xmlStreamReader.getLocalName();
+				}
+				else if (xmlStreamReader.getLocalName().equals("recordSet")) {
+					for (int i = 0; i < xmlStreamReader.getAttributeCount(); i++) {
+						recordSetAttributes.put(xmlStreamReader.getAttributeLocalName(i), xmlStreamReader.getAttributeValue(i));
+					}
+					break;
+				}
+			}
+		}
+		return rootElementName;
+	}
+
+	/**
+	 * Returns the attributes of the 'recordSet' element. Available after {@link #readRoot()}.
+	 *
+	 * @return The attributes.
+	 */
+	public Map<String, String> getRecordSetAttributes() {
+		return recordSetAttributes;
+	}
+
+	/**
+	 * Reads the next 'record' element.
+	 *
+	 * @return The record or null if there are no more records.
+	 * @throws XMLStreamException Exception thrown if the file is not well-formed.
+	 */
+	public ProductRecord next() throws XMLStreamException {
+		ProductRecord record = null;
+		List<ProductRecord.Field> row = null;
+		boolean inHeader = false;
+		while (xmlStreamReader.hasNext()) {
+			final int event = xmlStreamReader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				final String name = xmlStreamReader.getLocalName();
+				if (name.equals("record")) {
+					record = new ProductRecord(nextIndex++);
+					for (int i = 0; i < xmlStreamReader.getAttributeCount(); i++) {
+						record.addAttribute(xmlStreamReader.getAttributeLocalName(i), xmlStreamReader.getAttributeValue(i));
+					}
+				}
+				else if (record != null && name.equals("header")) {
+					inHeader = true;
+				}
+				else if (record != null && name.equals("row")) {
+					row = record.addRow();
+				}
+				else if (record != null && name.equals("field")) {
+					final String fieldName = xmlStreamReader.getAttributeValue(null, "name");
+					// reads the text and moves to the end of the 'field' element
+					final ProductRecord.Field field = new ProductRecord.Field(fieldName, xmlStreamReader.getElementText());
+					if (inHeader) {
+						record.addHeaderField(field);
+					}
+					else if (row != null) {
+						row.add(field);
+					}
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				final String name = xmlStreamReader.getLocalName();
+				if (name.equals("header")) {
+					inHeader = false;
+				}
+				else if (name.equals("row")) {
+					row = null;
+				}
+				else if (name.equals("record") && record != null) {
+					return record;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			xmlStreamReader.close();
+		}
+		catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+}
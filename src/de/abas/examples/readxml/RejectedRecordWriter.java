@@ -0,0 +1,136 @@
+package de.abas.examples.readxml;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes records that could not be imported to an XML file in the same format as the import file,
+ * so the file can be corrected and imported again. Each 'record' element gets an additional
+ * 'rejectReason' attribute, which replaces the one of a record rejected before.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class RejectedRecordWriter implements Closeable {
+
+	private static final String REJECT_REASON = "rejectReason";
+
+	private final OutputStream outputStream;
+	private final XMLStreamWriter xmlStreamWriter;
+	private int count = 0;
+
+	/**
+	 * Creates the file and writes the start of the 'abasData' and 'recordSet' elements.
+	 *
+	 * @param fileName The reject file.
+	 * @param recordSetAttributes The attributes of the 'recordSet' element of the import file.
+	 * @throws IOException Exception thrown if the file cannot be created.
+	 */
+	public RejectedRecordWriter(String fileName, Map<String, String> recordSetAttributes) throws IOException {
+		outputStream = new BufferedOutputStream(new FileOutputStream(fileName));
+		try {
+			xmlStreamWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8");
+			xmlStreamWriter.writeStartDocument("UTF-8", "1.0");
+			xmlStreamWriter.writeStartElement("abasData");
+			xmlStreamWriter.writeStartElement("recordSet");
+			for (final Map.Entry<String, String> attribute : recordSetAttributes.entrySet()) {
+				xmlStreamWriter.writeAttribute(attribute.getKey(), attribute.getValue());
+			}
+		}
+		catch (XMLStreamException e) {
+			outputStream.close();
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a rejected record.
+	 *
+	 * @param record The record.
+	 * @param reason The reason why the record was rejected.
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	public void write(ProductRecord record, String reason) throws IOException {
+		try {
+			xmlStreamWriter.writeStartElement("record");
+			for (final Map.Entry<String, String> attribute : record.getAttributes().entrySet()) {
+				if (!REJECT_REASON.equals(attribute.getKey())) {
+					xmlStreamWriter.writeAttribute(attribute.getKey(), attribute.getValue());
+				}
+			}
+			xmlStreamWriter.writeAttribute(REJECT_REASON, reason == null ? "" : reason);
+			writeFields("header", record.getHeaderFields());
+			for (final List<ProductRecord.Field> row : record.getRows()) {
+				writeFields("row", row);
+			}
+			xmlStreamWriter.writeEndElement();
+			count++;
+		}
+		catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes all rejected records to disk.
+	 *
+	 * @throws IOException Exception thrown if an error occurs.
+	 */
+	public void flush() throws IOException {
+		try {
+			xmlStreamWriter.flush();
+		}
+		catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		outputStream.flush();
+	}
+
+	/**
+	 * Returns the number of rejected records written.
+	 *
+	 * @return The number of records.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Closes the 'recordSet' and 'abasData' elements and the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			xmlStreamWriter.writeEndDocument();
+			xmlStreamWriter.close();
+		}
+		catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+
+	private void writeFields(String elementName, List<ProductRecord.Field> fields) throws XMLStreamException {
+		xmlStreamWriter.writeStartElement(elementName);
+		for (final ProductRecord.Field field : fields) {
+			xmlStreamWriter.writeStartElement("field");
+			xmlStreamWriter.writeAttribute("name", field.getName());
+			xmlStreamWriter.writeCharacters(field.getValue());
+			xmlStreamWriter.writeEndElement();
+		}
+		xmlStreamWriter.writeEndElement();
+	}
+
+}
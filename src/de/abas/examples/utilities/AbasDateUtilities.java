@@ -1,23 +1,58 @@
 package de.abas.examples.utilities;
 
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicLong;
+
 import de.abas.erp.api.gui.TextBox;
 import de.abas.erp.common.type.AbasDate;
 import de.abas.erp.common.type.AbasDateTime;
 import de.abas.erp.common.type.AbasDuration;
 import de.abas.erp.common.type.AbasTime;
 import de.abas.erp.db.DbContext;
-import de.abas.jfop.base.buffer.BufferFactory;
 import de.abas.jfop.base.buffer.GlobalTextBuffer;
 import de.abas.jfop.base.buffer.UserTextBuffer;
 
 /**
  * Utility class to add durations of the type AbasDuration to an AbasDate object.
  * 
+ * By default every calculation is done by FOP formulas in the UserTextBuffer. In the mode ENGINE the
+ * date calculations are done in Java: working days are looked up in a {@link FactoryCalendar}, which
+ * loads each year of the factory calendar from the buffer once, everything else is plain date
+ * arithmetic. In the mode VERIFY both ways are used, differences are printed and counted and the
+ * buffer result is returned. addHours() and addMinutes() always use the buffer.
+ * 
+ * The results of addWorkingDays(), addWeeks() and getCalendarWeek() are kept in a process-wide
+ * {@link DateResultCache}, which is cleared at midnight and by {@link #invalidateCalendar()}. The
+ * factory calendar is reloaded every {@link #CALENDAR_RELOAD_MILLIS} milliseconds, so changes of the
+ * factory calendar in the ERP are used after 15 minutes at the latest.
+ * 
  * @author abas Software AG
  * @version 1.0
  *
  */
 public class AbasDateUtilities {
+	/**
+	 * Calculation mode enumeration.
+	 */
+	public enum Mode {
+		BUFFER, ENGINE, VERIFY
+	}
+
+	// shared by all instances, the factory calendar is the same for all of them
+	private static final FactoryCalendar FACTORY_CALENDAR = new FactoryCalendar();
+	private static final AtomicLong VERIFY_MISMATCHES = new AtomicLong();
+	/**
+	 * Interval after which the factory calendar is loaded again.
+	 */
+	public static final long CALENDAR_RELOAD_MILLIS = 15 * 60 * 1000;
+	// changes of the factory calendar are not reported, so it is reloaded after CALENDAR_RELOAD_MILLIS
+	private static final DateResultCache RESULT_CACHE = new DateResultCache(FACTORY_CALENDAR, 10000, CALENDAR_RELOAD_MILLIS);
+	private static volatile boolean cachingEnabled = true;
+	private static volatile Mode defaultMode = Mode.BUFFER;
+	// calendar week format of the buffer learned from a sample, "" if unknown
+	private static volatile String weekFormat = null;
+
 	/**
 	 * Class variables
 	 */
@@ -25,7 +60,6 @@ public class AbasDateUtilities {
 	private final String XGD14RESULT = "xgd14result";
 	private final String XGD19RESULT = "xgd19result";
 	private final String XGD19DATE = "xgd19date";
-	private final String XGD2DATECALC = "xgd2datecalc";
 	private final String XWCALENDARWEEK = "xwcalendarweek";
 	private final String XIRESULT = "xiresult";
 	private final String XZEND_TIME = "xzstopZeit";
@@ -37,9 +71,10 @@ public class AbasDateUtilities {
 	private final String XGD2RESULT = "xgd2result";
 	private final String XGD2DATE = "xgd2date";
 
-	// only one object of UserTextBuffer and GlobalTextBuffer necessary
+	// buffers and helper variables are shared by all instances of the same FOP session
+	private BufferVariableRegistry registry;
+	// the registry only holds its buffer weakly, this reference keeps it alive while this instance is used
 	private UserTextBuffer userTextBuffer;
-	private GlobalTextBuffer globalTextBuffer;
 
 	private final String TYPE_GD2 = "GD2";
 	private final String TYPE_GD8 = "GD8";
@@ -55,28 +90,136 @@ public class AbasDateUtilities {
 
 	private final int DAY_COUNT = 7;
 
+	private static final String OP_ADD_WORKING_DAYS = "addWorkingDays";
+	private static final String OP_ADD_WEEKS = "addWeeks";
+	private static final String OP_GET_CALENDAR_WEEK = "getCalendarWeek";
+
+	private Mode mode = defaultMode;
+	private final Calendar calendar = new GregorianCalendar();
+	private final FactoryCalendar.YearLoader yearLoader = new FactoryCalendar.YearLoader() {
+		@Override
+		public long[] load(int year) {
+			return loadYear(year);
+		}
+	};
+
+	/**
+	 * Returns the factory calendar used in the modes ENGINE and VERIFY.
+	 * 
+	 * @return The factory calendar.
+	 */
+	public static FactoryCalendar getFactoryCalendar() {
+		return FACTORY_CALENDAR;
+	}
+
 	/**
-	 * Uses an instance of the BufferFactory to get an object of UserTextBuffer. Only one UserTextBuffer object is necessary.
+	 * Returns the process-wide cache of the results of addWorkingDays(), addWeeks() and
+	 * getCalendarWeek().
 	 * 
-	 * @return The instance of UserTextBuffer is returned.
+	 * @return The cache.
 	 */
-	private UserTextBuffer getUserTextBuffer() {
-		if (userTextBuffer == null) {
-			userTextBuffer = BufferFactory.newInstance(true).getUserTextBuffer();
+	public static DateResultCache getResultCache() {
+		return RESULT_CACHE;
+	}
+
+	/**
+	 * Enables or disables the process-wide result cache. The cache is not used in the mode VERIFY.
+	 * 
+	 * @param enabled True to enable the cache.
+	 */
+	public static void setCachingEnabled(boolean enabled) {
+		cachingEnabled = enabled;
+	}
+
+	/**
+	 * Drops the loaded factory calendar and all cached results, e.g. after the factory calendar was
+	 * changed. Without this call the changes are used after {@link #CALENDAR_RELOAD_MILLIS}.
+	 */
+	public static void invalidateCalendar() {
+		FACTORY_CALENDAR.invalidate();
+		RESULT_CACHE.invalidate();
+	}
+
+	/**
+	 * Sets the mode of instances created from now on.
+	 * 
+	 * @param mode The mode.
+	 */
+	public static void setDefaultMode(Mode mode) {
+		defaultMode = mode;
+	}
+
+	/**
+	 * Returns the number of differences between buffer and engine found in the mode VERIFY.
+	 * 
+	 * @return The number of differences.
+	 */
+	public static long getVerifyMismatchCount() {
+		return VERIFY_MISMATCHES.get();
+	}
+
+	/**
+	 * Returns the calculation mode.
+	 * 
+	 * @return The mode.
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the calculation mode.
+	 * 
+	 * @param mode The mode.
+	 */
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Creates a batch for date calculations using this instance. Identical calculations of the batch
+	 * are only done once.
+	 * 
+	 * @param dbContext The database context.
+	 * @return The batch.
+	 */
+	public DateCalculationBatch newBatch(DbContext dbContext) {
+		return new DateCalculationBatch(dbContext, this);
+	}
+
+	/**
+	 * Gets the BufferVariableRegistry of the current FOP session. Only one lookup per instance is
+	 * necessary.
+	 * 
+	 * @return The registry.
+	 */
+	private BufferVariableRegistry getRegistry() {
+		if (registry == null) {
+			registry = BufferVariableRegistry.current();
+			userTextBuffer = registry.getUserTextBuffer();
 		}
-		return userTextBuffer;
+		return registry;
+	}
+
+	/**
+	 * Gets the handle of a helper variable. The variable is only defined in the UserTextBuffer on
+	 * first use in the FOP session.
+	 * 
+	 * @param type The FOP type.
+	 * @param name The name of the variable.
+	 * @return The handle.
+	 */
+	private BufferVariable variable(String type, String name) {
+		return getRegistry().variable(type, name);
 	}
 
 	/**
-	 * Uses an instance of the BufferFactory to get an object of GlobalTextBuffer. Only one GlobalTextBuffer obejct is necessary.
+	 * Gets the GlobalTextBuffer of the current FOP session.
 	 * 
 	 * @return The instance of GlobalTextBuffer is returned.
 	 */
 	private GlobalTextBuffer getGlobalTextBuffer() {
-		if (globalTextBuffer == null) {
-			globalTextBuffer = BufferFactory.newInstance(true).getGlobalTextBuffer();
-		}
-		return globalTextBuffer;
+		return getRegistry().getGlobalTextBuffer();
 	}
 
 	/**
@@ -88,24 +231,40 @@ public class AbasDateUtilities {
 	 * @return The AbasDate with the days added.
 	 */
 	public AbasDate addWorkingDays(DbContext dbContext, AbasDate date, int days) {
-		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XGD2DATE)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2DATE);
+		Object cached = getCached(OP_ADD_WORKING_DAYS, date, days);
+		if (cached != null) {
+			return (AbasDate) cached;
 		}
-		if (!getUserTextBuffer().isVarDefined(XGD2RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2RESULT);
+		if (mode == Mode.ENGINE) {
+			return cache(OP_ADD_WORKING_DAYS, date, days, engineAddWorkingDays(date, days));
 		}
-		if (!getUserTextBuffer().isVarDefined(XGD8RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD8, XGD8RESULT);
+		AbasDate abasDate = bufferAddWorkingDays(date, days);
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "addWorkingDays(" + date + ", " + days + ")", abasDate, engineAddWorkingDays(date, days));
 		}
+		return cache(OP_ADD_WORKING_DAYS, date, days, abasDate);
+	}
+
+	/**
+	 * Adds a number of days to an AbasDate only considering working days using the UserTextBuffer.
+	 * 
+	 * @param date The AbasDate to add the days to.
+	 * @param days The amount of days to add.
+	 * @return The AbasDate with the days added.
+	 */
+	private AbasDate bufferAddWorkingDays(AbasDate date, int days) {
+		// declares variables as in FOP
+		BufferVariable xgd2date = variable(TYPE_GD2, XGD2DATE);
+		BufferVariable xgd2result = variable(TYPE_GD2, XGD2RESULT);
+		BufferVariable xgd8result = variable(TYPE_GD8, XGD8RESULT);
 
 		// initializes variables and calculates new date
-		getUserTextBuffer().assign(XGD2DATE, date);
-		getUserTextBuffer().formulaField(XGD2RESULT, userTextBuffer, XGD2DATE + " &" + days);
-		getUserTextBuffer().formulaValue(XGD8RESULT, userTextBuffer, XGD2RESULT);
+		xgd2date.assign(date);
+		xgd2result.formulaField(XGD2DATE + " &" + days);
+		xgd8result.formulaValue(XGD2RESULT);
 
 		// gets the new date from UserTextBuffer and returns it
-		AbasDate abasDate = getUserTextBuffer().getAbasDateValue(XGD8RESULT);
+		AbasDate abasDate = xgd8result.getAbasDate();
 		return abasDate;
 	}
 
@@ -130,24 +289,24 @@ public class AbasDateUtilities {
 	 * @return The AbasDate with the days added.
 	 */
 	public AbasDate addCalendarDays(DbContext dbContext, AbasDate date, int days) {
-		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XGD2DATE)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2DATE);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD2RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2RESULT);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD8RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD8, XGD8RESULT);
+		if (mode == Mode.ENGINE) {
+			return engineAddCalendarDays(date, days);
 		}
+		// declares variables as in FOP
+		BufferVariable xgd2date = variable(TYPE_GD2, XGD2DATE);
+		BufferVariable xgd2result = variable(TYPE_GD2, XGD2RESULT);
+		BufferVariable xgd8result = variable(TYPE_GD8, XGD8RESULT);
 
 		// initializes variables and calculates new date
-		getUserTextBuffer().assign(XGD2DATE, date);
-		getUserTextBuffer().formulaField(XGD2RESULT, userTextBuffer, XGD2DATE + " +" + days);
-		getUserTextBuffer().formulaValue(XGD8RESULT, userTextBuffer, XGD2RESULT);
+		xgd2date.assign(date);
+		xgd2result.formulaField(XGD2DATE + " +" + days);
+		xgd8result.formulaValue(XGD2RESULT);
 
 		// gets the new date from UserTextBuffer and returns it
-		AbasDate abasDate = getUserTextBuffer().getAbasDateValue(XGD8RESULT);
+		AbasDate abasDate = xgd8result.getAbasDate();
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "addCalendarDays(" + date + ", " + days + ")", abasDate, engineAddCalendarDays(date, days));
+		}
 		return abasDate;
 	}
 
@@ -173,16 +332,12 @@ public class AbasDateUtilities {
 	 */
 	public AbasTime addHours(DbContext dbContext, AbasTime time, double hours) {
 		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XZSTART_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZSTART_TIME);
-		}
-		if (!getUserTextBuffer().isVarDefined(XZRESULT_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZRESULT_TIME);
-		}
+		BufferVariable xzstartTime = variable(TYPE_TIME, XZSTART_TIME);
+		BufferVariable xzresultTime = variable(TYPE_TIME, XZRESULT_TIME);
 
 		// initializes variables and calculates new time
-		getUserTextBuffer().assign(XZSTART_TIME, time);
-		getUserTextBuffer().formulaField(XZRESULT_TIME, userTextBuffer, XZSTART_TIME + " +" + hours);
+		xzstartTime.assign(time);
+		xzresultTime.formulaField(XZSTART_TIME + " +" + hours);
 
 		// corrects the day if necessary
 		int dayCorrect = getGlobalTextBuffer().getIntegerValue(G_DAY_CORRECT);
@@ -192,7 +347,7 @@ public class AbasDateUtilities {
 		}
 		
 		// gets the new time from UserTextBuffer and returns it
-		String stringValue = getUserTextBuffer().getStringValue(XZRESULT_TIME);
+		String stringValue = xzresultTime.getString();
 		return AbasTime.valueOf(stringValue);
 	}
 
@@ -218,16 +373,12 @@ public class AbasDateUtilities {
 	 */
 	public AbasTime addMinutes(DbContext dbContext, AbasTime time, int minutes) {
 		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XZSTART_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZSTART_TIME);
-		}
-		if (!getUserTextBuffer().isVarDefined(XZRESULT_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZRESULT_TIME);
-		}
+		BufferVariable xzstartTime = variable(TYPE_TIME, XZSTART_TIME);
+		BufferVariable xzresultTime = variable(TYPE_TIME, XZRESULT_TIME);
 
 		// initializes variables and calculates new time
-		getUserTextBuffer().assign(XZSTART_TIME, time);
-		getUserTextBuffer().formulaField(XZRESULT_TIME, userTextBuffer, XZSTART_TIME + " + " + minutes);
+		xzstartTime.assign(time);
+		xzresultTime.formulaField(XZSTART_TIME + " + " + minutes);
 
 		// corrects the day if necessary
 		int dayCorrect = getGlobalTextBuffer().getIntegerValue(G_DAY_CORRECT);
@@ -237,7 +388,7 @@ public class AbasDateUtilities {
 		}
 		
 		// gets the new time from UserTextBuffer and returns it
-		String stringValue = getUserTextBuffer().getStringValue(XZRESULT_TIME);
+		String stringValue = xzresultTime.getString();
 		return AbasTime.valueOf(stringValue);
 	}
 
@@ -262,24 +413,25 @@ public class AbasDateUtilities {
 	 * @return The amount of minutes between beginTime and endTime as Integer.
 	 */
 	public int getTimeDiffMinutes(DbContext dbContext, AbasTime beginTime, AbasTime endTime) {
-		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XZSTART_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZSTART_TIME);
-		}
-		if (!getUserTextBuffer().isVarDefined(XZEND_TIME)) {
-			getUserTextBuffer().defineVar(TYPE_TIME, XZEND_TIME);
-		}
-		if (!getUserTextBuffer().isVarDefined(XIRESULT)) {
-			getUserTextBuffer().defineVar(TYPE_I2, XIRESULT);
+		if (mode == Mode.ENGINE) {
+			return engineGetTimeDiffMinutes(beginTime, endTime);
 		}
+		// declares variables as in FOP
+		BufferVariable xzstartTime = variable(TYPE_TIME, XZSTART_TIME);
+		BufferVariable xzendTime = variable(TYPE_TIME, XZEND_TIME);
+		BufferVariable xiresult = variable(TYPE_I2, XIRESULT);
 
 		// initializes variables
-		getUserTextBuffer().assign(XZSTART_TIME, beginTime);
-		getUserTextBuffer().assign(XZEND_TIME, endTime);
+		xzstartTime.assign(beginTime);
+		xzendTime.assign(endTime);
 
 		// calculates the duration
-		getUserTextBuffer().formulaField(XIRESULT, userTextBuffer, XZSTART_TIME + " - " + XZEND_TIME);
-		int integerValue = getUserTextBuffer().getIntegerValue(XIRESULT);
+		xiresult.formulaField(XZSTART_TIME + " - " + XZEND_TIME);
+		int integerValue = xiresult.getInt();
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "getTimeDiffMinutes(" + beginTime + ", " + endTime + ")", integerValue,
+					engineGetTimeDiffMinutes(beginTime, endTime));
+		}
 		return integerValue;
 	}
 
@@ -291,14 +443,32 @@ public class AbasDateUtilities {
 	 * @return The calendar week as String.
 	 */
 	public String getCalendarWeek(DbContext dbContext, AbasDate date) {
+		Object cached = getCached(OP_GET_CALENDAR_WEEK, date, 0);
+		if (cached != null) {
+			return (String) cached;
+		}
+		if (mode == Mode.ENGINE) {
+			return cache(OP_GET_CALENDAR_WEEK, date, 0, engineGetCalendarWeek(date));
+		}
+		String stringValue = bufferGetCalendarWeek(date);
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "getCalendarWeek(" + date + ")", stringValue, engineGetCalendarWeek(date));
+		}
+		return cache(OP_GET_CALENDAR_WEEK, date, 0, stringValue);
+	}
 
+	/**
+	 * Gets the calendar week of an AbasDate instance using the UserTextBuffer.
+	 * 
+	 * @param date The AbasDate of which to find out the calendar week.
+	 * @return The calendar week as String.
+	 */
+	private String bufferGetCalendarWeek(AbasDate date) {
 		String stringValue = "";
-		if (!getUserTextBuffer().isVarDefined(XWCALENDARWEEK)) {
-			getUserTextBuffer().defineVar(TYPE_WEEK, XWCALENDARWEEK);
-		}
+		BufferVariable xwcalendarweek = variable(TYPE_WEEK, XWCALENDARWEEK);
 		String dateString = date.toString();
-		getUserTextBuffer().assign(XWCALENDARWEEK, dateString);
-		stringValue = getUserTextBuffer().getStringValue(XWCALENDARWEEK);
+		xwcalendarweek.assign(dateString);
+		stringValue = xwcalendarweek.getString();
 
 		return stringValue;
 	}
@@ -312,21 +482,16 @@ public class AbasDateUtilities {
 	 * @return The AbasDate with the weeks added.
 	 */
 	public AbasDate addWeeks(DbContext dbContext, AbasDate date, int weeks) {
-
-		if (!getUserTextBuffer().isVarDefined(XGD2DATE)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2DATE);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD2DATECALC)) {
-			getUserTextBuffer().defineVar(TYPE_GD2, XGD2DATECALC);
+		Object cached = getCached(OP_ADD_WEEKS, date, weeks);
+		if (cached != null) {
+			return (AbasDate) cached;
 		}
-		if (!getUserTextBuffer().isVarDefined(XGD8RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD8, XGD8RESULT);
+		if (mode == Mode.ENGINE) {
+			return cache(OP_ADD_WEEKS, date, weeks, engineAddCalendarDays(date, DAY_COUNT * weeks));
 		}
-
-		getUserTextBuffer().assign(XGD2DATE, date);
-
+		// addCalendarDays() does the calculation in the buffer
 		AbasDate addCalendarDays = this.addCalendarDays(dbContext, date, (DAY_COUNT * weeks));
-		return addCalendarDays;
+		return cache(OP_ADD_WEEKS, date, weeks, addCalendarDays);
 	}
 
 	/**
@@ -352,29 +517,27 @@ public class AbasDateUtilities {
 	 * @return The AbasDate instance with the duration added.
 	 */
 	public AbasDate addDuration(DbContext dbContext, AbasDateTime date, AbasDuration duration) {
-		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XGD19DATE)) {
-			getUserTextBuffer().defineVar(TYPE_GD19, XGD19DATE);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD19RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD19, XGD19RESULT);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD14RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD14, XGD14RESULT);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGP4DURATION)) {
-			getUserTextBuffer().defineVar(TYPE_GP4, XGP4DURATION);
+		if (mode == Mode.ENGINE) {
+			return engineAddDuration(date, duration, 1);
 		}
+		// declares variables as in FOP
+		BufferVariable xgd19date = variable(TYPE_GD19, XGD19DATE);
+		variable(TYPE_GD19, XGD19RESULT);
+		BufferVariable xgd14result = variable(TYPE_GD14, XGD14RESULT);
+		BufferVariable xgp4duration = variable(TYPE_GP4, XGP4DURATION);
 
 		// initializes variables
-		getUserTextBuffer().assign(XGD19DATE, date);
-		getUserTextBuffer().assign(XGP4DURATION, duration);
+		xgd19date.assign(date);
+		xgp4duration.assign(duration);
 
 		// calculates new AbasDate by adding the AbasDuration instance to the AbasDateTime instance.
-		getUserTextBuffer().formulaField(XGD14RESULT, userTextBuffer, XGD19DATE + " + " + XGP4DURATION);
+		xgd14result.formulaField(XGD19DATE + " + " + XGP4DURATION);
 		
 		// gets the new date from UserTextBuffer and returns it
-		AbasDate abasDate = getUserTextBuffer().getAbasDateValue(XGD14RESULT);
+		AbasDate abasDate = xgd14result.getAbasDate();
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "addDuration(" + date + ", " + duration + ")", abasDate, engineAddDuration(date, duration, 1));
+		}
 		return abasDate;
 	}
 
@@ -389,29 +552,170 @@ public class AbasDateUtilities {
 	 * @return The AbasDate instance with the duration subtracted.
 	 */
 	public AbasDate subDuration(DbContext dbContext, AbasDateTime date, AbasDuration duration) {
-		// declares variables as in FOP
-		if (!getUserTextBuffer().isVarDefined(XGD19DATE)) {
-			getUserTextBuffer().defineVar(TYPE_GD19, XGD19DATE);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD19RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD19, XGD19RESULT);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGD14RESULT)) {
-			getUserTextBuffer().defineVar(TYPE_GD14, XGD14RESULT);
-		}
-		if (!getUserTextBuffer().isVarDefined(XGP4DURATION)) {
-			getUserTextBuffer().defineVar(TYPE_GP4, XGP4DURATION);
+		if (mode == Mode.ENGINE) {
+			return engineAddDuration(date, duration, -1);
 		}
+		// declares variables as in FOP
+		BufferVariable xgd19date = variable(TYPE_GD19, XGD19DATE);
+		variable(TYPE_GD19, XGD19RESULT);
+		BufferVariable xgd14result = variable(TYPE_GD14, XGD14RESULT);
+		BufferVariable xgp4duration = variable(TYPE_GP4, XGP4DURATION);
 
 		// initializes variables
-		getUserTextBuffer().assign(XGD19DATE, date);
-		getUserTextBuffer().assign(XGP4DURATION, duration);
+		xgd19date.assign(date);
+		xgp4duration.assign(duration);
 
 		// calculates new AbasDate by subtracting the AbasDuration instance from the AbasDateTime instance
-		getUserTextBuffer().formulaField(XGD14RESULT, userTextBuffer, XGD19DATE + " - " + XGP4DURATION);
+		xgd14result.formulaField(XGD19DATE + " - " + XGP4DURATION);
 		
 		// gets the new date from UserTextBuffer and returns it
-		AbasDate abasDate = getUserTextBuffer().getAbasDateValue(XGD14RESULT);
+		AbasDate abasDate = xgd14result.getAbasDate();
+		if (mode == Mode.VERIFY) {
+			verify(dbContext, "subDuration(" + date + ", " + duration + ")", abasDate, engineAddDuration(date, duration, -1));
+		}
 		return abasDate;
 	}
+
+	/**
+	 * Gets a result from the process-wide cache.
+	 * 
+	 * @param operation The operation.
+	 * @param date The input date.
+	 * @param offset The offset.
+	 * @return The result or null if it is not cached or the cache is not used.
+	 */
+	private Object getCached(String operation, AbasDate date, int offset) {
+		if (!cachingEnabled || mode == Mode.VERIFY) {
+			return null;
+		}
+		return RESULT_CACHE.get(operation, date.toString(), offset);
+	}
+
+	/**
+	 * Puts a result into the process-wide cache.
+	 * 
+	 * @param operation The operation.
+	 * @param date The input date.
+	 * @param offset The offset.
+	 * @param result The result.
+	 * @return The result.
+	 */
+	private <T> T cache(String operation, AbasDate date, int offset, T result) {
+		if (cachingEnabled && mode != Mode.VERIFY) {
+			RESULT_CACHE.put(operation, date.toString(), offset, result);
+		}
+		return result;
+	}
+
+	private AbasDate engineAddWorkingDays(AbasDate date, int days) {
+		return toAbasDate(FACTORY_CALENDAR.addWorkingDays(toEpochDay(date), days, yearLoader));
+	}
+
+	private AbasDate engineAddCalendarDays(AbasDate date, int days) {
+		return toAbasDate(toEpochDay(date) + days);
+	}
+
+	private int engineGetTimeDiffMinutes(AbasTime beginTime, AbasTime endTime) {
+		// same sign as the formula of the buffer
+		return CalendarMath.parseMinuteOfDay(beginTime.toString()) - CalendarMath.parseMinuteOfDay(endTime.toString());
+	}
+
+	private String engineGetCalendarWeek(AbasDate date) {
+		String format = getWeekFormat();
+		if (format.isEmpty()) {
+			return bufferGetCalendarWeek(date);
+		}
+		int week = CalendarMath.isoWeek(toEpochDay(date));
+		return String.format(format, week / 100, week % 100);
+	}
+
+	private AbasDate engineAddDuration(AbasDateTime date, AbasDuration duration, int sign) {
+		calendar.setTime(date.toDate());
+		int secondOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 3600 + calendar.get(Calendar.MINUTE) * 60 + calendar.get(Calendar.SECOND);
+		long epochSecond = CalendarMath.toEpochSecond(toEpochDay(calendar), secondOfDay) + sign
+				* CalendarMath.parseDurationSeconds(duration.toString());
+		return toAbasDate(CalendarMath.epochDayOfSecond(epochSecond));
+	}
+
+	/**
+	 * Loads the working days of a year from the factory calendar by walking from working day to
+	 * working day with the buffer.
+	 * 
+	 * @param year The year.
+	 * @return The working days as bitset.
+	 */
+	private long[] loadYear(int year) {
+		long[] yearBits = FactoryCalendar.newYear();
+		int firstDay = CalendarMath.toEpochDay(year, 1, 1);
+		int firstDayOfNextYear = CalendarMath.toEpochDay(year + 1, 1, 1);
+		int day = firstDay - 1;
+		AbasDate date = toAbasDate(day);
+		while (true) {
+			date = bufferAddWorkingDays(date, 1);
+			int next = toEpochDay(date);
+			if (next <= day) {
+				throw new RuntimeException("Factory calendar does not advance after " + date);
+			}
+			if (next >= firstDayOfNextYear) {
+				return yearBits;
+			}
+			FactoryCalendar.setWorkingDay(yearBits, next - firstDay);
+			day = next;
+		}
+	}
+
+	/**
+	 * Returns the format of calendar weeks. It is learned once from the buffer's calendar week of
+	 * 2015-01-05, which is week 02 of 2015.
+	 * 
+	 * @return The format with the year as first and the week as second argument, or "" if the format
+	 * is not recognized.
+	 */
+	private String getWeekFormat() {
+		String format = weekFormat;
+		if (format == null) {
+			String sample = bufferGetCalendarWeek(toAbasDate(CalendarMath.toEpochDay(2015, 1, 5)));
+			if (sample.contains("2015") && sample.replace("2015", "").contains("02") && !sample.contains("%")) {
+				format = sample.replace("2015", "%1$04d").replace("02", "%2$02d");
+			}
+			else {
+				format = "";
+			}
+			weekFormat = format;
+		}
+		return format;
+	}
+
+	/**
+	 * Compares the results of buffer and engine in the mode VERIFY.
+	 * 
+	 * @param dbContext The database context.
+	 * @param operation The operation and its arguments.
+	 * @param bufferResult The result of the buffer.
+	 * @param engineResult The result of the engine.
+	 */
+	private void verify(DbContext dbContext, String operation, Object bufferResult, Object engineResult) {
+		if (!String.valueOf(bufferResult).equals(String.valueOf(engineResult))) {
+			VERIFY_MISMATCHES.incrementAndGet();
+			if (dbContext != null) {
+				dbContext.out().println("AbasDateUtilities " + operation + ": buffer " + bufferResult + ", engine " + engineResult);
+			}
+		}
+	}
+
+	private int toEpochDay(AbasDate date) {
+		calendar.setTime(date.toDate());
+		return toEpochDay(calendar);
+	}
+
+	private static int toEpochDay(Calendar calendar) {
+		return CalendarMath.toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+	}
+
+	private AbasDate toAbasDate(int epochDay) {
+		int yearMonthDay = CalendarMath.toYearMonthDay(epochDay);
+		calendar.clear();
+		calendar.set(yearMonthDay / 10000, yearMonthDay / 100 % 100 - 1, yearMonthDay % 100);
+		return new AbasDate(calendar.getTime());
+	}
 }
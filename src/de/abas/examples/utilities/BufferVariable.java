@@ -0,0 +1,82 @@
+package de.abas.examples.utilities;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.jfop.base.buffer.UserTextBuffer;
+
+/**
+ * Handle of a variable of the UserTextBuffer which is known to be defined.
+ *
+ * Handles are created by {@link BufferVariableRegistry#variable(String, String)}, so using a handle
+ * never checks or defines the variable again.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class BufferVariable {
+
+	private final BufferVariableRegistry registry;
+	private final String type;
+	private final String name;
+
+	BufferVariable(BufferVariableRegistry registry, String type, String name) {
+		this.registry = registry;
+		this.type = type;
+		this.name = name;
+	}
+
+	/**
+	 * Assigns a value to the variable.
+	 *
+	 * @param value The value.
+	 */
+	public void assign(Object value) {
+		registry.getUserTextBuffer().assign(name, value);
+	}
+
+	/**
+	 * Assigns the result of a formula to the variable, like FOP's formula with the variable as field.
+	 *
+	 * @param formula The formula.
+	 */
+	public void formulaField(String formula) {
+		final UserTextBuffer userTextBuffer = registry.getUserTextBuffer();
+		userTextBuffer.formulaField(name, userTextBuffer, formula);
+	}
+
+	/**
+	 * Assigns the value of a formula to the variable.
+	 *
+	 * @param formula The formula.
+	 */
+	public void formulaValue(String formula) {
+		final UserTextBuffer userTextBuffer = registry.getUserTextBuffer();
+		userTextBuffer.formulaValue(name, userTextBuffer, formula);
+	}
+
+	public AbasDate getAbasDate() {
+		return registry.getUserTextBuffer().getAbasDateValue(name);
+	}
+
+	public int getInt() {
+		return registry.getUserTextBuffer().getIntegerValue(name);
+	}
+
+	public String getString() {
+		return registry.getUserTextBuffer().getStringValue(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,115 @@
+package de.abas.examples.utilities;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.abas.jfop.base.buffer.BufferFactory;
+import de.abas.jfop.base.buffer.GlobalTextBuffer;
+import de.abas.jfop.base.buffer.UserTextBuffer;
+
+/**
+ * Buffers and helper variables of one FOP session.
+ *
+ * The registry of a session is found by its UserTextBuffer and kept as long as the buffer is
+ * reachable, so callers have to keep a reference to {@link #getUserTextBuffer()} while they use the
+ * registry. Callers which get a different UserTextBuffer object from the BufferFactory get their own
+ * registry, so the variables are then checked once per caller instead of once per session. Each
+ * variable is checked and defined in the buffer the first time it is requested, afterwards
+ * {@link #variable(String, String)} only returns the remembered handle.
+ *
+ * Variables removed from the UserTextBuffer by other FOP code are not noticed. Call
+ * {@link #forget()} in that case.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class BufferVariableRegistry {
+
+	private static final Map<UserTextBuffer, BufferVariableRegistry> REGISTRIES = Collections
+			.synchronizedMap(new WeakHashMap<UserTextBuffer, BufferVariableRegistry>());
+
+	// weak, the registry is the value of a WeakHashMap keyed by the buffer
+	private final WeakReference<UserTextBuffer> userTextBuffer;
+	private final GlobalTextBuffer globalTextBuffer;
+	private final Map<String, BufferVariable> variables = new ConcurrentHashMap<String, BufferVariable>();
+
+	private BufferVariableRegistry(UserTextBuffer userTextBuffer, GlobalTextBuffer globalTextBuffer) {
+		this.userTextBuffer = new WeakReference<UserTextBuffer>(userTextBuffer);
+		this.globalTextBuffer = globalTextBuffer;
+	}
+
+	/**
+	 * Returns the registry of the current FOP session.
+	 *
+	 * @return The registry.
+	 */
+	public static BufferVariableRegistry current() {
+		final BufferFactory bufferFactory = BufferFactory.newInstance(true);
+		final UserTextBuffer userTextBuffer = bufferFactory.getUserTextBuffer();
+		synchronized (REGISTRIES) {
+			BufferVariableRegistry registry = REGISTRIES.get(userTextBuffer);
+			if (registry == null) {
+				registry = new BufferVariableRegistry(userTextBuffer, bufferFactory.getGlobalTextBuffer());
+				REGISTRIES.put(userTextBuffer, registry);
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Returns the UserTextBuffer of the session.
+	 *
+	 * @return The UserTextBuffer.
+	 */
+	public UserTextBuffer getUserTextBuffer() {
+		final UserTextBuffer buffer = userTextBuffer.get();
+		if (buffer == null) {
+			throw new IllegalStateException("The FOP session of this registry has ended");
+		}
+		return buffer;
+	}
+
+	public GlobalTextBuffer getGlobalTextBuffer() {
+		return globalTextBuffer;
+	}
+
+	/**
+	 * Returns the handle of a variable, defining the variable if it is not defined yet.
+	 *
+	 * @param type The FOP type, e.g. GD2.
+	 * @param name The name of the variable.
+	 * @return The handle.
+	 */
+	public BufferVariable variable(String type, String name) {
+		BufferVariable variable = variables.get(name);
+		if (variable == null) {
+			synchronized (this) {
+				variable = variables.get(name);
+				if (variable == null) {
+					final UserTextBuffer buffer = getUserTextBuffer();
+					if (!buffer.isVarDefined(name)) {
+						buffer.defineVar(type, name);
+					}
+					variable = new BufferVariable(this, type, name);
+					variables.put(name, variable);
+				}
+			}
+		}
+		if (!variable.getType().equals(type)) {
+			throw new IllegalStateException("Variable " + name + " is already registered with type " + variable.getType() + ", not " + type);
+		}
+		return variable;
+	}
+
+	/**
+	 * Forgets all handles, so the variables are checked again on next use.
+	 */
+	public void forget() {
+		variables.clear();
+	}
+
+}
@@ -0,0 +1,234 @@
+package de.abas.examples.utilities;
+
+/**
+ * Date arithmetic on epoch days (days since 1970-01-01) of the proleptic Gregorian calendar.
+ *
+ * All methods work on primitive values only and do not allocate, so they can be used for large
+ * numbers of date calculations.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public final class CalendarMath {
+
+	private static final int SECONDS_PER_DAY = 86400;
+
+	private CalendarMath() {
+	}
+
+	/**
+	 * Converts a date to its epoch day.
+	 *
+	 * @param year The year.
+	 * @param month The month from 1 to 12.
+	 * @param day The day of the month.
+	 * @return The epoch day.
+	 */
+	public static int toEpochDay(int year, int month, int day) {
+		// years start in March, so the leap day is the last day of a year
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = (y >= 0 ? y : y - 399) / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Converts an epoch day to year, month and day.
+	 *
+	 * @param epochDay The epoch day.
+	 * @return The date as year * 10000 + month * 100 + day.
+	 */
+	public static int toYearMonthDay(int epochDay) {
+		final int z = epochDay + 719468;
+		final int era = (z >= 0 ? z : z - 146096) / 146097;
+		final int dayOfEra = z - era * 146097;
+		final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int mp = (5 * dayOfYear + 2) / 153;
+		final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		final int month = mp < 10 ? mp + 3 : mp - 9;
+		final int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return year * 10000 + month * 100 + day;
+	}
+
+	/**
+	 * Returns the year of an epoch day.
+	 *
+	 * @param epochDay The epoch day.
+	 * @return The year.
+	 */
+	public static int year(int epochDay) {
+		return toYearMonthDay(epochDay) / 10000;
+	}
+
+	/**
+	 * Returns the day of the year of an epoch day.
+	 *
+	 * @param epochDay The epoch day.
+	 * @return The day of the year starting with 0 for January 1st.
+	 */
+	public static int dayOfYear(int epochDay) {
+		return epochDay - toEpochDay(year(epochDay), 1, 1);
+	}
+
+	/**
+	 * Returns the ISO day of the week of an epoch day.
+	 *
+	 * @param epochDay The epoch day.
+	 * @return The day of the week from 1 (Monday) to 7 (Sunday).
+	 */
+	public static int dayOfWeek(int epochDay) {
+		// 1970-01-01 was a Thursday
+		return floorMod(epochDay + 3, 7) + 1;
+	}
+
+	/**
+	 * Returns the ISO 8601 calendar week of an epoch day. Weeks start on Monday, the first week of
+	 * a year is the week containing its first Thursday.
+	 *
+	 * @param epochDay The epoch day.
+	 * @return The week as week based year * 100 + week.
+	 */
+	public static int isoWeek(int epochDay) {
+		final int thursday = epochDay - dayOfWeek(epochDay) + 4;
+		return year(thursday) * 100 + dayOfYear(thursday) / 7 + 1;
+	}
+
+	/**
+	 * Splits seconds since the epoch into the epoch day.
+	 *
+	 * @param epochSecond The seconds since 1970-01-01 00:00:00.
+	 * @return The epoch day.
+	 */
+	public static int epochDayOfSecond(long epochSecond) {
+		return (int) floorDiv(epochSecond, SECONDS_PER_DAY);
+	}
+
+	/**
+	 * Returns the seconds since the epoch of a day and time.
+	 *
+	 * @param epochDay The epoch day.
+	 * @param secondOfDay The seconds since midnight.
+	 * @return The seconds since 1970-01-01 00:00:00.
+	 */
+	public static long toEpochSecond(int epochDay, int secondOfDay) {
+		return (long) epochDay * SECONDS_PER_DAY + secondOfDay;
+	}
+
+	/**
+	 * Parses a duration in abas notation, e.g. 3D01h12m09s. Every part is optional, a leading sign
+	 * is allowed.
+	 *
+	 * @param duration The duration.
+	 * @return The duration in seconds.
+	 */
+	public static long parseDurationSeconds(CharSequence duration) {
+		long seconds = 0;
+		long value = 0;
+		boolean hasDigits = false;
+		boolean hasParts = false;
+		int sign = 1;
+		for (int i = 0; i < duration.length(); i++) {
+			final char c = duration.charAt(i);
+			if (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+				hasDigits = true;
+			}
+			else if ((c == '-' || c == '+') && i == 0) {
+				sign = c == '-' ? -1 : 1;
+			}
+			else if (c == ' ' && !hasDigits) {
+				// blanks between the parts
+			}
+			else if (hasDigits) {
+				seconds += value * unitSeconds(c, duration);
+				value = 0;
+				hasDigits = false;
+				hasParts = true;
+			}
+			else {
+				throw new IllegalArgumentException("Invalid duration: " + duration);
+			}
+		}
+		if (hasDigits || !hasParts) {
+			throw new IllegalArgumentException("Invalid duration: " + duration);
+		}
+		return sign * seconds;
+	}
+
+	/**
+	 * Parses a time of day, e.g. 08:30 or 0830.
+	 *
+	 * @param time The time.
+	 * @return The minutes since midnight.
+	 */
+	public static int parseMinuteOfDay(CharSequence time) {
+		int hours = 0;
+		int minutes = 0;
+		int digits = 0;
+		boolean separated = false;
+		for (int i = 0; i < time.length(); i++) {
+			final char c = time.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (separated) {
+					minutes = minutes * 10 + (c - '0');
+				}
+				else {
+					hours = hours * 10 + (c - '0');
+				}
+				digits++;
+			}
+			else if (c == ':' && !separated) {
+				separated = true;
+			}
+			else if (c == ':') {
+				// ignores seconds
+				break;
+			}
+			else if (c != ' ') {
+				throw new IllegalArgumentException("Invalid time: " + time);
+			}
+		}
+		if (!separated) {
+			if (digits < 3) {
+				throw new IllegalArgumentException("Invalid time: " + time);
+			}
+			// HHmm without separator
+			minutes = hours % 100;
+			hours = hours / 100;
+		}
+		return hours * 60 + minutes;
+	}
+
+	private static long unitSeconds(char unit, CharSequence duration) {
+		switch (unit) {
+		case 'D':
+		case 'd':
+			return SECONDS_PER_DAY;
+		case 'h':
+		case 'H':
+			return 3600;
+		case 'm':
+			return 60;
+		case 's':
+		case 'S':
+			return 1;
+		default:
+			throw new IllegalArgumentException("Invalid duration: " + duration);
+		}
+	}
+
+	private static int floorMod(int x, int y) {
+		final int mod = x % y;
+		return mod < 0 ? mod + y : mod;
+	}
+
+	private static long floorDiv(long x, long y) {
+		final long div = x / y;
+		return (x % y != 0 && (x < 0) != (y < 0)) ? div - 1 : div;
+	}
+
+}
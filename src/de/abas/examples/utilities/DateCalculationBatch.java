@@ -0,0 +1,173 @@
+package de.abas.examples.utilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.common.type.AbasDateTime;
+import de.abas.erp.common.type.AbasDuration;
+import de.abas.erp.db.DbContext;
+
+/**
+ * Collects date calculations, e.g. of all table rows of an object, and calculates each distinct
+ * calculation once.
+ *
+ * Every add method returns a handle for the result. Identical calculations get the same handle.
+ * After {@link #resolve()} the results can be read with {@link #getResult(int)}. Results stay
+ * memoized for the lifetime of the batch, so a batch should live as long as one event.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class DateCalculationBatch {
+
+	private enum Operation {
+		ADD_DURATION, ADD_WORKING_DAYS
+	}
+
+	/**
+	 * One distinct calculation.
+	 */
+	private static class Calculation {
+		private final Operation operation;
+		private final Object date;
+		private final Object argument;
+		private final String dateText;
+		private final String argumentText;
+
+		private Calculation(Operation operation, Object date, Object argument) {
+			this.operation = operation;
+			this.date = date;
+			this.argument = argument;
+			dateText = date.toString();
+			argumentText = argument.toString();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Calculation)) {
+				return false;
+			}
+			final Calculation other = (Calculation) obj;
+			return operation == other.operation && dateText.equals(other.dateText) && argumentText.equals(other.argumentText);
+		}
+
+		@Override
+		public int hashCode() {
+			return (operation.hashCode() * 31 + dateText.hashCode()) * 31 + argumentText.hashCode();
+		}
+	}
+
+	private final DbContext dbContext;
+	private final AbasDateUtilities abasDateUtilities;
+	private final Map<Calculation, Integer> handles = new HashMap<Calculation, Integer>();
+	private final List<Calculation> calculations = new ArrayList<Calculation>();
+	private final List<AbasDate> results = new ArrayList<AbasDate>();
+	private int requestCount = 0;
+	private int calculationCount = 0;
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param dbContext The database context.
+	 * @param abasDateUtilities The AbasDateUtilities instance doing the calculations.
+	 */
+	public DateCalculationBatch(DbContext dbContext, AbasDateUtilities abasDateUtilities) {
+		this.dbContext = dbContext;
+		this.abasDateUtilities = abasDateUtilities;
+	}
+
+	/**
+	 * Adds the calculation of an AbasDuration added to an AbasDateTime, see
+	 * {@link AbasDateUtilities#addDuration(DbContext, AbasDateTime, AbasDuration)}.
+	 *
+	 * @param date The AbasDateTime instance to add the AbasDuration instance to.
+	 * @param duration The AbasDuration instance to add.
+	 * @return The handle of the result.
+	 */
+	public int addDuration(AbasDateTime date, AbasDuration duration) {
+		return add(new Calculation(Operation.ADD_DURATION, date, duration));
+	}
+
+	/**
+	 * Adds the calculation of working days added to an AbasDate, see
+	 * {@link AbasDateUtilities#addWorkingDays(DbContext, AbasDate, int)}.
+	 *
+	 * @param date The AbasDate to add the days to.
+	 * @param days The amount of days to add.
+	 * @return The handle of the result.
+	 */
+	public int addWorkingDays(AbasDate date, int days) {
+		return add(new Calculation(Operation.ADD_WORKING_DAYS, date, Integer.valueOf(days)));
+	}
+
+	/**
+	 * Calculates all results not calculated yet.
+	 */
+	public void resolve() {
+		for (int i = 0; i < calculations.size(); i++) {
+			if (results.get(i) == null) {
+				results.set(i, calculate(calculations.get(i)));
+				calculationCount++;
+			}
+		}
+	}
+
+	/**
+	 * Returns a result, calculating it if {@link #resolve()} was not called since it was added.
+	 *
+	 * @param handle The handle returned by the add method.
+	 * @return The result.
+	 */
+	public AbasDate getResult(int handle) {
+		if (results.get(handle) == null) {
+			resolve();
+		}
+		return results.get(handle);
+	}
+
+	/**
+	 * Returns the number of calculations added.
+	 *
+	 * @return The number of calculations added including duplicates.
+	 */
+	public int getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 * Returns the number of calculations actually done.
+	 *
+	 * @return The number of distinct calculations done.
+	 */
+	public int getCalculationCount() {
+		return calculationCount;
+	}
+
+	private int add(Calculation calculation) {
+		requestCount++;
+		Integer handle = handles.get(calculation);
+		if (handle == null) {
+			handle = Integer.valueOf(calculations.size());
+			handles.put(calculation, handle);
+			calculations.add(calculation);
+			results.add(null);
+		}
+		return handle.intValue();
+	}
+
+	private AbasDate calculate(Calculation calculation) {
+		switch (calculation.operation) {
+		case ADD_DURATION:
+			return abasDateUtilities.addDuration(dbContext, (AbasDateTime) calculation.date, (AbasDuration) calculation.argument);
+		case ADD_WORKING_DAYS:
+			return abasDateUtilities.addWorkingDays(dbContext, (AbasDate) calculation.date, ((Integer) calculation.argument).intValue());
+		default:
+			throw new IllegalStateException("Unknown operation " + calculation.operation);
+		}
+	}
+
+}
@@ -0,0 +1,256 @@
+package de.abas.examples.utilities;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of date calculation results keyed by operation, input date and offset.
+ *
+ * The cache is split into segments, each a LinkedHashMap in access order guarded by its own lock,
+ * so threads rarely wait for each other and each segment evicts its least recently used entry.
+ * All entries are dropped at midnight and whenever the version of the factory calendar changes.
+ *
+ * Changes of the factory calendar in the ERP are not reported to the cache. If a reload interval
+ * is set, the factory calendar is invalidated when the interval has passed, so its years are loaded
+ * again and the changes are used after at most one interval. Otherwise the calendar has to be
+ * invalidated by the caller after it was changed.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class DateResultCache {
+
+	/**
+	 * Snapshot of the cache statistics.
+	 */
+	public static class Statistics {
+		public long hits;
+		public long misses;
+		public long evictions;
+		public long invalidations;
+		public int size;
+		public int maxSize;
+
+		public double getHitRatio() {
+			final long requests = hits + misses;
+			return requests == 0 ? 0 : (double) hits / requests;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", hitRatio=" + String.format("%.3f", getHitRatio()) + ", evictions=" + evictions
+					+ ", invalidations=" + invalidations + ", size=" + size + "/" + maxSize;
+		}
+	}
+
+	private static class Key {
+		private final String operation;
+		private final String date;
+		private final int offset;
+
+		private Key(String operation, String date, int offset) {
+			this.operation = operation;
+			this.date = date;
+			this.offset = offset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return offset == other.offset && operation.equals(other.operation) && date.equals(other.date);
+		}
+
+		@Override
+		public int hashCode() {
+			return (operation.hashCode() * 31 + date.hashCode()) * 31 + offset;
+		}
+	}
+
+	private class Segment extends LinkedHashMap<Key, Object> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		private Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			if (size() > maxSize) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static final int SEGMENTS = 16;
+
+	private final FactoryCalendar factoryCalendar;
+	private final int maxSize;
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private volatile long validUntilMillis;
+	private volatile int calendarVersion;
+	private final long calendarReloadMillis;
+	private volatile long calendarReloadAtMillis;
+
+	/**
+	 * Creates a cache which only reloads the factory calendar when it is invalidated.
+	 *
+	 * @param factoryCalendar The factory calendar whose changes invalidate the cache.
+	 * @param maxSize The maximum number of entries.
+	 */
+	public DateResultCache(FactoryCalendar factoryCalendar, int maxSize) {
+		this(factoryCalendar, maxSize, 0);
+	}
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param factoryCalendar The factory calendar whose changes invalidate the cache.
+	 * @param maxSize The maximum number of entries.
+	 * @param calendarReloadMillis The interval after which the factory calendar is invalidated, 0 to
+	 * only reload it when it is invalidated by the caller.
+	 */
+	public DateResultCache(FactoryCalendar factoryCalendar, int maxSize, long calendarReloadMillis) {
+		this.factoryCalendar = factoryCalendar;
+		this.maxSize = maxSize;
+		this.calendarReloadMillis = calendarReloadMillis;
+		calendarReloadAtMillis = System.currentTimeMillis() + calendarReloadMillis;
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+		}
+		calendarVersion = factoryCalendar.getVersion();
+		validUntilMillis = nextMidnight();
+	}
+
+	/**
+	 * Gets a cached result.
+	 *
+	 * @param operation The operation.
+	 * @param date The input date as string.
+	 * @param offset The offset, e.g. the number of days.
+	 * @return The result or null if it is not cached.
+	 */
+	public Object get(String operation, String date, int offset) {
+		checkValidity();
+		final Key key = new Key(operation, date, offset);
+		final Segment segment = segment(key);
+		final Object value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value == null) {
+			misses.incrementAndGet();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Caches a result.
+	 *
+	 * @param operation The operation.
+	 * @param date The input date as string.
+	 * @param offset The offset, e.g. the number of days.
+	 * @param value The result.
+	 */
+	public void put(String operation, String date, int offset, Object value) {
+		if (value == null) {
+			return;
+		}
+		final Key key = new Key(operation, date, offset);
+		final Segment segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Drops all entries.
+	 */
+	public void invalidate() {
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		invalidations.incrementAndGet();
+	}
+
+	/**
+	 * Returns a snapshot of the statistics.
+	 *
+	 * @return The statistics.
+	 */
+	public Statistics getStatistics() {
+		final Statistics statistics = new Statistics();
+		statistics.hits = hits.get();
+		statistics.misses = misses.get();
+		statistics.evictions = evictions.get();
+		statistics.invalidations = invalidations.get();
+		statistics.maxSize = maxSize;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				statistics.size += segment.size();
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Drops all entries if midnight has passed or the factory calendar changed. Invalidates the
+	 * factory calendar if the reload interval has passed.
+	 */
+	private void checkValidity() {
+		if (calendarReloadMillis > 0 && System.currentTimeMillis() >= calendarReloadAtMillis) {
+			synchronized (this) {
+				if (System.currentTimeMillis() >= calendarReloadAtMillis) {
+					calendarReloadAtMillis = System.currentTimeMillis() + calendarReloadMillis;
+					// changes the version, so the entries are dropped below
+					factoryCalendar.invalidate();
+				}
+			}
+		}
+		final int version = factoryCalendar.getVersion();
+		if (System.currentTimeMillis() >= validUntilMillis || version != calendarVersion) {
+			synchronized (this) {
+				if (System.currentTimeMillis() >= validUntilMillis || version != calendarVersion) {
+					invalidate();
+					calendarVersion = version;
+					validUntilMillis = nextMidnight();
+				}
+			}
+		}
+	}
+
+	private Segment segment(Key key) {
+		final int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	private static long nextMidnight() {
+		final Calendar calendar = new GregorianCalendar();
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		return calendar.getTimeInMillis();
+	}
+
+}
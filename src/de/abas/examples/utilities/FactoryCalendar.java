@@ -0,0 +1,168 @@
+package de.abas.examples.utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory copy of the factory calendar, i.e. which days are working days.
+ *
+ * Each year is stored as a bitset of 366 bits, one per day of the year. A year is loaded the
+ * first time a calculation needs it and kept until {@link #invalidate()} is called. Lookups and
+ * working day arithmetic on loaded years do not allocate.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public class FactoryCalendar {
+
+	/**
+	 * Loads the working days of one year.
+	 */
+	public interface YearLoader {
+		/**
+		 * Loads the working days of a year.
+		 *
+		 * @param year The year.
+		 * @return The working days, bit n of the array is set if day n of the year (starting with 0 for
+		 * January 1st) is a working day. See {@link FactoryCalendar#newYear()}.
+		 */
+		long[] load(int year);
+	}
+
+	public static final int MIN_YEAR = 1900;
+	public static final int MAX_YEAR = 2199;
+
+	private final AtomicReferenceArray<long[]> years = new AtomicReferenceArray<long[]>(MAX_YEAR - MIN_YEAR + 1);
+	private final AtomicInteger version = new AtomicInteger();
+
+	/**
+	 * Creates an empty bitset for one year.
+	 *
+	 * @return The bitset.
+	 */
+	public static long[] newYear() {
+		return new long[6];
+	}
+
+	/**
+	 * Marks a day as working day.
+	 *
+	 * @param yearBits The bitset of the year.
+	 * @param dayOfYear The day of the year starting with 0.
+	 */
+	public static void setWorkingDay(long[] yearBits, int dayOfYear) {
+		yearBits[dayOfYear >>> 6] |= 1L << dayOfYear;
+	}
+
+	/**
+	 * Checks whether a day is a working day.
+	 *
+	 * @param epochDay The day.
+	 * @param loader The loader for a year not loaded yet.
+	 * @return True if the day is a working day, else false.
+	 */
+	public boolean isWorkingDay(int epochDay, YearLoader loader) {
+		final int year = CalendarMath.year(epochDay);
+		return isSet(getYear(year, loader), epochDay - CalendarMath.toEpochDay(year, 1, 1));
+	}
+
+	/**
+	 * Adds working days to a day. If days is 0 and the day is no working day, the next working day is
+	 * returned.
+	 *
+	 * @param epochDay The day.
+	 * @param days The number of working days to add, may be negative.
+	 * @param loader The loader for years not loaded yet.
+	 * @return The resulting day.
+	 */
+	public int addWorkingDays(int epochDay, int days, YearLoader loader) {
+		final int step = days < 0 ? -1 : 1;
+		int remaining = days == 0 ? 1 : Math.abs(days);
+		int day = days == 0 ? epochDay - 1 : epochDay;
+		int year = CalendarMath.year(day);
+		int firstDayOfYear = CalendarMath.toEpochDay(year, 1, 1);
+		int firstDayOfNextYear = CalendarMath.toEpochDay(year + 1, 1, 1);
+		long[] yearBits = getYear(year, loader);
+		while (remaining > 0) {
+			day += step;
+			if (day < firstDayOfYear || day >= firstDayOfNextYear) {
+				year += step;
+				firstDayOfYear = CalendarMath.toEpochDay(year, 1, 1);
+				firstDayOfNextYear = CalendarMath.toEpochDay(year + 1, 1, 1);
+				yearBits = getYear(year, loader);
+			}
+			final int dayOfYear = day - firstDayOfYear;
+			if (isSet(yearBits, dayOfYear)) {
+				remaining--;
+			}
+		}
+		return day;
+	}
+
+	/**
+	 * Returns the version of the calendar, which changes whenever the calendar is invalidated.
+	 *
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Forgets all loaded years, e.g. after the factory calendar was changed.
+	 */
+	public void invalidate() {
+		for (int i = 0; i < years.length(); i++) {
+			years.set(i, null);
+		}
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Checks whether a year is loaded.
+	 *
+	 * @param year The year.
+	 * @return True if the year is loaded, else false.
+	 */
+	public boolean isLoaded(int year) {
+		return years.get(index(year)) != null;
+	}
+
+	/**
+	 * Returns the bitset of a year, loading it if necessary.
+	 *
+	 * @param year The year.
+	 * @param loader The loader.
+	 * @return The bitset.
+	 */
+	private long[] getYear(int year, YearLoader loader) {
+		final int index = index(year);
+		long[] yearBits = years.get(index);
+		if (yearBits == null) {
+			synchronized (this) {
+				yearBits = years.get(index);
+				if (yearBits == null) {
+					yearBits = loader.load(year);
+					if (yearBits.length < 6) {
+						throw new IllegalArgumentException("Bitset of year " + year + " is too short");
+					}
+					years.set(index, yearBits);
+				}
+			}
+		}
+		return yearBits;
+	}
+
+	private static int index(int year) {
+		if (year < MIN_YEAR || year > MAX_YEAR) {
+			throw new IllegalArgumentException("Year " + year + " is outside of the factory calendar (" + MIN_YEAR + " - " + MAX_YEAR + ")");
+		}
+		return year - MIN_YEAR;
+	}
+
+	private static boolean isSet(long[] yearBits, int dayOfYear) {
+		return (yearBits[dayOfYear >>> 6] & (1L << dayOfYear)) != 0;
+	}
+
+}
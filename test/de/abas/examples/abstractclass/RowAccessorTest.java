@@ -0,0 +1,67 @@
+package de.abas.examples.abstractclass;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import de.abas.erp.axi.event.EventException;
+import de.abas.erp.db.SelectableRow;
+import de.abas.erp.db.schema.account.CostObject;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.schema.sales.InvoiceEditor;
+import de.abas.erp.db.schema.sales.QuotationEditor;
+import de.abas.erp.db.schema.sales.SalesOrderEditor;
+import de.abas.examples.standin.StandIn;
+
+public class RowAccessorTest {
+
+	private final Product product = StandIn.create(Product.class);
+
+	@Test
+	public void readsAndWritesInvoiceRows() throws EventException {
+		final InvoiceEditor.Row row = StandInRows.newRow(InvoiceEditor.Row.class, product);
+		final RowAccessor rowAccessor = RowAccessor.of(row);
+		assertTrue(rowAccessor.isPackingSlipOrInvoice());
+		assertFalse(rowAccessor.isQuotationOrSalesOrder());
+		assertTrue(rowAccessor.isEditingLogged());
+		assertSame(product, rowAccessor.getProduct(row));
+		assertNull(rowAccessor.getCostCenter(row));
+
+		final CostObject costObject = StandIn.create(CostObject.class);
+		rowAccessor.setCostCenter(row, costObject);
+		assertSame(costObject, rowAccessor.getCostCenter(row));
+	}
+
+	@Test
+	public void resolvesOncePerRowClass() {
+		final SelectableRow first = StandInRows.newRow(InvoiceEditor.Row.class, product);
+		final SelectableRow second = StandInRows.newRow(InvoiceEditor.Row.class, product);
+		assertSame(RowAccessor.of(first), RowAccessor.of(second));
+	}
+
+	@Test
+	public void rejectsCostCenterOfQuotationRows() throws EventException {
+		final QuotationEditor.Row row = StandInRows.newRow(QuotationEditor.Row.class, product);
+		assertSame(product, RowAccessor.of(row).getProduct(row));
+		try {
+			RowAccessor.of(row).getCostCenter(row);
+			fail("EventException expected");
+		}
+		catch (final EventException e) {
+			assertEquals("Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.", e.getMessage());
+		}
+	}
+
+	@Test(expected = EventException.class)
+	public void rejectsProductOfSalesOrderRows() throws EventException {
+		final SalesOrderEditor.Row row = StandInRows.newRow(SalesOrderEditor.Row.class, product);
+		assertTrue(RowAccessor.of(row).isQuotationOrSalesOrder());
+		RowAccessor.of(row).getProduct(row);
+	}
+
+}
@@ -0,0 +1,145 @@
+package de.abas.examples.abstractclass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.abas.erp.axi.event.EventException;
+import de.abas.erp.db.SelectableRow;
+import de.abas.erp.db.schema.account.CostObject;
+import de.abas.erp.db.schema.account.SelectableAccount;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.schema.part.SelectablePart;
+import de.abas.erp.db.schema.sales.InvoiceEditor;
+import de.abas.erp.db.schema.sales.PackingSlipEditor;
+import de.abas.erp.db.schema.sales.QuotationEditor;
+import de.abas.examples.benchmark.MicroBenchmark;
+import de.abas.examples.benchmark.MicroBenchmark.Operation;
+import de.abas.examples.standin.StandIn;
+
+/**
+ * Benchmarks the per-row cost of the row type dispatch in {@link SalesHelperClass}: the former
+ * instanceof chains against the {@link RowAccessor} resolved once per row class.
+ *
+ * Each operation handles every row of one table the way SalesHelperClass handles a packing slip or
+ * invoice row: check the row type, read the product, read the cost center and set the cost center.
+ * The rows are stand-ins, so only the dispatch is measured, not the field access.
+ *
+ * Usage: RowDispatchBenchmark [rows]
+ *
+ * @author abas Software AG
+ *
+ */
+public class RowDispatchBenchmark {
+
+	private static final String NOT_ACCEPTED = "Only PackingSlipEditor.Row and InvoiceEditor.Row objects accepted here.";
+
+	public static void main(String[] args) throws Exception {
+		final int[] tableSizes = args.length > 0 ? new int[] { Integer.parseInt(args[0]) } : new int[] { 300, 3000 };
+		final Product product = StandIn.create(Product.class);
+		final CostObject costObject = StandIn.create(CostObject.class);
+
+		final MicroBenchmark benchmark = new MicroBenchmark(2000, 2000);
+		MicroBenchmark.Result.printHeader(System.out);
+		for (final int tableSize : tableSizes) {
+			final List<SelectableRow> invoiceRows = new ArrayList<SelectableRow>();
+			final List<SelectableRow> mixedRows = new ArrayList<SelectableRow>();
+			for (int i = 0; i < tableSize; i++) {
+				invoiceRows.add(StandInRows.newRow(InvoiceEditor.Row.class, product));
+				mixedRows.add(i % 2 == 0 ? StandInRows.newRow(InvoiceEditor.Row.class, product)
+						: StandInRows.newRow(PackingSlipEditor.Row.class, product));
+			}
+			run(benchmark, "invoice rows=" + tableSize, invoiceRows, costObject);
+			run(benchmark, "mixed rows=" + tableSize, mixedRows, costObject);
+		}
+	}
+
+	private static void run(MicroBenchmark benchmark, String name, final List<SelectableRow> rows, final CostObject costObject)
+			throws Exception {
+		benchmark.run(name + " instanceof", new Operation() {
+			@Override
+			public int run() throws EventException {
+				int handled = 0;
+				for (final SelectableRow row : rows) {
+					handled += handleWithInstanceof(row, costObject);
+				}
+				return handled;
+			}
+		}).print(System.out);
+		benchmark.run(name + " RowAccessor", new Operation() {
+			@Override
+			public int run() throws EventException {
+				int handled = 0;
+				for (final SelectableRow row : rows) {
+					handled += handleWithRowAccessor(row, costObject);
+				}
+				return handled;
+			}
+		}).print(System.out);
+	}
+
+	private static int handleWithRowAccessor(SelectableRow row, CostObject costObject) throws EventException {
+		final RowAccessor rowAccessor = RowAccessor.of(row);
+		if (!rowAccessor.isQuotationOrSalesOrder() && rowAccessor.isPackingSlipOrInvoice()) {
+			final SelectablePart selectablePart = RowAccessor.of(row).getProduct(row);
+			if (selectablePart != null && RowAccessor.of(row).getCostCenter(row) == null) {
+				RowAccessor.of(row).setCostCenter(row, costObject);
+			}
+			RowAccessor.of(row).setCostCenter(row, null);
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Handles a row with the instanceof chains SalesHelperClass used before {@link RowAccessor}.
+	 */
+	private static int handleWithInstanceof(SelectableRow row, CostObject costObject) throws EventException {
+		if (!(row instanceof QuotationEditor.Row) && ((row instanceof PackingSlipEditor.Row) || (row instanceof InvoiceEditor.Row))) {
+			final SelectablePart selectablePart = getPart(row);
+			if (selectablePart != null && getCostCenter(row) == null) {
+				setCostCenter(row, costObject);
+			}
+			setCostCenter(row, null);
+			return 1;
+		}
+		return 0;
+	}
+
+	private static SelectablePart getPart(SelectableRow row) throws EventException {
+		if ((row instanceof PackingSlipEditor.Row) || (row instanceof InvoiceEditor.Row)) {
+			if (row instanceof QuotationEditor.Row) {
+				return ((QuotationEditor.Row) row).getProduct();
+			}
+			else if (row instanceof InvoiceEditor.Row) {
+				return ((InvoiceEditor.Row) row).getProduct();
+			}
+			else if (row instanceof PackingSlipEditor.Row) {
+				return ((PackingSlipEditor.Row) row).getProduct();
+			}
+		}
+		throw new EventException(NOT_ACCEPTED);
+	}
+
+	private static SelectableAccount getCostCenter(SelectableRow row) throws EventException {
+		if (row instanceof PackingSlipEditor.Row) {
+			return ((PackingSlipEditor.Row) row).getCostCenter();
+		}
+		else if (row instanceof InvoiceEditor.Row) {
+			return ((InvoiceEditor.Row) row).getCostCenter();
+		}
+		throw new EventException(NOT_ACCEPTED);
+	}
+
+	private static void setCostCenter(SelectableRow row, CostObject costObject) throws EventException {
+		if (row instanceof PackingSlipEditor.Row) {
+			((PackingSlipEditor.Row) row).setCostCenter(costObject);
+		}
+		else if (row instanceof InvoiceEditor.Row) {
+			((InvoiceEditor.Row) row).setCostCenter(costObject);
+		}
+		else {
+			throw new EventException(NOT_ACCEPTED);
+		}
+	}
+
+}
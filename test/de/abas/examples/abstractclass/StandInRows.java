@@ -0,0 +1,46 @@
+package de.abas.examples.abstractclass;
+
+import de.abas.erp.db.schema.part.SelectablePart;
+import de.abas.examples.standin.StandIn;
+
+/**
+ * Creates stand-in table rows without an ERP server. A stand-in row returns the product it was
+ * created with and remembers the cost center set last.
+ *
+ * @author abas Software AG
+ *
+ */
+class StandInRows {
+
+	private StandInRows() {
+	}
+
+	/**
+	 * Creates a stand-in row.
+	 *
+	 * @param rowType The row interface, e.g. InvoiceEditor.Row.
+	 * @param product The value of the field product.
+	 * @return The row.
+	 */
+	static <R> R newRow(Class<R> rowType, final SelectablePart product) {
+		return StandIn.create(rowType, new StandIn.Answer() {
+			private Object costCenter;
+
+			@Override
+			public Object answer(String methodName, Object[] args) {
+				switch (methodName) {
+				case "getProduct":
+					return product;
+				case "getCostCenter":
+					return costCenter;
+				case "setCostCenter":
+					costCenter = args[0];
+					return null;
+				default:
+					return StandIn.DEFAULT;
+				}
+			}
+		});
+	}
+
+}
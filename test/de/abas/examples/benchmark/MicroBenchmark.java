@@ -0,0 +1,184 @@
+package de.abas.examples.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Minimal benchmark harness for the examples' micro benchmarks.
+ *
+ * Runs an operation for a number of warm-up and measurement iterations in the current thread and
+ * reports throughput, latency percentiles and, if the JVM supports it, the allocated bytes per
+ * item.
+ *
+ * @author abas Software AG
+ *
+ */
+public class MicroBenchmark {
+
+	// consumes the results of the operations, so the JIT cannot drop them
+	private static volatile long sink;
+
+	/**
+	 * The measured operation.
+	 */
+	public interface Operation {
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return The number of items processed, e.g. fetched products.
+		 * @throws Exception Exception thrown if the operation fails.
+		 */
+		public int run() throws Exception;
+	}
+
+	/**
+	 * Result of one benchmark.
+	 */
+	public static class Result {
+		private final String name;
+		private final long[] latencies;
+		private final long items;
+		private final long totalNanos;
+		private final long allocatedBytes;
+
+		private Result(String name, long[] latencies, long items, long totalNanos, long allocatedBytes) {
+			this.name = name;
+			this.latencies = latencies;
+			this.items = items;
+			this.totalNanos = totalNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the operations per second.
+		 *
+		 * @return The throughput.
+		 */
+		public double getOperationsPerSecond() {
+			return latencies.length / (totalNanos / 1e9);
+		}
+
+		/**
+		 * Returns the items per second.
+		 *
+		 * @return The throughput.
+		 */
+		public double getItemsPerSecond() {
+			return items / (totalNanos / 1e9);
+		}
+
+		/**
+		 * Returns a latency percentile of one operation.
+		 *
+		 * @param percentile The percentile between 0 and 100.
+		 * @return The latency in nanoseconds.
+		 */
+		public long getLatencyNanos(double percentile) {
+			final int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+		}
+
+		/**
+		 * Returns the allocated bytes per item.
+		 *
+		 * @return The bytes, or -1 if the JVM does not report allocations.
+		 */
+		public double getAllocatedBytesPerItem() {
+			if (allocatedBytes < 0) {
+				return -1;
+			}
+			return items == 0 ? 0 : (double) allocatedBytes / items;
+		}
+
+		/**
+		 * Prints the header line matching {@link #print(PrintStream)}.
+		 *
+		 * @param out The output.
+		 */
+		public static void printHeader(PrintStream out) {
+			out.println(String.format("%-40s %12s %12s %10s %10s %10s %10s %12s", "Benchmark", "ops/s", "items/s", "p50 us", "p90 us",
+					"p99 us", "max us", "B/item"));
+		}
+
+		/**
+		 * Prints the result as one line.
+		 *
+		 * @param out The output.
+		 */
+		public void print(PrintStream out) {
+			out.println(String.format("%-40s %12.1f %12.1f %10.1f %10.1f %10.1f %10.1f %12.1f", name, getOperationsPerSecond(), getItemsPerSecond(),
+					getLatencyNanos(50) / 1e3, getLatencyNanos(90) / 1e3, getLatencyNanos(99) / 1e3, getLatencyNanos(100) / 1e3,
+					getAllocatedBytesPerItem()));
+		}
+	}
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+
+	/**
+	 * Creates the harness.
+	 *
+	 * @param warmupIterations The number of unmeasured runs before measuring.
+	 * @param measurementIterations The number of measured runs.
+	 */
+	public MicroBenchmark(int warmupIterations, int measurementIterations) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+	}
+
+	/**
+	 * Runs the operation.
+	 *
+	 * @param name The benchmark name.
+	 * @param operation The operation.
+	 * @return The result.
+	 * @throws Exception Exception thrown if the operation fails.
+	 */
+	public Result run(String name, Operation operation) throws Exception {
+		long blackhole = 0;
+		for (int i = 0; i < warmupIterations; i++) {
+			blackhole += operation.run();
+		}
+
+		final long[] latencies = new long[measurementIterations];
+		long items = 0;
+		final long allocatedBefore = allocatedBytes();
+		final long start = System.nanoTime();
+		for (int i = 0; i < measurementIterations; i++) {
+			final long operationStart = System.nanoTime();
+			items += operation.run();
+			latencies[i] = System.nanoTime() - operationStart;
+		}
+		final long totalNanos = System.nanoTime() - start;
+		final long allocatedAfter = allocatedBytes();
+		Arrays.sort(latencies);
+
+		// keeps the warm-up results alive
+		sink = blackhole + items;
+		final long allocated = (allocatedBefore < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocatedBefore;
+		return new Result(name, latencies, items, totalNanos, allocated);
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread so far.
+	 *
+	 * @return The bytes, or -1 if the JVM does not report allocations.
+	 */
+	private static long allocatedBytes() {
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+				return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+}
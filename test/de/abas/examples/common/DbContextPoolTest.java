@@ -0,0 +1,268 @@
+package de.abas.examples.common;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.abas.erp.db.DbContext;
+import de.abas.examples.standin.StandIn;
+
+public class DbContextPoolTest {
+
+	/**
+	 * Creates stand-in contexts without connecting to an ERP server.
+	 */
+	private static class StandInFactory implements DbContextFactory {
+		private final AtomicInteger created = new AtomicInteger();
+		private volatile boolean failing = false;
+		private final Set<DbContext> invalid = Collections.newSetFromMap(new ConcurrentHashMap<DbContext, Boolean>());
+		private final Set<DbContext> destroyed = Collections.newSetFromMap(new ConcurrentHashMap<DbContext, Boolean>());
+
+		@Override
+		public DbContext create() {
+			if (failing) {
+				throw new RuntimeException("ERP server not reachable");
+			}
+			created.incrementAndGet();
+			return StandIn.create(DbContext.class);
+		}
+
+		@Override
+		public boolean isValid(DbContext dbContext) {
+			return !invalid.contains(dbContext);
+		}
+
+		@Override
+		public void destroy(DbContext dbContext) {
+			destroyed.add(dbContext);
+		}
+	}
+
+	private StandInFactory factory;
+	private DbContextPool pool;
+
+	@Before
+	public void setup() {
+		factory = new StandInFactory();
+	}
+
+	@After
+	public void tearDown() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	private DbContextPool createPool(int minSize, int maxSize, long maxIdleMillis, long maxLifetimeMillis, long borrowTimeoutMillis) {
+		final DbContextPool.Settings settings = new DbContextPool.Settings();
+		settings.minSize = minSize;
+		settings.maxSize = maxSize;
+		settings.maxIdleMillis = maxIdleMillis;
+		settings.maxLifetimeMillis = maxLifetimeMillis;
+		settings.borrowTimeoutMillis = borrowTimeoutMillis;
+		settings.evictionIntervalMillis = 0;
+		return new DbContextPool("test", factory, settings);
+	}
+
+	@Test
+	public void releasedContextIsReused() {
+		pool = createPool(0, 2, 60000, 60000, 1000);
+		final DbContext first = pool.borrow();
+		pool.release(first);
+		final DbContext second = pool.borrow();
+
+		assertThat(second, sameInstance(first));
+		assertEquals(1, factory.created.get());
+		assertEquals(2, pool.getStatistics().borrowCount);
+	}
+
+	@Test
+	public void invalidContextIsReplacedOnBorrow() {
+		pool = createPool(0, 2, 60000, 60000, 1000);
+		final DbContext first = pool.borrow();
+		pool.release(first);
+		factory.invalid.add(first);
+
+		final DbContext second = pool.borrow();
+
+		assertThat(second, not(sameInstance(first)));
+		assertTrue(factory.destroyed.contains(first));
+		assertEquals(2, factory.created.get());
+	}
+
+	@Test
+	public void contextExceedingLifetimeIsClosed() throws InterruptedException {
+		pool = createPool(0, 2, 60000, 50, 1000);
+		final DbContext first = pool.borrow();
+		pool.release(first);
+		Thread.sleep(100);
+
+		final DbContext second = pool.borrow();
+
+		assertThat(second, not(sameInstance(first)));
+		assertTrue(factory.destroyed.contains(first));
+	}
+
+	@Test
+	public void idleEvictionKeepsMinimumSize() throws InterruptedException {
+		pool = createPool(1, 3, 50, 60000, 1000);
+		final List<DbContext> contexts = new ArrayList<DbContext>();
+		for (int i = 0; i < 3; i++) {
+			contexts.add(pool.borrow());
+		}
+		for (DbContext dbContext : contexts) {
+			pool.release(dbContext);
+		}
+		Thread.sleep(100);
+
+		pool.evict();
+
+		assertEquals(1, pool.getStatistics().idle);
+		assertEquals(2, factory.destroyed.size());
+	}
+
+	@Test
+	public void evictionFillsMinimumSize() {
+		pool = createPool(2, 3, 60000, 60000, 1000);
+
+		pool.evict();
+
+		assertEquals(2, pool.getStatistics().idle);
+		assertEquals(2, factory.created.get());
+	}
+
+	@Test
+	public void failedEvictionDoesNotLeakSlots() {
+		pool = createPool(2, 2, 60000, 60000, 1000);
+		factory.failing = true;
+		for (int i = 0; i < 5; i++) {
+			try {
+				pool.evict();
+				fail("Creating the context should fail");
+			}
+			catch (RuntimeException e) {
+				// the ERP server is down
+			}
+		}
+		factory.failing = false;
+
+		// both slots can still be used once the server is back
+		final DbContext first = pool.borrow();
+		final DbContext second = pool.borrow();
+		assertThat(second, not(sameInstance(first)));
+		assertEquals(2, factory.created.get());
+	}
+
+	@Test
+	public void exhaustedPoolTimesOutAndCountsSaturation() {
+		pool = createPool(0, 1, 60000, 60000, 50);
+		pool.borrow();
+		try {
+			pool.borrow();
+			fail("borrow should time out");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getMessage().startsWith("Timed out"));
+		}
+		assertEquals(1, pool.getStatistics().borrowCount);
+	}
+
+	@Test
+	public void waitingBorrowerGetsReleasedContext() throws Exception {
+		pool = createPool(0, 1, 60000, 60000, 5000);
+		final DbContext first = pool.borrow();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<DbContext> waiting = executor.submit(new Callable<DbContext>() {
+				@Override
+				public DbContext call() {
+					return pool.borrow();
+				}
+			});
+			Thread.sleep(50);
+			pool.release(first);
+
+			assertThat(waiting.get(1, TimeUnit.SECONDS), sameInstance(first));
+			final DbContextPool.Statistics statistics = pool.getStatistics();
+			assertEquals(1, statistics.saturatedBorrowCount);
+			assertTrue(statistics.maxBorrowWaitNanos > 0);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void concurrentBorrowersNeverExceedMaximumSize() throws Exception {
+		pool = createPool(0, 3, 60000, 60000, 5000);
+		final int threads = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger inUse = new AtomicInteger();
+		final AtomicInteger maxInUse = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							start.await();
+						}
+						catch (InterruptedException e) {
+							return;
+						}
+						for (int j = 0; j < 50; j++) {
+							final DbContext dbContext = pool.borrow();
+							final int current = inUse.incrementAndGet();
+							int max;
+							while ((max = maxInUse.get()) < current && !maxInUse.compareAndSet(max, current)) {
+								// retry
+							}
+							inUse.decrementAndGet();
+							pool.release(dbContext);
+						}
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		assertTrue(maxInUse.get() <= 3);
+		assertTrue(factory.created.get() <= 3);
+		assertEquals(threads * 50, pool.getStatistics().borrowCount);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releasingForeignContextFails() {
+		pool = createPool(0, 1, 60000, 60000, 1000);
+		pool.release(factory.create());
+	}
+
+}
@@ -0,0 +1,50 @@
+package de.abas.examples.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+import org.junit.Test;
+
+public class LocalizedTextServiceTest {
+
+	public static class Texts extends ListResourceBundle {
+		@Override
+		protected Object[][] getContents() {
+			return new Object[][] { { "Texts.1", "Welcome" }, { "Texts.2", "Welcome %s!" } };
+		}
+	}
+
+	public static class Texts_de extends ListResourceBundle {
+		@Override
+		protected Object[][] getContents() {
+			return new Object[][] { { "Texts.1", "Willkommen" }, { "Texts.2", "Willkommen %s!" } };
+		}
+	}
+
+	private final LocalizedTextService service = new LocalizedTextService(Texts.class.getName(), Texts.class.getClassLoader());
+
+	@Test
+	public void getsTextsInLocale() {
+		assertEquals("Willkommen Anna!", service.getText(Locale.GERMAN, "Texts.2", "Anna"));
+		assertEquals("Willkommen", service.getText(Locale.GERMANY, "Texts.1"));
+		assertEquals("Welcome Anna!", service.getText(Locale.ROOT, "Texts.2", "Anna"));
+	}
+
+	@Test
+	public void parsesEachTextOnce() {
+		assertEquals(2, service.warmUp(Locale.GERMAN));
+		final TextTemplate template = service.getTemplate(Locale.GERMAN, "Texts.2");
+		assertSame(template, service.getTemplate(Locale.GERMAN, "Texts.2"));
+		assertEquals("Willkommen %s!", template.getPattern());
+	}
+
+	@Test(expected = MissingResourceException.class)
+	public void rejectsUnknownKeys() {
+		service.getText(Locale.GERMAN, "Texts.3");
+	}
+
+}
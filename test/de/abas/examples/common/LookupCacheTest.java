@@ -0,0 +1,141 @@
+package de.abas.examples.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LookupCacheTest {
+
+	/**
+	 * Counts its lookups and knows only the key "100001".
+	 */
+	private static class CountingLoader implements LookupCache.Loader<String, String> {
+		private final AtomicInteger lookups = new AtomicInteger();
+
+		@Override
+		public String load(String key) {
+			lookups.incrementAndGet();
+			return "100001".equals(key) ? "cost object " + key : null;
+		}
+	}
+
+	@Test
+	public void cachesFoundAndMissingValues() {
+		final LookupCache<String, String> cache = new LookupCache<String, String>();
+		final CountingLoader loader = new CountingLoader();
+		for (int i = 0; i < 300; i++) {
+			assertEquals("cost object 100001", cache.get("100001", loader));
+			assertNull(cache.get("100003", loader));
+		}
+		assertEquals(2, loader.lookups.get());
+		assertEquals(2, cache.getLoadCount());
+		assertEquals(598, cache.getHitCount());
+	}
+
+	@Test
+	public void looksUpAgainAfterInvalidation() {
+		final LookupCache<String, String> cache = new LookupCache<String, String>();
+		final CountingLoader loader = new CountingLoader();
+		assertNull(cache.get("100003", loader));
+		cache.put("100003", "cost object 100003");
+		assertEquals("cost object 100003", cache.get("100003", loader));
+		cache.invalidate("100003");
+		assertNull(cache.get("100003", loader));
+		assertEquals(2, loader.lookups.get());
+	}
+
+	@Test
+	public void doesNotCacheFailedLookups() {
+		final LookupCache<String, String> cache = new LookupCache<String, String>();
+		final AtomicInteger lookups = new AtomicInteger();
+		final LookupCache.Loader<String, String> loader = new LookupCache.Loader<String, String>() {
+			@Override
+			public String load(String key) {
+				if (lookups.incrementAndGet() == 1) {
+					throw new IllegalStateException("connection lost");
+				}
+				return "cost object " + key;
+			}
+		};
+		try {
+			cache.get("100001", loader);
+			fail("IllegalStateException expected");
+		}
+		catch (final IllegalStateException e) {
+			assertEquals("connection lost", e.getMessage());
+		}
+		assertEquals("cost object 100001", cache.get("100001", loader));
+	}
+
+	@Test
+	public void coalescesConcurrentLookups() throws Exception {
+		final LookupCache<String, String> cache = new LookupCache<String, String>();
+		final AtomicInteger lookups = new AtomicInteger();
+		final CountDownLatch lookupStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final LookupCache.Loader<String, String> loader = new LookupCache.Loader<String, String>() {
+			@Override
+			public String load(String key) {
+				lookups.incrementAndGet();
+				lookupStarted.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "cost object " + key;
+			}
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return cache.get("100001", loader);
+					}
+				}));
+			}
+			lookupStarted.await(5, TimeUnit.SECONDS);
+			// gives the other threads time to find the running lookup
+			Thread.sleep(50);
+			release.countDown();
+			for (final Future<String> result : results) {
+				assertEquals("cost object 100001", result.get(5, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	public void looksUpAgainAfterTimeToLive() throws InterruptedException {
+		final LookupCache<String, String> cache = new LookupCache<String, String>(50);
+		final CountingLoader loader = new CountingLoader();
+		assertNull(cache.get("100003", loader));
+		assertNull(cache.get("100003", loader));
+		assertEquals(1, loader.lookups.get());
+
+		Thread.sleep(60);
+		assertNull(cache.get("100003", loader));
+		assertEquals(2, loader.lookups.get());
+		assertEquals(2, cache.getLoadCount());
+	}
+
+}
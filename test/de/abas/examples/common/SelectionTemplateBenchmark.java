@@ -0,0 +1,82 @@
+package de.abas.examples.common;
+
+import de.abas.erp.common.type.AbasDate;
+import de.abas.erp.db.schema.custom.inventorycounter.InventoryCounter;
+import de.abas.erp.db.selection.ExpertSelection;
+import de.abas.erp.db.selection.Selection;
+import de.abas.examples.benchmark.MicroBenchmark;
+import de.abas.examples.benchmark.MicroBenchmark.Operation;
+
+/**
+ * Benchmarks creating the selection of the infosystem INVENTORY: building the criteria string by
+ * concatenation and parsing it with ExpertSelection on every call against binding a
+ * {@link SelectionTemplate}.
+ *
+ * Each operation creates the selections of a number of button presses. The teams cycle through a
+ * few values, like users pressing the buttons for their teams again and again. As long as there
+ * are not more teams than {@link SelectionTemplate#CACHE_SIZE}, the cached binding only measures
+ * cache hits. So binding is also measured with the cache bypassed: the bound criteria are passed
+ * to ExpertSelection like the built string, which compares binding with string building alone.
+ *
+ * Usage: SelectionTemplateBenchmark [teams]
+ *
+ * @author abas Software AG
+ *
+ */
+public class SelectionTemplateBenchmark {
+
+	private static final int PRESSES = 1000;
+
+	private static final SelectionTemplate<InventoryCounter> SELECTION = SelectionTemplate.compile(InventoryCounter.class,
+			"idno=;swd=;descr==`!;yteam={teamFrom}!{teamTo};ydate={dateFrom}!{dateTo};@englvar=(Yes)");
+
+	public static void main(String[] args) throws Exception {
+		final int teams = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final AbasDate dateFrom = new AbasDate();
+		final AbasDate dateTo = new AbasDate();
+
+		final MicroBenchmark benchmark = new MicroBenchmark(2000, 2000);
+		MicroBenchmark.Result.printHeader(System.out);
+		benchmark.run("string build", new Operation() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (int i = 0; i < PRESSES; i++) {
+					final int team = i % teams;
+					final Selection<InventoryCounter> selection = ExpertSelection.create(InventoryCounter.class,
+							"idno=;swd=;descr==`!;yteam=" + team + "!" + team + ";ydate=" + dateFrom + "!" + dateTo + ";@englvar=(Yes)");
+					created += selection == null ? 0 : 1;
+				}
+				return created;
+			}
+		}).print(System.out);
+		benchmark.run("template bind, no cache", new Operation() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (int i = 0; i < PRESSES; i++) {
+					final int team = i % teams;
+					final Selection<InventoryCounter> selection = ExpertSelection.create(InventoryCounter.class, SELECTION.bind()
+							.set("teamFrom", team).set("teamTo", team).set("dateFrom", dateFrom).set("dateTo", dateTo).criteria());
+					created += selection == null ? 0 : 1;
+				}
+				return created;
+			}
+		}).print(System.out);
+		benchmark.run("template bind, cached", new Operation() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (int i = 0; i < PRESSES; i++) {
+					final int team = i % teams;
+					final Selection<InventoryCounter> selection = SELECTION.bind().set("teamFrom", team).set("teamTo", team)
+							.set("dateFrom", dateFrom).set("dateTo", dateTo).create();
+					created += selection == null ? 0 : 1;
+				}
+				return created;
+			}
+		}).print(System.out);
+		System.out.println("selections created by the template: " + SELECTION.getCreateCount() + ", cache hits: " + SELECTION.getHitCount());
+	}
+
+}
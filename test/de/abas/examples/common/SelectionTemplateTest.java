@@ -0,0 +1,56 @@
+package de.abas.examples.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.selection.Selection;
+
+public class SelectionTemplateTest {
+
+	@Test
+	public void insertsValuesBetweenFixedParts() {
+		final SelectionTemplate<Product> template = SelectionTemplate.compile(Product.class, "idno=;yteam={from}!{to};ydate={from};@englvar=(Yes)");
+		assertEquals(Arrays.asList("from", "to"), template.getParameterNames());
+		assertEquals("idno=;yteam=1!3;ydate=1;@englvar=(Yes)", template.bind().set("from", 1).set("to", 3).criteria());
+		assertEquals("idno=;yteam=!3;ydate=;@englvar=(Yes)", template.bind().set("from", null).set("to", "3").criteria());
+		assertEquals("swd=AJOPERF", SelectionTemplate.compile(Product.class, "swd=AJOPERF").bind().criteria());
+	}
+
+	@Test
+	public void reusesSelectionsOfSameValues() {
+		final SelectionTemplate<Product> template = SelectionTemplate.compile(Product.class, "idno={idno}");
+		final Selection<Product> first = template.bind().set("idno", "30002").create();
+		assertSame(first, template.bind().set("idno", "30002").create());
+		assertNotSame(first, template.bind().set("idno", "30003").create());
+		assertEquals(2, template.getCreateCount());
+		assertEquals(1, template.getHitCount());
+
+		// the least recently used selections are dropped
+		for (int i = 0; i < SelectionTemplate.CACHE_SIZE; i++) {
+			template.bind().set("idno", i).create();
+		}
+		assertNotSame(first, template.bind().set("idno", "30002").create());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsUnboundPlaceholders() {
+		SelectionTemplate.compile(Product.class, "yteam={from}!{to}").bind().set("from", 1).criteria();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownPlaceholders() {
+		SelectionTemplate.compile(Product.class, "yteam={from}").bind().set("to", 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnclosedPlaceholders() {
+		SelectionTemplate.compile(Product.class, "yteam={from");
+	}
+
+}
@@ -0,0 +1,117 @@
+package de.abas.examples.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TablePagerTest {
+
+	/**
+	 * Counts the rows read from the source.
+	 */
+	private static class CountingIterator implements Iterator<Integer> {
+		private final int count;
+		private final AtomicInteger read = new AtomicInteger();
+
+		private CountingIterator(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return read.get() < count;
+		}
+
+		@Override
+		public Integer next() {
+			return read.incrementAndGet();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Test
+	public void splitsRowsIntoPages() {
+		final List<Integer> rows = new ArrayList<Integer>();
+		for (int i = 1; i <= 25; i++) {
+			rows.add(i);
+		}
+		final TablePager<Integer> pager = new TablePager<Integer>(rows.iterator(), 10);
+		try {
+			assertEquals(rows.subList(0, 10), pager.nextPage());
+			assertEquals(rows.subList(10, 20), pager.nextPage());
+			assertTrue(pager.hasNextPage());
+			assertEquals(Arrays.asList(21, 22, 23, 24, 25), pager.nextPage());
+			assertFalse(pager.hasNextPage());
+			assertTrue(pager.nextPage().isEmpty());
+			assertEquals(3, pager.getPageNumber());
+			assertEquals(25, pager.getRowCount());
+		}
+		finally {
+			pager.close();
+		}
+	}
+
+	@Test
+	public void readsOnlyTheFollowingPageAhead() {
+		final CountingIterator source = new CountingIterator(100000);
+		final TablePager<Integer> pager = new TablePager<Integer>(source, 100, true);
+		try {
+			pager.nextPage();
+			pager.nextPage();
+		}
+		finally {
+			// waits for the prefetch of the third page
+			pager.close();
+		}
+		assertEquals(300, source.read.get());
+	}
+
+	@Test
+	public void readsInTheCallingThreadByDefault() {
+		final Thread caller = Thread.currentThread();
+		final List<Thread> readers = new ArrayList<Thread>();
+		final CountingIterator counting = new CountingIterator(250);
+		final Iterator<Integer> source = new Iterator<Integer>() {
+			@Override
+			public boolean hasNext() {
+				return counting.hasNext();
+			}
+
+			@Override
+			public Integer next() {
+				readers.add(Thread.currentThread());
+				return counting.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		final TablePager<Integer> pager = new TablePager<Integer>(source, 100);
+		try {
+			pager.nextPage();
+			pager.nextPage();
+			assertEquals(200, counting.read.get());
+		}
+		finally {
+			pager.close();
+		}
+		for (final Thread reader : readers) {
+			assertEquals(caller, reader);
+		}
+	}
+
+}
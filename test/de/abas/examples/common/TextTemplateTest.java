@@ -0,0 +1,45 @@
+package de.abas.examples.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.MissingFormatArgumentException;
+
+import org.junit.Test;
+
+public class TextTemplateTest {
+
+	@Test
+	public void fillsTextLikeStringFormat() {
+		assertFormat("Welcome!\nThis is an example for operating language dependend text.");
+		assertFormat("Welcome %s!\nThis is an example with a parameter.", "Anna");
+		assertFormat("%2$s before %1$s, then %s and %s", "a", "b");
+		assertFormat("100%% of %s%n", "stock");
+		assertFormat("%s", (Object) null);
+		assertFormat("%s and %s", (Object[]) null);
+		assertFormat("%s", "unused", "parameters");
+	}
+
+	@Test
+	public void leavesOtherSpecifiersToStringFormat() {
+		assertFormat("%d pieces at %.2f", 3, 1.5);
+		assertFormat("%S and %-8s|", "upper", "padded");
+		assertFormat("%s", new Formattable() {
+			@Override
+			public void formatTo(Formatter formatter, int flags, int width, int precision) {
+				formatter.format("formatted");
+			}
+		});
+	}
+
+	@Test(expected = MissingFormatArgumentException.class)
+	public void rejectsMissingParameters() {
+		new TextTemplate("%s and %s").format("one");
+	}
+
+	private static void assertFormat(String pattern, Object... args) {
+		assertEquals(String.format(pattern, args), new TextTemplate(pattern).format(args));
+	}
+
+}
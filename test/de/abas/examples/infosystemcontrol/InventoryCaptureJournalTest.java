@@ -0,0 +1,89 @@
+package de.abas.examples.infosystemcontrol;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InventoryCaptureJournalTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("InventoryCaptureJournalTest", ".journal");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void recoversCapturesAfterLastCommitMark() {
+		final InventoryCaptureJournal journal = new InventoryCaptureJournal(file);
+		journal.append(1, "10001", new BigDecimal("5"), "STK");
+		journal.append(1, "10002", new BigDecimal("2.5"), "KG");
+		journal.append(2, "10001", new BigDecimal("7"), "STK");
+		journal.markCommitted(1);
+		assertEquals(2, journal.getPendingCount());
+		journal.close();
+
+		final InventoryCaptureJournal reopened = new InventoryCaptureJournal(file);
+		final List<InventoryCapture> recovered = reopened.getRecovered();
+		assertEquals(2, recovered.size());
+		assertEquals(2, recovered.get(0).getSequence());
+		assertEquals("10002", recovered.get(0).getArticleIdno());
+		assertEquals(new BigDecimal("2.5"), recovered.get(0).getQuantity());
+		assertEquals("KG", recovered.get(0).getUnit());
+		assertEquals(2, recovered.get(1).getTeam());
+		assertEquals(2, reopened.getPendingCount());
+
+		// new captures continue the sequence of the recovered ones
+		assertEquals(4, reopened.append(3, "10003", BigDecimal.ONE, "STK").getSequence());
+		reopened.close();
+	}
+
+	@Test
+	public void truncatesFileWhenEverythingIsCommitted() {
+		final InventoryCaptureJournal journal = new InventoryCaptureJournal(file);
+		journal.append(1, "10001", BigDecimal.ONE, "STK");
+		final InventoryCapture last = journal.append(1, "10002", BigDecimal.ONE, "STK");
+		journal.markCommitted(last.getSequence());
+		assertEquals(0, journal.getPendingCount());
+		assertEquals(0, file.length());
+		journal.close();
+
+		final InventoryCaptureJournal reopened = new InventoryCaptureJournal(file);
+		assertEquals(0, reopened.getRecovered().size());
+		reopened.close();
+	}
+
+	@Test
+	public void dropsIncompleteLastLine() throws IOException {
+		final InventoryCaptureJournal journal = new InventoryCaptureJournal(file);
+		journal.append(1, "10001", BigDecimal.ONE, "STK");
+		journal.close();
+		// the process ended while writing the second capture
+		Files.write(file.toPath(), "2\t1\t100".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		final InventoryCaptureJournal reopened = new InventoryCaptureJournal(file);
+		assertEquals(1, reopened.getRecovered().size());
+		assertEquals(2, reopened.append(1, "10002", BigDecimal.ONE, "STK").getSequence());
+		reopened.close();
+
+		final InventoryCaptureJournal again = new InventoryCaptureJournal(file);
+		assertEquals(2, again.getRecovered().size());
+		again.close();
+	}
+
+}
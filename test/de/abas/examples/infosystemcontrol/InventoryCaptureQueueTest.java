@@ -0,0 +1,192 @@
+package de.abas.examples.infosystemcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InventoryCaptureQueueTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("InventoryCaptureQueueTest", ".journal");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		new File(file.getPath() + ".rejected").delete();
+	}
+
+	@Test
+	public void storesCapturesInBatchesInOrder() throws InterruptedException {
+		final List<List<InventoryCapture>> batches = new ArrayList<List<InventoryCapture>>();
+		final InventoryCaptureQueue queue = new InventoryCaptureQueue(new InventoryCaptureJournal(file), new InventoryCaptureQueue.BatchWriter() {
+			@Override
+			public void write(List<InventoryCapture> captures, boolean mayBeStored) {
+				synchronized (batches) {
+					batches.add(new ArrayList<InventoryCapture>(captures));
+				}
+			}
+		});
+		final int count = InventoryCaptureQueue.BATCH_SIZE + 10;
+		for (int i = 0; i < count; i++) {
+			queue.accept(1, "1000" + i, BigDecimal.ONE, "STK");
+		}
+		waitUntilStored(queue);
+		queue.close(1000);
+
+		long sequence = 0;
+		synchronized (batches) {
+			for (final List<InventoryCapture> batch : batches) {
+				assertTrue(batch.size() <= InventoryCaptureQueue.BATCH_SIZE);
+				for (final InventoryCapture capture : batch) {
+					assertEquals(++sequence, capture.getSequence());
+				}
+			}
+		}
+		assertEquals(count, sequence);
+		assertNull(queue.getLastFailure());
+		assertEquals(0, file.length());
+	}
+
+	@Test
+	public void storesRecoveredCapturesFirst() throws InterruptedException {
+		final InventoryCaptureJournal journal = new InventoryCaptureJournal(file);
+		journal.append(1, "10001", BigDecimal.ONE, "STK");
+		journal.close();
+
+		final List<InventoryCapture> stored = new ArrayList<InventoryCapture>();
+		final List<Boolean> mayBeStoredFlags = new ArrayList<Boolean>();
+		final InventoryCaptureQueue queue = new InventoryCaptureQueue(new InventoryCaptureJournal(file), new InventoryCaptureQueue.BatchWriter() {
+			@Override
+			public void write(List<InventoryCapture> captures, boolean mayBeStored) {
+				synchronized (stored) {
+					stored.addAll(captures);
+					mayBeStoredFlags.add(Boolean.valueOf(mayBeStored));
+				}
+			}
+		});
+		waitUntilStored(queue);
+		queue.accept(1, "10002", BigDecimal.ONE, "STK");
+		waitUntilStored(queue);
+		queue.close(1000);
+
+		synchronized (stored) {
+			assertEquals(2, stored.size());
+			assertEquals("10001", stored.get(0).getArticleIdno());
+			assertEquals("10002", stored.get(1).getArticleIdno());
+			// the recovered capture may have been stored before the crash
+			assertEquals(2, mayBeStoredFlags.size());
+			assertTrue(mayBeStoredFlags.get(0).booleanValue());
+			assertFalse(mayBeStoredFlags.get(1).booleanValue());
+		}
+	}
+
+	@Test
+	public void keepsStoringAfterJournalFailure() throws InterruptedException {
+		final File rejectedFile = new File(file.getPath() + ".rejected");
+		// the rejected captures cannot be written while a directory is in the way
+		assertTrue(rejectedFile.mkdir());
+		final List<InventoryCapture> stored = new ArrayList<InventoryCapture>();
+		final List<Boolean> mayBeStoredFlags = new ArrayList<Boolean>();
+		final InventoryCaptureQueue queue = new InventoryCaptureQueue(new InventoryCaptureJournal(file), new InventoryCaptureQueue.BatchWriter() {
+			@Override
+			public void write(List<InventoryCapture> captures, boolean mayBeStored) {
+				synchronized (stored) {
+					mayBeStoredFlags.add(Boolean.valueOf(mayBeStored));
+				}
+				for (final InventoryCapture capture : captures) {
+					if (capture.getArticleIdno().equals("99999")) {
+						throw new InventoryCaptureQueue.RejectedCaptureException(capture, "Article 99999 does not exist");
+					}
+				}
+				synchronized (stored) {
+					stored.addAll(captures);
+				}
+			}
+		}, 50);
+		queue.accept(1, "99999", BigDecimal.ONE, "STK");
+		queue.accept(1, "10001", BigDecimal.ONE, "STK");
+
+		final long deadline = System.currentTimeMillis() + 4 * InventoryCaptureQueue.FLUSH_INTERVAL_MILLIS;
+		while (queue.getLastFailure() == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertNotNull(queue.getLastFailure());
+		assertEquals(0, queue.getRejectedCount());
+		assertTrue(rejectedFile.delete());
+
+		waitUntilStored(queue);
+		queue.close(1000);
+
+		synchronized (stored) {
+			assertEquals(1, stored.size());
+			assertEquals("10001", stored.get(0).getArticleIdno());
+			assertFalse(mayBeStoredFlags.get(0).booleanValue());
+			assertTrue(mayBeStoredFlags.get(mayBeStoredFlags.size() - 1).booleanValue());
+		}
+		assertNull(queue.getLastFailure());
+		assertEquals(1, queue.getRejectedCount());
+	}
+
+	@Test
+	public void rejectsOneCaptureAndStoresTheRest() throws InterruptedException, IOException {
+		final List<InventoryCapture> stored = new ArrayList<InventoryCapture>();
+		final InventoryCaptureQueue queue = new InventoryCaptureQueue(new InventoryCaptureJournal(file), new InventoryCaptureQueue.BatchWriter() {
+			@Override
+			public void write(List<InventoryCapture> captures, boolean mayBeStored) {
+				for (final InventoryCapture capture : captures) {
+					if (capture.getArticleIdno().equals("99999")) {
+						throw new InventoryCaptureQueue.RejectedCaptureException(capture, "Article 99999 does not exist");
+					}
+				}
+				synchronized (stored) {
+					stored.addAll(captures);
+				}
+			}
+		});
+		queue.accept(1, "10001", BigDecimal.ONE, "STK");
+		queue.accept(1, "99999", BigDecimal.ONE, "STK");
+		queue.accept(1, "10002", BigDecimal.ONE, "STK");
+		waitUntilStored(queue);
+		queue.close(1000);
+
+		synchronized (stored) {
+			assertEquals(2, stored.size());
+			assertEquals("10001", stored.get(0).getArticleIdno());
+			assertEquals("10002", stored.get(1).getArticleIdno());
+		}
+		assertNull(queue.getLastFailure());
+		assertEquals(1, queue.getRejectedCount());
+		assertEquals("99999", queue.getLastRejection().getCapture().getArticleIdno());
+		final List<String> rejected = Files.readAllLines(queue.getRejectedFile().toPath(), StandardCharsets.UTF_8);
+		assertEquals(1, rejected.size());
+		assertTrue(rejected.get(0).endsWith("\tArticle 99999 does not exist"));
+		assertEquals("99999", InventoryCapture.parse(rejected.get(0).substring(0, rejected.get(0).lastIndexOf('\t'))).getArticleIdno());
+	}
+
+	private static void waitUntilStored(InventoryCaptureQueue queue) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 4 * InventoryCaptureQueue.FLUSH_INTERVAL_MILLIS;
+		while (queue.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, queue.getQueueDepth());
+	}
+
+}
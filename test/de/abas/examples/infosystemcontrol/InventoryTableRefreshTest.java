@@ -0,0 +1,240 @@
+package de.abas.examples.infosystemcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.infosystem.custom.ow1.InventoryInfoystem;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.examples.standin.StandIn;
+
+public class InventoryTableRefreshTest {
+
+	private static final String RANGE = "1!1;20140101!20141231";
+
+	/**
+	 * A table of stand-in rows remembering the values written to them.
+	 */
+	private static class TableRows implements StandIn.Answer {
+		private final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		private final List<InventoryInfoystem.Row> standIns = new ArrayList<InventoryInfoystem.Row>();
+
+		@Override
+		public Object answer(String methodName, Object[] args) {
+			switch (methodName) {
+			case "clear":
+				rows.clear();
+				standIns.clear();
+				return null;
+			case "appendRow":
+				final Map<String, Object> values = new HashMap<String, Object>();
+				values.put("writes", Integer.valueOf(0));
+				rows.add(values);
+				standIns.add(StandIn.create(InventoryInfoystem.Row.class, new StandIn.Answer() {
+					@Override
+					public Object answer(String rowMethodName, Object[] rowArgs) {
+						if (rowMethodName.equals("setItem")) {
+							values.put("writes", Integer.valueOf(((Integer) values.get("writes")).intValue() + 1));
+						}
+						if (rowMethodName.equals("setString")) {
+							values.put((String) rowArgs[0], rowArgs[1]);
+						}
+						else if (rowMethodName.startsWith("set")) {
+							values.put(rowMethodName.substring(3).toLowerCase(), rowArgs[0]);
+						}
+						return StandIn.DEFAULT;
+					}
+				}));
+				return standIns.get(standIns.size() - 1);
+			case "getRowCount":
+				return Integer.valueOf(rows.size());
+			case "getRow":
+				return standIns.get(((Integer) args[0]).intValue() - 1);
+			case "deleteRow":
+				rows.remove(((Integer) args[0]).intValue() - 1);
+				standIns.remove(((Integer) args[0]).intValue() - 1);
+				return null;
+			default:
+				return StandIn.DEFAULT;
+			}
+		}
+
+		private Object get(int rowNo, String field) {
+			return rows.get(rowNo - 1).get(field);
+		}
+
+		private int writes(int rowNo) {
+			return ((Integer) get(rowNo, "writes")).intValue();
+		}
+	}
+
+	/**
+	 * Returns a fixed list of records and counts the loads.
+	 */
+	private static class ListLoader implements InventoryTableRefresh.Loader {
+		private final List<InventoryRecord> records = new ArrayList<InventoryRecord>();
+		private int loadCount = 0;
+
+		@Override
+		public Iterator<InventoryRecord> load() {
+			loadCount++;
+			return new ArrayList<InventoryRecord>(records).iterator();
+		}
+	}
+
+	private final TableRows table = new TableRows();
+	private final InventoryInfoystem head = newHead(table);
+	private final ListLoader loader = new ListLoader();
+	private final InventoryTableRefresh refresh = new InventoryTableRefresh();
+
+	private final Product screw = newProduct();
+	private final Product nut = newProduct();
+	private final Id first = StandIn.create(Id.class);
+	private final Id second = StandIn.create(Id.class);
+	private final Id third = StandIn.create(Id.class);
+
+	private static InventoryInfoystem newHead(TableRows rows) {
+		final InventoryInfoystem.Table table = StandIn.create(InventoryInfoystem.Table.class, rows);
+		return StandIn.create(InventoryInfoystem.class, new StandIn.Answer() {
+			@Override
+			public Object answer(String methodName, Object[] args) {
+				return methodName.equals("table") ? table : StandIn.DEFAULT;
+			}
+		});
+	}
+
+	/**
+	 * Creates a stand-in product which only knows its id.
+	 */
+	private static Product newProduct() {
+		final Id id = StandIn.create(Id.class);
+		return StandIn.create(Product.class, new StandIn.Answer() {
+			@Override
+			public Object answer(String methodName, Object[] args) {
+				return methodName.equals("id") ? id : StandIn.DEFAULT;
+			}
+		});
+	}
+
+	private static InventoryRecord record(Id id, Product article, String quantity) {
+		return new InventoryRecord(id, article, 1, new BigDecimal(quantity), "STK", null, new BigDecimal("0.10"), "");
+	}
+
+	@Test
+	public void fillsTableWithSummaryRows() {
+		loader.records.add(record(first, screw, "10"));
+		loader.records.add(record(second, nut, "5"));
+
+		assertTrue(refresh.refresh(head, RANGE, loader, 10));
+		assertTrue(refresh.isReloaded());
+		assertEquals(2, refresh.getLastRefreshCount());
+		// 2 objects, 1 team, 2 articles, total
+		assertEquals(6, table.rows.size());
+		assertEquals(Integer.valueOf(2), table.get(2, "item"));
+		assertEquals("Total", table.get(6, "tarticledescr"));
+		assertEquals(new BigDecimal("1.50"), table.get(6, "twarehousevalue"));
+	}
+
+	@Test
+	public void patchesOnlyChangedRows() {
+		loader.records.add(record(first, screw, "10"));
+		loader.records.add(record(second, nut, "5"));
+		refresh.refresh(head, RANGE, loader, 10);
+
+		loader.records.set(1, record(second, nut, "7"));
+		assertTrue(refresh.refresh(head, RANGE, loader, 10));
+		assertFalse(refresh.isReloaded());
+		assertEquals(1, refresh.getLastRefreshCount());
+		assertEquals(2, loader.loadCount);
+		assertEquals(1, table.writes(1));
+		assertEquals(2, table.writes(2));
+		assertEquals(new BigDecimal("7"), table.get(2, "tqty"));
+		assertEquals(6, table.rows.size());
+		assertEquals(new BigDecimal("1.70"), table.get(6, "twarehousevalue"));
+	}
+
+	@Test
+	public void appendsNewObjectsBeforeSummaryRows() {
+		loader.records.add(record(first, screw, "10"));
+		refresh.refresh(head, RANGE, loader, 10);
+
+		loader.records.add(record(second, nut, "5"));
+		assertTrue(refresh.refresh(head, RANGE, loader, 10));
+		assertFalse(refresh.isReloaded());
+		assertEquals(1, refresh.getLastRefreshCount());
+		assertEquals(1, table.writes(1));
+		assertEquals(Integer.valueOf(2), table.get(2, "item"));
+		assertEquals(nut, table.get(2, "tarticle"));
+		assertEquals(6, table.rows.size());
+		assertEquals("Total team 1", table.get(3, "tarticledescr"));
+		assertEquals("Total", table.get(6, "tarticledescr"));
+	}
+
+	@Test
+	public void reloadsIfShownObjectIsNoLongerSelected() {
+		loader.records.add(record(first, screw, "10"));
+		loader.records.add(record(second, nut, "5"));
+		refresh.refresh(head, RANGE, loader, 10);
+
+		loader.records.remove(0);
+		loader.records.add(record(third, screw, "2"));
+		assertTrue(refresh.refresh(head, RANGE, loader, 10));
+		assertTrue(refresh.isReloaded());
+		assertEquals(3, loader.loadCount);
+		assertEquals(Integer.valueOf(1), table.get(1, "item"));
+		assertEquals(nut, table.get(1, "tarticle"));
+		assertEquals(screw, table.get(2, "tarticle"));
+		assertEquals(6, table.rows.size());
+		assertEquals(new BigDecimal("0.70"), table.get(6, "twarehousevalue"));
+	}
+
+	@Test
+	public void reloadsIfTableWasChanged() {
+		loader.records.add(record(first, screw, "10"));
+		refresh.refresh(head, RANGE, loader, 10);
+
+		head.table().deleteRow(1);
+		assertTrue(refresh.refresh(head, RANGE, loader, 10));
+		assertTrue(refresh.isReloaded());
+		// 1 object, 1 team, 1 article, total
+		assertEquals(4, table.rows.size());
+		assertEquals(screw, table.get(1, "tarticle"));
+	}
+
+	@Test
+	public void reloadsIfRangeChanged() {
+		loader.records.add(record(first, screw, "10"));
+		refresh.refresh(head, RANGE, loader, 10);
+
+		assertTrue(refresh.refresh(head, "1!2;20140101!20141231", loader, 10));
+		assertTrue(refresh.isReloaded());
+		assertEquals(1, table.writes(1));
+	}
+
+	@Test
+	public void stopsIfMoreObjectsThanMaxRowsAreSelected() {
+		loader.records.add(record(first, screw, "10"));
+		loader.records.add(record(second, nut, "5"));
+		refresh.refresh(head, RANGE, loader, 2);
+
+		loader.records.add(record(third, screw, "2"));
+		assertFalse(refresh.refresh(head, RANGE, loader, 2));
+
+		// the table is filled again by the next refresh
+		loader.records.remove(2);
+		assertTrue(refresh.refresh(head, RANGE, loader, 2));
+		assertTrue(refresh.isReloaded());
+		assertEquals(6, table.rows.size());
+	}
+
+}
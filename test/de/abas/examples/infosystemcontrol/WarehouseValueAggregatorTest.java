@@ -0,0 +1,93 @@
+package de.abas.examples.infosystemcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.abas.erp.common.type.Id;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.examples.standin.StandIn;
+
+public class WarehouseValueAggregatorTest {
+
+	private final Product screw = newProduct();
+	private final Product nut = newProduct();
+
+	/**
+	 * Creates a stand-in product which only knows its id.
+	 */
+	private static Product newProduct() {
+		final Id id = StandIn.create(Id.class);
+		return StandIn.create(Product.class, new StandIn.Answer() {
+			@Override
+			public Object answer(String methodName, Object[] args) {
+				return methodName.equals("id") ? id : StandIn.DEFAULT;
+			}
+		});
+	}
+
+	private static InventoryRecord record(Product article, int team, String quantity, String purchPrice) {
+		return new InventoryRecord(null, article, team, new BigDecimal(quantity), "STK", null, new BigDecimal(purchPrice), "");
+	}
+
+	@Test
+	public void sumsPerTeamPerArticleAndInTotal() {
+		final WarehouseValueAggregator aggregator = new WarehouseValueAggregator();
+		aggregator.add(record(screw, 2, "10", "0.15"));
+		aggregator.add(record(nut, 1, "4", "0.05"));
+		aggregator.add(record(screw, 1, "3", "0.15"));
+
+		final Map<Integer, BigDecimal> teamTotals = aggregator.getTeamTotals();
+		assertEquals(new BigDecimal("0.65"), teamTotals.get(1));
+		assertEquals(new BigDecimal("1.50"), teamTotals.get(2));
+		assertEquals(Integer.valueOf(1), teamTotals.keySet().iterator().next());
+
+		final List<WarehouseValueAggregator.ArticleTotal> articleTotals = aggregator.getArticleTotals();
+		assertEquals(2, articleTotals.size());
+		assertSame(screw, articleTotals.get(0).getArticle());
+		assertEquals(new BigDecimal("1.95"), articleTotals.get(0).getValue());
+		assertEquals(new BigDecimal("0.20"), articleTotals.get(1).getValue());
+
+		assertEquals(new BigDecimal("2.15"), aggregator.getTotal());
+		assertEquals(3, aggregator.getCount());
+	}
+
+	@Test
+	public void replacesChangedRecords() {
+		final WarehouseValueAggregator aggregator = new WarehouseValueAggregator();
+		final InventoryRecord counted = record(screw, 1, "10", "0.15");
+		aggregator.add(counted);
+		aggregator.add(record(nut, 1, "4", "0.05"));
+
+		aggregator.remove(counted);
+		aggregator.add(record(screw, 1, "12", "0.15"));
+		assertEquals(new BigDecimal("1.80"), aggregator.getArticleTotals().get(0).getValue());
+		assertEquals(new BigDecimal("2.00"), aggregator.getTeamTotals().get(1));
+		assertEquals(new BigDecimal("2.00"), aggregator.getTotal());
+		assertEquals(2, aggregator.getCount());
+	}
+
+	@Test
+	public void mergesPartitions() {
+		final WarehouseValueAggregator january = new WarehouseValueAggregator();
+		january.add(record(screw, 1, "10", "0.15"));
+		final WarehouseValueAggregator february = new WarehouseValueAggregator();
+		february.add(record(screw, 1, "2", "0.15"));
+		february.add(record(nut, 3, "4", "0.05"));
+
+		january.merge(february);
+		assertEquals(new BigDecimal("1.80"), january.getTeamTotals().get(1));
+		assertEquals(new BigDecimal("0.20"), january.getTeamTotals().get(3));
+		assertEquals(new BigDecimal("1.80"), january.getArticleTotals().get(0).getValue());
+		assertEquals(new BigDecimal("2.00"), january.getTotal());
+		assertEquals(3, january.getCount());
+		// the merged aggregator is not changed
+		assertEquals(new BigDecimal("0.50"), february.getTotal());
+	}
+
+}
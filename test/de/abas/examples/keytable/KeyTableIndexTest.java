@@ -0,0 +1,171 @@
+package de.abas.examples.keytable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.abas.erp.db.DbContext;
+import de.abas.examples.common.DbContextFactory;
+import de.abas.examples.common.DbContextPool;
+import de.abas.examples.standin.StandIn;
+
+public class KeyTableIndexTest {
+
+	/**
+	 * Creates stand-in contexts and counts the destroyed ones.
+	 */
+	private static class StandInFactory implements DbContextFactory {
+		private final AtomicInteger destroyed = new AtomicInteger();
+
+		@Override
+		public DbContext create() {
+			return StandIn.create(DbContext.class);
+		}
+
+		@Override
+		public boolean isValid(DbContext dbContext) {
+			return true;
+		}
+
+		@Override
+		public void destroy(DbContext dbContext) {
+			destroyed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns key table UNIT with the meaning of partial key PCE changed by each load, fails if
+	 * failing is set.
+	 */
+	private static class StandInLoader implements KeyTableIndex.Loader {
+		private final AtomicInteger loads = new AtomicInteger();
+		private final AtomicInteger failures = new AtomicInteger();
+		private volatile boolean failing = false;
+
+		@Override
+		public List<KeyTableEntry> load(DbContext ctx) {
+			if (failing) {
+				failures.incrementAndGet();
+				throw new RuntimeException("ERP server not reachable");
+			}
+			final int load = loads.incrementAndGet();
+			return Collections.singletonList(new KeyTableEntry("(1)", "UNIT", "Key", new PartialKeyMap(Arrays.asList("PCE", "KG"),
+					Arrays.asList("piece " + load, "kilogram"))));
+		}
+	}
+
+	private StandInFactory factory;
+	private DbContextPool pool;
+	private StandInLoader loader;
+	private KeyTableIndex index;
+
+	@Before
+	public void setUp() {
+		factory = new StandInFactory();
+		final DbContextPool.Settings settings = new DbContextPool.Settings();
+		settings.evictionIntervalMillis = 0;
+		pool = new DbContextPool("KeyTableIndexTest", factory, settings);
+		loader = new StandInLoader();
+	}
+
+	@After
+	public void tearDown() {
+		if (index != null) {
+			index.close();
+		}
+		pool.close();
+	}
+
+	@Test
+	public void loadsWithFirstAccess() {
+		index = new KeyTableIndex(pool, KeyTableIndex.DEFAULT_TTL_MILLIS, KeyTableIndex.DEFAULT_RETRY_MILLIS, loader);
+		assertEquals(0, index.getLoadCount());
+
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		assertEquals("kilogram", index.getMeaning("(1)", "KG"));
+		assertNull(index.getMeaning("UNIT", "M"));
+		assertNull(index.getMeaning("CURRENCY", "EUR"));
+		assertEquals(1, index.getKeyTables().size());
+		assertEquals(1, index.getLoadCount());
+		assertEquals(0, pool.getStatistics().active);
+	}
+
+	@Test
+	public void reloadsInBackgroundAfterTtl() throws InterruptedException {
+		index = new KeyTableIndex(pool, 50, 50, loader);
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		Thread.sleep(60);
+
+		// the expired index is still returned while it is reloaded
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		waitForLoadCount(2);
+		assertEquals("piece 2", index.getMeaning("UNIT", "PCE"));
+		assertNull(index.getLastFailure());
+	}
+
+	@Test
+	public void keepsOldIndexIfReloadFails() throws InterruptedException {
+		index = new KeyTableIndex(pool, 50, 50, loader);
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		loader.failing = true;
+		Thread.sleep(60);
+
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		waitForFailure();
+		assertEquals("ERP server not reachable", index.getLastFailure().getMessage());
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		assertEquals(1, index.getLoadCount());
+		// the context of the failed load is not given back to the pool
+		assertEquals(1, factory.destroyed.get());
+
+		// the first access after the retry delay retries
+		loader.failing = false;
+		waitForLoadCount(2);
+		assertEquals("piece 2", index.getMeaning("UNIT", "PCE"));
+	}
+
+	@Test
+	public void waitsForRetryDelayAfterFailedReload() throws InterruptedException {
+		index = new KeyTableIndex(pool, 50, 60000, loader);
+		assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+		loader.failing = true;
+		Thread.sleep(60);
+
+		index.getMeaning("UNIT", "PCE");
+		waitForFailure();
+		// the accesses before the retry delay has passed do not start another reload
+		for (int i = 0; i < 10; i++) {
+			assertEquals("piece 1", index.getMeaning("UNIT", "PCE"));
+			Thread.sleep(10);
+		}
+		assertEquals(1, loader.failures.get());
+		assertEquals(1, factory.destroyed.get());
+	}
+
+	private void waitForFailure() throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (index.getLastFailure() == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void waitForLoadCount(int loadCount) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (index.getLoadCount() < loadCount && System.currentTimeMillis() < deadline) {
+			// an access starts the reload if the last one has ended
+			index.getMeaning("UNIT", "PCE");
+			Thread.sleep(10);
+		}
+		assertTrue(index.getLoadCount() >= loadCount);
+	}
+
+}
@@ -0,0 +1,58 @@
+package de.abas.examples.keytable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PartialKeyMapTest {
+
+	@Test
+	public void findsMeaningsOfCollidingPartialKeys() {
+		// "Aa" and "BB" have the same hash code
+		final PartialKeyMap map = new PartialKeyMap(Arrays.asList("Aa", "BB", "1", "2"), Arrays.asList("first", "second", "one", "two"));
+		assertEquals("first", map.get("Aa"));
+		assertEquals("second", map.get("BB"));
+		assertEquals("one", map.get("1"));
+		assertEquals("two", map.get("2"));
+		assertNull(map.get("3"));
+		assertNull(map.get(null));
+	}
+
+	@Test
+	public void keepsAllRowsAndFindsFirstMeaningOfDuplicates() {
+		final PartialKeyMap map = new PartialKeyMap(Arrays.asList("B", "A", "B", null), Arrays.asList("b", "a", "other", "none"));
+		assertEquals(4, map.size());
+		assertEquals("B", map.partialKeyAt(0));
+		assertEquals("a", map.meaningAt(1));
+		assertEquals("B", map.partialKeyAt(2));
+		assertEquals("other", map.meaningAt(2));
+		assertNull(map.partialKeyAt(3));
+		assertEquals("none", map.meaningAt(3));
+		assertEquals("b", map.get("B"));
+		assertEquals("a", map.get("A"));
+	}
+
+	@Test
+	public void handlesEmptyAndLargeKeyTables() {
+		assertNull(new PartialKeyMap(new ArrayList<String>(), new ArrayList<String>()).get("A"));
+
+		final List<String> partialKeys = new ArrayList<String>();
+		final List<String> meanings = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++) {
+			partialKeys.add(Integer.toString(i));
+			meanings.add("meaning " + i);
+		}
+		final PartialKeyMap map = new PartialKeyMap(partialKeys, meanings);
+		assertEquals(10000, map.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("meaning " + i, map.get(Integer.toString(i)));
+		}
+		assertNull(map.get("10000"));
+	}
+
+}
@@ -0,0 +1,169 @@
+package de.abas.examples.performance;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Deterministic stand-in for an EDP session reading products.
+ *
+ * Models the three query tuning knobs of AJO without an ERP server:
+ * <ul>
+ * <li>data set size (EDPSession.setDataSetSize()): number of products transferred per round-trip,</li>
+ * <li>field set (Query.setFields()): number of field values transferred per product,</li>
+ * <li>lazy load (Query.setLazyLoad()): if on, the selection only transfers the ids and every product
+ * costs an extra round-trip when its first field is read.</li>
+ * </ul>
+ * A round-trip costs a fixed latency plus a transfer time per field value. Both are simulated by
+ * busy waiting, so the timings do not depend on the scheduler's sleep granularity.
+ *
+ * @author abas Software AG
+ *
+ */
+public class FakeEdpSession {
+
+	/**
+	 * Number of fields of a product if no field set is defined.
+	 */
+	public static final int ALL_FIELDS = 120;
+
+	private final long roundTripNanos;
+	private final long nanosPerFieldValue;
+	private long roundTrips = 0;
+
+	/**
+	 * Creates the session.
+	 *
+	 * @param roundTripNanos The latency of one round-trip.
+	 * @param nanosPerFieldValue The transfer time of one field value.
+	 */
+	public FakeEdpSession(long roundTripNanos, long nanosPerFieldValue) {
+		this.roundTripNanos = roundTripNanos;
+		this.nanosPerFieldValue = nanosPerFieldValue;
+	}
+
+	/**
+	 * Returns the number of round-trips so far.
+	 *
+	 * @return The number of round-trips.
+	 */
+	public long getRoundTrips() {
+		return roundTrips;
+	}
+
+	/**
+	 * Selects products.
+	 *
+	 * @param count The number of products matching the selection.
+	 * @param dataSetSize The number of products per round-trip.
+	 * @param fields The field names of the field set, or null for all fields.
+	 * @param lazyLoad Whether the field values are loaded on first access.
+	 * @return The products.
+	 */
+	public Iterable<FakeProduct> query(final int count, final int dataSetSize, final String[] fields, final boolean lazyLoad) {
+		final String[] fieldNames = fields != null ? fields : allFieldNames();
+		return new Iterable<FakeProduct>() {
+			@Override
+			public Iterator<FakeProduct> iterator() {
+				return new Iterator<FakeProduct>() {
+					private int index = 0;
+					private int remainingInDataSet = 0;
+
+					@Override
+					public boolean hasNext() {
+						return index < count;
+					}
+
+					@Override
+					public FakeProduct next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						if (remainingInDataSet == 0) {
+							remainingInDataSet = Math.min(dataSetSize, count - index);
+							// lazy load only transfers the ids with the data set
+							roundTrip(lazyLoad ? remainingInDataSet : remainingInDataSet * fieldNames.length);
+						}
+						remainingInDataSet--;
+						final FakeProduct product = new FakeProduct(FakeEdpSession.this, index++, fieldNames);
+						if (!lazyLoad) {
+							product.fill();
+						}
+						return product;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Simulates one round-trip.
+	 *
+	 * @param fieldValues The number of field values transferred.
+	 */
+	void roundTrip(int fieldValues) {
+		roundTrips++;
+		final long end = System.nanoTime() + roundTripNanos + fieldValues * nanosPerFieldValue;
+		while (System.nanoTime() < end) {
+			// busy waiting is deterministic, sleeping is not
+		}
+	}
+
+	private static String[] allFieldNames() {
+		final String[] names = new String[ALL_FIELDS];
+		names[0] = "id";
+		names[1] = "idno";
+		names[2] = "swd";
+		for (int i = 3; i < names.length; i++) {
+			names[i] = "field" + i;
+		}
+		return names;
+	}
+
+	/**
+	 * A product read through the fake session.
+	 */
+	public static class FakeProduct {
+		private final FakeEdpSession session;
+		private final int index;
+		private final String[] fieldNames;
+		private String[] values = null;
+
+		private FakeProduct(FakeEdpSession session, int index, String[] fieldNames) {
+			this.session = session;
+			this.index = index;
+			this.fieldNames = fieldNames;
+		}
+
+		/**
+		 * Gets a field value, loading all values of the field set if necessary.
+		 *
+		 * @param fieldName The field name.
+		 * @return The value.
+		 */
+		public String getString(String fieldName) {
+			if (values == null) {
+				session.roundTrip(fieldNames.length);
+				fill();
+			}
+			for (int i = 0; i < fieldNames.length; i++) {
+				if (fieldNames[i].equals(fieldName)) {
+					return values[i];
+				}
+			}
+			throw new IllegalArgumentException("Field " + fieldName + " is not part of the field set");
+		}
+
+		private void fill() {
+			values = new String[fieldNames.length];
+			for (int i = 0; i < fieldNames.length; i++) {
+				values[i] = fieldNames[i] + "-" + index;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+package de.abas.examples.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.abas.examples.performance.ParallelSelectionReader.KeyRange;
+
+public class ParallelSelectionReaderTest {
+
+	@Test
+	public void partitionsEveryIdno() {
+		final List<String> idnos = Arrays.asList("10", "100001", "2", "A-17", "ZZ");
+		final List<KeyRange> ranges = KeyRange.partition(idnos, 2);
+		assertEquals(2, ranges.size());
+		assertEquals("10!100001", ranges.get(0).toString());
+		assertEquals("2!ZZ", ranges.get(1).toString());
+	}
+
+	@Test
+	public void partitionsIntoRangesOfAboutTheSameSize() {
+		final List<String> idnos = Arrays.asList("01", "02", "03", "04", "05", "06", "07", "08", "09", "10");
+		final List<KeyRange> ranges = KeyRange.partition(idnos, 3);
+		assertEquals(Arrays.asList("01!03", "04!06", "07!10"), Arrays.asList(ranges.get(0).toString(), ranges.get(1).toString(), ranges.get(2).toString()));
+		assertEquals("idno=01!03", ranges.get(0).toCriterion());
+	}
+
+	@Test
+	public void returnsFewerRangesThanIdnos() {
+		assertEquals(2, KeyRange.partition(Arrays.asList("1", "2"), 4).size());
+		assertEquals(0, KeyRange.partition(Arrays.<String> asList(), 4).size());
+	}
+
+}
@@ -0,0 +1,168 @@
+package de.abas.examples.performance;
+
+import java.util.Arrays;
+
+import de.abas.ceks.jedp.EDPSession;
+import de.abas.erp.db.DbContext;
+import de.abas.erp.db.FieldSet;
+import de.abas.erp.db.Query;
+import de.abas.erp.db.schema.part.Product;
+import de.abas.erp.db.selection.ExpertSelection;
+import de.abas.erp.db.selection.Selection;
+import de.abas.erp.db.util.LegacyUtil;
+import de.abas.examples.benchmark.MicroBenchmark;
+import de.abas.examples.benchmark.MicroBenchmark.Operation;
+import de.abas.examples.context.IDEContextProvider;
+import de.abas.examples.performance.FakeEdpSession.FakeProduct;
+
+/**
+ * Benchmarks the query tuning knobs used in <code>PerformanceOptimization</code>: data set size
+ * (EDPSession.setDataSetSize()), field set (Query.setFields()) and lazy load
+ * (Query.setLazyLoad()).
+ *
+ * By default it runs against {@link FakeEdpSession}, so the numbers can be reproduced without an
+ * ERP server. Each operation reads all products of one selection like
+ * <code>PerformanceOptimization.readQuery()</code>.
+ *
+ * In server mode every combination runs an AJO query on a client context of the connection in
+ * ajo-access.properties instead, so the numbers include how AJO handles the settings, but also
+ * depend on the server's load and data. It reads the test products created by
+ * <code>CreateTestData</code>.
+ *
+ * Usage: QueryTuningBenchmark [products] [round-trip latency us] [transfer ns per field value]
+ * <br>
+ * or: QueryTuningBenchmark server [warm-up iterations] [measurement iterations]
+ *
+ * @author abas Software AG
+ *
+ */
+public class QueryTuningBenchmark {
+
+	private static final int[] DATA_SET_SIZES = { 10, 100, 1000 };
+
+	private static final String[][] FIELD_SETS = {
+			// as read by PerformanceOptimization.readQuery()
+			{ "id", "idno", "swd" },
+			// as defined in PerformanceOptimization.runClient()
+			{ "id", "idno", "swd", "product^idno", "price", "head", "head^idno", "head^swd" },
+			// no field set
+			null };
+
+	private static final boolean[] LAZY_LOADS = { true, false };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("server")) {
+			runServer(Arrays.copyOfRange(args, 1, args.length));
+		}
+		else {
+			runFake(args);
+		}
+	}
+
+	/**
+	 * Runs the benchmark against the fake session.
+	 *
+	 * @param args The number of products, the round-trip latency and the transfer time.
+	 */
+	private static void runFake(String[] args) throws Exception {
+		final int products = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final long roundTripNanos = (args.length > 1 ? Long.parseLong(args[1]) : 100) * 1000;
+		final long nanosPerFieldValue = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+		final MicroBenchmark benchmark = new MicroBenchmark(3, 10);
+		System.out.println("Products per selection: " + products + ", round-trip: " + roundTripNanos / 1000 + "us, transfer: "
+				+ nanosPerFieldValue + "ns per field value");
+		MicroBenchmark.Result.printHeader(System.out);
+		for (final int dataSetSize : DATA_SET_SIZES) {
+			for (final String[] fields : FIELD_SETS) {
+				for (final boolean lazyLoad : LAZY_LOADS) {
+					final FakeEdpSession session = new FakeEdpSession(roundTripNanos, nanosPerFieldValue);
+					final String name = "size=" + dataSetSize + " fields=" + (fields == null ? FakeEdpSession.ALL_FIELDS : fields.length) + " lazy="
+							+ lazyLoad;
+					final MicroBenchmark.Result result = benchmark.run(name, new Operation() {
+						@Override
+						public int run() {
+							return readFakeQuery(session.query(products, dataSetSize, fields, lazyLoad));
+						}
+					});
+					result.print(System.out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark against the ERP server of ajo-access.properties.
+	 *
+	 * @param args The number of warm-up and measurement iterations.
+	 */
+	private static void runServer(String[] args) throws Exception {
+		final int warmupIterations = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		final int measurementIterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		final MicroBenchmark benchmark = new MicroBenchmark(warmupIterations, measurementIterations);
+		final Selection<Product> selection = ExpertSelection.create(Product.class, "swd=AJOPERF");
+		final DbContext ctx = new IDEContextProvider().getContext();
+		try {
+			final EDPSession session = LegacyUtil.getSession(ctx);
+			MicroBenchmark.Result.printHeader(System.out);
+			for (final int dataSetSize : DATA_SET_SIZES) {
+				session.setDataSetSize(dataSetSize);
+				for (final String[] fields : FIELD_SETS) {
+					for (final boolean lazyLoad : LAZY_LOADS) {
+						final String name = "size=" + dataSetSize + " fields=" + (fields == null ? "all" : Integer.toString(fields.length))
+								+ " lazy=" + lazyLoad;
+						final MicroBenchmark.Result result = benchmark.run(name, new Operation() {
+							@Override
+							public int run() {
+								final Query<Product> query = ctx.createQuery(selection);
+								if (fields != null) {
+									query.setFields(FieldSet.of(fields));
+								}
+								query.setLazyLoad(lazyLoad);
+								return readQuery(query);
+							}
+						});
+						result.print(System.out);
+					}
+				}
+			}
+		}
+		finally {
+			ctx.close();
+		}
+	}
+
+	/**
+	 * Reads the products like <code>PerformanceOptimization.readQuery()</code>.
+	 *
+	 * @param query The query.
+	 * @return The number of products.
+	 */
+	private static int readFakeQuery(Iterable<FakeProduct> query) {
+		int counter = 0;
+		for (final FakeProduct product : query) {
+			product.getString("idno");
+			product.getString("swd");
+			counter++;
+		}
+		return counter;
+	}
+
+	/**
+	 * Reads the products like <code>PerformanceOptimization.readQuery()</code>.
+	 *
+	 * @param query The query.
+	 * @return The number of products.
+	 */
+	private static int readQuery(Query<Product> query) {
+		int counter = 0;
+		for (final Product product : query) {
+			product.getIdno();
+			product.getSwd();
+			counter++;
+		}
+		return counter;
+	}
+
+}
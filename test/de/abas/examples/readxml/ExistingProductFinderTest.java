@@ -0,0 +1,35 @@
+package de.abas.examples.readxml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ExistingProductFinderTest {
+
+	@Test
+	public void countsHitsDifferingInCase() {
+		final Set<String> existing = new HashSet<String>();
+		ExistingProductFinder.addHits(Arrays.asList("MyPc10", "MYPC11", "MYPC12"), Arrays.asList("MYPC10", "mypc11"), existing);
+		assertEquals(new HashSet<String>(Arrays.asList("MyPc10", "MYPC11")), existing);
+	}
+
+	@Test
+	public void addsEverySearchWordEqualIgnoringCase() {
+		final Set<String> existing = new HashSet<String>();
+		ExistingProductFinder.addHits(Arrays.asList("MYPC10", "mypc10"), Collections.singletonList("MYPC10"), existing);
+		assertEquals(new HashSet<String>(Arrays.asList("MYPC10", "mypc10")), existing);
+	}
+
+	@Test
+	public void ignoresProductsNotSelected() {
+		final Set<String> existing = new HashSet<String>();
+		ExistingProductFinder.addHits(Collections.singletonList("MYPC10"), Collections.singletonList("MYPC100"), existing);
+		assertEquals(Collections.emptySet(), existing);
+	}
+
+}
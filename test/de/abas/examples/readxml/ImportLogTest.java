@@ -0,0 +1,102 @@
+package de.abas.examples.readxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImportLogTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("ImportLogTest", ".log");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void writesSummaryMessagesInOrder() throws IOException {
+		final ImportLog importLog = new ImportLog(file.getPath(), 4, ImportLog.Verbosity.SUMMARY);
+		for (int i = 0; i < 1000; i++) {
+			importLog.summary("message " + i);
+		}
+		importLog.close();
+
+		final List<String> lines = readLines();
+		assertEquals(1000, lines.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("message " + i, lines.get(i));
+		}
+	}
+
+	@Test
+	public void skipsTraceMessagesWithSummaryVerbosity() throws IOException {
+		final ImportLog importLog = new ImportLog(file.getPath(), 16, ImportLog.Verbosity.SUMMARY);
+		importLog.trace("field - value");
+		importLog.summary("record");
+		importLog.close();
+
+		assertEquals(1, readLines().size());
+		assertEquals(0, importLog.getDroppedCount());
+	}
+
+	@Test
+	public void writesAllMessagesOfConcurrentProducers() throws Exception {
+		final ImportLog importLog = new ImportLog(file.getPath(), 64, ImportLog.Verbosity.TRACE);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			final int producer = t;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 2500; i++) {
+						importLog.summary(producer + ":" + i);
+						importLog.trace("trace");
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		importLog.close();
+
+		int summaries = 0;
+		int traces = 0;
+		final int[] lastPerProducer = { -1, -1, -1, -1 };
+		for (final String line : readLines()) {
+			if (line.equals("trace")) {
+				traces++;
+			}
+			else if (line.contains(":")) {
+				final String[] parts = line.split(":");
+				final int producer = Integer.parseInt(parts[0]);
+				final int index = Integer.parseInt(parts[1]);
+				// messages of one producer keep their order
+				assertTrue(index > lastPerProducer[producer]);
+				lastPerProducer[producer] = index;
+				summaries++;
+			}
+		}
+		assertEquals(10000, summaries);
+		assertEquals(10000, traces + importLog.getDroppedCount());
+	}
+
+	private List<String> readLines() throws IOException {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,50 @@
+package de.abas.examples.readxml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class RejectedRecordWriterTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("RejectedRecordWriterTest", ".xml");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void replacesRejectReasonOfRecordRejectedAgain() throws Exception {
+		final ProductRecord record = new ProductRecord(0);
+		record.addAttribute("swd", "MYPC10");
+		record.addAttribute("rejectReason", "Product with swd MYPC10 already exists");
+		final RejectedRecordWriter writer = new RejectedRecordWriter(file.getPath(), Collections.<String, String> emptyMap());
+		try {
+			writer.write(record, "Invalid unit");
+		}
+		finally {
+			writer.close();
+		}
+
+		final Element element = (Element) DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getElementsByTagName("record")
+				.item(0);
+		assertEquals(2, element.getAttributes().getLength());
+		assertEquals("MYPC10", element.getAttribute("swd"));
+		assertEquals("Invalid unit", element.getAttribute("rejectReason"));
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.abas.examples.standin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates stand-in implementations of AJO interfaces, e.g. database contexts, objects or table
+ * rows, so tests run without an ERP server.
+ *
+ * A stand-in is only equal to itself. Methods not answered by its {@link Answer} return null,
+ * false or 0.
+ *
+ * @author abas Software AG
+ * @version 1.0
+ *
+ */
+public final class StandIn {
+
+	/**
+	 * Answers the method calls of a stand-in.
+	 */
+	public interface Answer {
+		/**
+		 * Answers a method call.
+		 *
+		 * @param methodName The name of the method called.
+		 * @param args The arguments, null if the method has none.
+		 * @return The return value or {@link StandIn#DEFAULT} for the default value of the return
+		 * type.
+		 */
+		Object answer(String methodName, Object[] args);
+	}
+
+	/**
+	 * Returned by an {@link Answer} for methods it does not answer.
+	 */
+	public static final Object DEFAULT = new Object();
+
+	private StandIn() {
+	}
+
+	/**
+	 * Creates a stand-in whose methods do nothing.
+	 *
+	 * @param type The interface.
+	 * @param <T> The interface.
+	 * @return The stand-in.
+	 */
+	public static <T> T create(Class<T> type) {
+		return create(type, null);
+	}
+
+	/**
+	 * Creates a stand-in.
+	 *
+	 * @param type The interface.
+	 * @param answer Answers the method calls, null if the methods do nothing.
+	 * @param <T> The interface.
+	 * @return The stand-in.
+	 */
+	public static <T> T create(final Class<T> type, final Answer answer) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				switch (method.getName()) {
+				case "hashCode":
+					if (method.getParameterTypes().length == 0) {
+						return System.identityHashCode(proxy);
+					}
+					break;
+				case "equals":
+					if (method.getParameterTypes().length == 1) {
+						return proxy == args[0];
+					}
+					break;
+				case "toString":
+					if (method.getParameterTypes().length == 0) {
+						return "StandIn " + type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+					}
+					break;
+				default:
+					break;
+				}
+				final Object value = answer == null ? DEFAULT : answer.answer(method.getName(), args);
+				return value == DEFAULT ? defaultValue(method.getReturnType()) : value;
+			}
+		}));
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		}
+		if (type == boolean.class) {
+			return Boolean.FALSE;
+		}
+		if (type == char.class) {
+			return Character.valueOf((char) 0);
+		}
+		if (type == long.class) {
+			return Long.valueOf(0);
+		}
+		if (type == float.class) {
+			return Float.valueOf(0);
+		}
+		if (type == double.class) {
+			return Double.valueOf(0);
+		}
+		if (type == byte.class) {
+			return Byte.valueOf((byte) 0);
+		}
+		if (type == short.class) {
+			return Short.valueOf((short) 0);
+		}
+		return Integer.valueOf(0);
+	}
+
+}
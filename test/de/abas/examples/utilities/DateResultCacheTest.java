@@ -0,0 +1,62 @@
+package de.abas.examples.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DateResultCacheTest {
+
+	@Test
+	public void countsHitsAndMisses() {
+		final DateResultCache cache = new DateResultCache(new FactoryCalendar(), 100);
+		assertNull(cache.get("addWeeks", "20150105", 2));
+		cache.put("addWeeks", "20150105", 2, "20150119");
+		assertEquals("20150119", cache.get("addWeeks", "20150105", 2));
+		assertNull(cache.get("addWeeks", "20150105", 3));
+		assertNull(cache.get("addWorkingDays", "20150105", 2));
+
+		final DateResultCache.Statistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.hits);
+		assertEquals(3, statistics.misses);
+		assertEquals(1, statistics.size);
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedEntries() {
+		final DateResultCache cache = new DateResultCache(new FactoryCalendar(), 160);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("addWorkingDays", "20150105", i, Integer.valueOf(i));
+		}
+		final DateResultCache.Statistics statistics = cache.getStatistics();
+		assertTrue(statistics.size <= 160);
+		assertEquals(1000 - statistics.size, statistics.evictions);
+		// the most recent entry is still cached
+		assertEquals(Integer.valueOf(999), cache.get("addWorkingDays", "20150105", 999));
+	}
+
+	@Test
+	public void dropsEntriesWhenFactoryCalendarChanges() {
+		final FactoryCalendar factoryCalendar = new FactoryCalendar();
+		final DateResultCache cache = new DateResultCache(factoryCalendar, 100);
+		cache.put("addWorkingDays", "20150105", 1, "20150106");
+		factoryCalendar.invalidate();
+		assertNull(cache.get("addWorkingDays", "20150105", 1));
+		assertEquals(1, cache.getStatistics().invalidations);
+	}
+
+	@Test
+	public void reloadsFactoryCalendarAfterInterval() throws InterruptedException {
+		final FactoryCalendar factoryCalendar = new FactoryCalendar();
+		final DateResultCache cache = new DateResultCache(factoryCalendar, 100, 50);
+		final int version = factoryCalendar.getVersion();
+		cache.put("addWorkingDays", "20150105", 1, "20150106");
+		assertEquals("20150106", cache.get("addWorkingDays", "20150105", 1));
+
+		Thread.sleep(60);
+		assertNull(cache.get("addWorkingDays", "20150105", 1));
+		assertEquals(version + 1, factoryCalendar.getVersion());
+	}
+
+}
@@ -0,0 +1,125 @@
+package de.abas.examples.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FactoryCalendarTest {
+
+	/**
+	 * Monday to Friday are working days, except for January 1st and December 24th to 26th.
+	 */
+	private static class WeekdayLoader implements FactoryCalendar.YearLoader {
+		private int loads = 0;
+
+		@Override
+		public long[] load(int year) {
+			loads++;
+			final long[] yearBits = FactoryCalendar.newYear();
+			final int first = CalendarMath.toEpochDay(year, 1, 1);
+			final int next = CalendarMath.toEpochDay(year + 1, 1, 1);
+			for (int day = first + 1; day < next; day++) {
+				final int yearMonthDay = CalendarMath.toYearMonthDay(day);
+				final boolean holiday = yearMonthDay % 10000 >= 1224 && yearMonthDay % 10000 <= 1226;
+				if (CalendarMath.dayOfWeek(day) <= 5 && !holiday) {
+					FactoryCalendar.setWorkingDay(yearBits, day - first);
+				}
+			}
+			return yearBits;
+		}
+	}
+
+	private FactoryCalendar factoryCalendar;
+	private WeekdayLoader loader;
+
+	@Before
+	public void setUp() {
+		factoryCalendar = new FactoryCalendar();
+		loader = new WeekdayLoader();
+	}
+
+	@Test
+	public void epochDaysMatchGregorianCalendar() {
+		final GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(1900, Calendar.JANUARY, 1);
+		for (int i = 0; i < 300 * 366; i++) {
+			final int epochDay = (int) (calendar.getTimeInMillis() / 86400000L);
+			final int year = calendar.get(Calendar.YEAR);
+			final int month = calendar.get(Calendar.MONTH) + 1;
+			final int day = calendar.get(Calendar.DAY_OF_MONTH);
+			assertEquals(epochDay, CalendarMath.toEpochDay(year, month, day));
+			assertEquals(year * 10000 + month * 100 + day, CalendarMath.toYearMonthDay(epochDay));
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	}
+
+	@Test
+	public void isoWeeksMatchGregorianCalendar() {
+		final GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		calendar.setFirstDayOfWeek(Calendar.MONDAY);
+		calendar.setMinimalDaysInFirstWeek(4);
+		calendar.clear();
+		calendar.set(2000, Calendar.JANUARY, 1);
+		for (int i = 0; i < 40 * 366; i++) {
+			final int epochDay = (int) (calendar.getTimeInMillis() / 86400000L);
+			final int expected = calendar.getWeekYear() * 100 + calendar.get(Calendar.WEEK_OF_YEAR);
+			assertEquals(expected, CalendarMath.isoWeek(epochDay));
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	}
+
+	@Test
+	public void parsesDurations() {
+		assertEquals(3 * 86400 + 3600 + 12 * 60 + 9, CalendarMath.parseDurationSeconds("3D01h12m09s"));
+		assertEquals(365 * 86400, CalendarMath.parseDurationSeconds("365D"));
+		assertEquals(-90 * 60, CalendarMath.parseDurationSeconds("-1h30m"));
+		assertEquals(8 * 60 + 30, CalendarMath.parseMinuteOfDay("08:30"));
+		assertEquals(17 * 60 + 5, CalendarMath.parseMinuteOfDay("1705"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidDurations() {
+		CalendarMath.parseDurationSeconds("3x");
+	}
+
+	@Test
+	public void addsWorkingDays() {
+		// Friday 2015-12-18
+		final int friday = CalendarMath.toEpochDay(2015, 12, 18);
+		assertEquals(CalendarMath.toEpochDay(2015, 12, 21), factoryCalendar.addWorkingDays(friday, 1, loader));
+		// skips the holidays and New Year's Day
+		assertEquals(CalendarMath.toEpochDay(2015, 12, 28), factoryCalendar.addWorkingDays(friday, 4, loader));
+		assertEquals(CalendarMath.toEpochDay(2016, 1, 4), factoryCalendar.addWorkingDays(friday, 8, loader));
+		assertEquals(friday, factoryCalendar.addWorkingDays(CalendarMath.toEpochDay(2016, 1, 4), -8, loader));
+		// a Saturday moves to the next working day
+		assertEquals(CalendarMath.toEpochDay(2015, 12, 21), factoryCalendar.addWorkingDays(friday + 1, 0, loader));
+		assertEquals(friday, factoryCalendar.addWorkingDays(friday, 0, loader));
+		assertTrue(factoryCalendar.isWorkingDay(friday, loader));
+		assertFalse(factoryCalendar.isWorkingDay(CalendarMath.toEpochDay(2015, 12, 24), loader));
+	}
+
+	@Test
+	public void loadsEachYearOnce() {
+		final int start = CalendarMath.toEpochDay(2015, 6, 1);
+		for (int i = 0; i < 1000; i++) {
+			factoryCalendar.addWorkingDays(start, 300, loader);
+		}
+		assertEquals(2, loader.loads);
+
+		final int version = factoryCalendar.getVersion();
+		factoryCalendar.invalidate();
+		assertFalse(factoryCalendar.isLoaded(2015));
+		assertTrue(factoryCalendar.getVersion() != version);
+		factoryCalendar.addWorkingDays(start, 1, loader);
+		assertEquals(3, loader.loads);
+	}
+
+}